@@ -0,0 +1,69 @@
+package com.javainaction.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Random;
+
+/**
+ * Generates the text files the benchmarks read.
+ * <p>
+ * The content only depends on the size: the same seed gives the same words, so the results of two runs
+ * (or two machines) are measured on identical input. A file is generated once and reused by the following runs.
+ */
+public final class BenchmarkFiles {
+
+    private static final Path DIRECTORY = Paths.get("target", "benchmark-data");
+    private static final long SEED = 2021L;
+    private static final long MEGABYTE = 1024L * 1024L;
+
+    // Words of the chapter 5 data file, extended so the lines look like real text.
+    private static final String[] WORDS = {
+            "The", "quick", "brown", "fox", "jumped", "over", "the", "lazy", "dog", "and", "a", "of", "to", "in",
+            "is", "it", "stream", "lambda", "java", "file", "line", "word", "reader", "buffer", "apple", "dish",
+            "trader", "transaction", "value", "year", "city", "menu", "calories", "vegetarian", "collect", "filter",
+            "map", "reduce", "optional", "parallel", "spliterator", "collector", "function", "predicate", "supplier"
+    };
+
+    private BenchmarkFiles() {
+    }
+
+    /**
+     * Returns a text file of (at least) the given number of megabytes, with lines of 5 to 15 words.
+     */
+    public static Path textFile(int megabytes) throws IOException {
+        Path path = DIRECTORY.resolve("text-" + megabytes + "MB.txt");
+        long size = megabytes * MEGABYTE;
+        if (Files.exists(path) && Files.size(path) >= size) {
+            return path;
+        }
+        Files.createDirectories(DIRECTORY);
+        Path temporary = DIRECTORY.resolve(path.getFileName() + ".tmp");
+        Random random = new Random(SEED);
+        long written = 0;
+        try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            StringBuilder line = new StringBuilder(128);
+            while (written < size) {
+                line.setLength(0);
+                int words = 5 + random.nextInt(11);
+                for (int i = 0; i < words; i++) {
+                    if (i > 0) {
+                        line.append(' ');
+                    }
+                    line.append(WORDS[random.nextInt(WORDS.length)]);
+                }
+                line.append('\n');
+                writer.append(line);
+                // The words are ASCII: one char is one byte.
+                written += line.length();
+            }
+        }
+        // Renamed when complete, so an interrupted generation is never mistaken for a finished file.
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+        return path;
+    }
+}
@@ -0,0 +1,46 @@
+package com.javainaction.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Runs the benchmarks with the GC profiler and writes the results as JSON to target/benchmarks,
+ * one file per run (jmh-yyyyMMdd-HHmmss.json), so the runs can be compared (e.g. with jmh.morethan.io).
+ * <p>
+ * Run with: ./mvnw -Pbenchmark compile exec:exec
+ * The arguments are optional:
+ * - the benchmarks to run as a regular expression, e.g. "FileReadingBenchmark.mapped" (-Dbenchmark.include);
+ * - the sizes of the files in MB, e.g. "1,4096" (-Dbenchmark.megabytes).
+ */
+@Slf4j
+public class BenchmarkRunner {
+
+    public static void main(String... args) throws IOException, RunnerException {
+        Path results = Paths.get("target", "benchmarks",
+                "jmh-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json");
+        Files.createDirectories(results.getParent());
+
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : FileReadingBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(results.toString());
+        if (args.length > 1) {
+            options.param("megabytes", args[1].split(","));
+        }
+        new Runner(options.build()).run();
+        log.info("Results written to {}", results.toAbsolutePath());
+    }
+}
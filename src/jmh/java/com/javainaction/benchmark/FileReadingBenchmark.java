@@ -0,0 +1,216 @@
+package com.javainaction.benchmark;
+
+import com.javainaction.chapter03.ExecuteAround;
+import com.javainaction.fileprocessing.AsyncFileProcessor;
+import com.javainaction.fileprocessing.LinePublisher;
+import com.javainaction.fileprocessing.MappedLineSource;
+import com.javainaction.interfaces.CharChunkProcessor;
+import com.javainaction.interfaces.Flow;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Reads a complete generated text file with each of the reading strategies of ExecuteAround and Par07BuildingStreams.
+ * <p>
+ * One operation is one complete file. Next to the operations per second every benchmark reports:
+ * - lines: lines per second;
+ * - bytes: bytes per second (divide by 1048576 for MB/s);
+ * - with the GC profiler (see BenchmarkRunner): the allocation rate and the bytes allocated per operation.
+ * The strategies read a generated file instead of the classpath resource: ExecuteAround.processFile(Path, ...)
+ * with the BufferedReader processing of processFile and processFile2, and a LinePublisher for processFile3.
+ * No benchmark keeps the lines: joining them (processFile2) or collecting them in a List (processFile3) does not fit
+ * in the heap of the fork for the larger files, and a String cannot hold more than 2^31 chars. The lines are
+ * consumed by a Blackhole instead, which measures the reading itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class FileReadingBenchmark {
+
+    // Several GB: override the sizes with -Dbenchmark.megabytes (see BenchmarkRunner).
+    @Param({"1", "64", "1024"})
+    public int megabytes;
+
+    private Path file;
+    private long fileSize;
+    private long fileLines;
+    private AsyncFileProcessor asyncFileProcessor;
+
+    @Setup(Level.Trial)
+    public void createFile() throws IOException {
+        file = BenchmarkFiles.textFile(megabytes);
+        fileSize = Files.size(file);
+        try (Stream<String> lines = Files.lines(file, StandardCharsets.UTF_8)) {
+            fileLines = lines.count();
+        }
+        asyncFileProcessor = new AsyncFileProcessor();
+    }
+
+    /**
+     * The lines and bytes read, reported by JMH as rates next to the benchmark's own score.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Counters {
+
+        public long lines;
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            lines = 0;
+            bytes = 0;
+        }
+    }
+
+    /**
+     * processFile: a readLine() loop.
+     */
+    @Benchmark
+    public String processFile(Counters counters) throws IOException {
+        String lastLine = ExecuteAround.processFile(file, (BufferedReader bufferedReader) -> {
+            String line;
+            String last = null;
+            while ((line = bufferedReader.readLine()) != null) {
+                last = line;
+            }
+            return last;
+        });
+        fileRead(counters);
+        return lastLine;
+    }
+
+    /**
+     * processFile2: the Stream of BufferedReader.lines() (without joining the lines).
+     */
+    @Benchmark
+    public void processFile2(Counters counters, Blackhole blackhole) throws IOException {
+        ExecuteAround.processFile(file, (BufferedReader bufferedReader) -> {
+            bufferedReader.lines().forEach(blackhole::consume);
+            return null;
+        });
+        fileRead(counters);
+    }
+
+    /**
+     * processFile3 and Par07BuildingStreams.processFile without the List: the lines published one by one
+     * by a LinePublisher (the alternative of ExecuteAround.publishFile), on the calling thread.
+     */
+    @Benchmark
+    public long publishFile(Counters counters, Blackhole blackhole) {
+        CompletableFuture<Long> done = new CompletableFuture<>();
+        new LinePublisher<>(() -> Files.newBufferedReader(file, StandardCharsets.UTF_8), Function.identity(), Runnable::run)
+                .subscribe(new Flow.Subscriber<String>() {
+                    private long lineCount;
+
+                    @Override
+                    public void onSubscribe(Flow.Subscription subscription) {
+                        subscription.request(Long.MAX_VALUE);
+                    }
+
+                    @Override
+                    public void onNext(String line) {
+                        blackhole.consume(line);
+                        lineCount++;
+                    }
+
+                    @Override
+                    public void onError(Throwable throwable) {
+                        done.completeExceptionally(throwable);
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        done.complete(lineCount);
+                    }
+                });
+        long lineCount = done.join();
+        fileRead(counters);
+        return lineCount;
+    }
+
+    @Benchmark
+    public long filesLines(Counters counters) throws IOException {
+        try (Stream<String> lines = Files.lines(file, Charset.defaultCharset())) {
+            long lineCount = lines.count();
+            fileRead(counters);
+            return lineCount;
+        }
+    }
+
+    @Benchmark
+    public long mappedLines(Counters counters) throws IOException {
+        try (MappedLineSource lineSource = new MappedLineSource(file, StandardCharsets.UTF_8)) {
+            long lineCount = lineSource.lines().count();
+            fileRead(counters);
+            return lineCount;
+        }
+    }
+
+    @Benchmark
+    public long mappedParallelLines(Counters counters) throws IOException {
+        try (MappedLineSource lineSource = new MappedLineSource(file, StandardCharsets.UTF_8)) {
+            long lineCount = lineSource.parallelLines().count();
+            fileRead(counters);
+            return lineCount;
+        }
+    }
+
+    /**
+     * The word tokens straight from the mapped bytes, without decoding lines.
+     */
+    @Benchmark
+    public long mappedTokens(Counters counters, Blackhole blackhole) throws IOException {
+        try (MappedLineSource lineSource = new MappedLineSource(file, StandardCharsets.UTF_8)) {
+            long tokens = lineSource.forEachToken(blackhole::consume);
+            fileRead(counters);
+            return tokens;
+        }
+    }
+
+    /**
+     * processFileAsync: the decoded chunks of an AsynchronousFileChannel.
+     */
+    @Benchmark
+    public long processFileAsync(Counters counters) {
+        long[] chars = new long[1];
+        CharChunkProcessor<Long> charCounter = CharChunkProcessor.of(
+                (CharBuffer chunk) -> chars[0] += chunk.remaining(),
+                () -> chars[0]);
+        long charCount = asyncFileProcessor.process(file, charCounter).join();
+        fileRead(counters);
+        return charCount;
+    }
+
+    private void fileRead(Counters counters) {
+        counters.lines += fileLines;
+        counters.bytes += fileSize;
+    }
+}
@@ -1,6 +1,15 @@
 package com.javainaction.chapter01;
 
 import com.javainaction.entities.Apple;
+import com.javainaction.inventory.AppleInventory;
+import com.javainaction.inventory.FusedPredicate;
+import com.javainaction.inventory.IndexedCollection;
+import com.javainaction.inventory.ParallelFilter;
+import com.javainaction.inventory.QueryCache;
+import com.javainaction.inventory.SortedInventory;
+import com.javainaction.inventory.VersionedList;
+import com.javainaction.supportingclasses.AppleColorPredicate;
+import com.javainaction.supportingclasses.AppleWeightPredicate;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
@@ -14,10 +23,10 @@ public class FilteringApples {
 
     public static void main(String... args) {
 
-        List<Apple> inventory = Arrays.asList(new Apple(80, "green")
-                , new Apple(155, "green")
-                , new Apple(120, "red")
-                , new Apple(100, "brown"));
+        List<Apple> inventory = Arrays.asList(Apple.of(80, "green")
+                , Apple.of(155, "green")
+                , Apple.of(120, "red")
+                , Apple.of(100, "brown"));
 
         log.info("A List with three apples has been created: " + inventory.size());
 
@@ -28,6 +37,11 @@ public class FilteringApples {
         List<Apple> heavyApples = filterHeavyApples(inventory, 150);
         log.info("Overview of heavy apples \n|" + heavyApples);
 
+        // The same query with a binary search on the apples sorted by weight; the result is a view, not a copy.
+        SortedInventory<Apple> applesByWeight = SortedInventory.byWeight(inventory);
+        log.info("Overview of heavy apples \n|" + applesByWeight.greaterThan(150));
+        log.info("Number of apples between 100 and 150 grams: {}", applesByWeight.countBetween(100, 150));
+
         log.info("\nUsing java 8 methods with the predicates defined in the class using them.");
         greenApples = filterItems(inventory, FilteringApples::isGreenApple);
         log.info("Overview of green apples: \n" + greenApples);
@@ -64,6 +78,39 @@ public class FilteringApples {
                 .filter( (Apple apple) -> apple.getWeight() > 150)
                 .collect(Collectors.toList());
         log.info("Overview of heavy apples \n" + heavyApples);
+        // parallelStream() always uses the common pool; parallelFilterItems() only forks when the work is large enough.
+        heavyApples = parallelFilterItems(inventory, Apple::isHeavyApple);
+        log.info("Overview of heavy apples \n" + heavyApples);
+
+        log.info("\nUsing a columnar AppleInventory: the filters run over an int[] of weights and color codes.");
+        AppleInventory appleInventory = AppleInventory.of(inventory);
+        int[] heavyGreenRows = appleInventory.selectColor(appleInventory.selectHeavierThan(150), "green");
+        log.info("Overview of heavy green apples \n" + appleInventory.toApples(heavyGreenRows));
+
+        log.info("\nUsing a FusedPredicate: the chain is flattened and the most selective test runs first.");
+        FusedPredicate<Apple> heavyGreen = FusedPredicate.<Apple>allOf(new AppleColorPredicate()::test)
+                .and(new AppleWeightPredicate()::test)
+                .and((Apple apple) -> !apple.getColor().isEmpty())
+                .calibrate(inventory, 100);
+        log.info("Overview of heavy green apples \n" + filterItems(inventory, heavyGreen));
+        log.info("Evaluation order: {}", heavyGreen);
+
+        log.info("\nUsing bitmap indexes: the query is answered by the indexes on color and weight, without a scan.");
+        IndexedCollection<Apple> indexedApples = IndexedCollection.ofApples(inventory);
+        log.info("Overview of heavy green apples \n" + indexedApples.get(
+                indexedApples.equalTo("color", "green").and(indexedApples.greaterThan("weight", 150))));
+
+        log.info("\nUsing a QueryCache: the same filter on an unchanged list is answered from the cache.");
+        VersionedList<Apple> versionedInventory = new VersionedList<>(inventory);
+        QueryCache queryCache = new QueryCache();
+        Predicate<Apple> isGreenApple = Apple::isGreenApple;
+        queryCache.filter(versionedInventory, isGreenApple);
+        log.info("Overview of green apples (cached): \n" + queryCache.filter(versionedInventory, isGreenApple));
+        versionedInventory.add(Apple.of(170, "green"));
+        log.info("Overview of green apples after an add: \n" + queryCache.filter(versionedInventory, isGreenApple));
+        log.info("Heavy apples above 150: {}", queryCache.count(versionedInventory, Arrays.asList("heavier than", 150),
+                (Apple apple) -> Apple.isHeavyApple(apple, 150)));
+        log.info("Query cache hit rate: {}", queryCache.getHitRate());
     }
 
     public static List<Apple> filterGreenApples(List<Apple> inventory, String color) {
@@ -115,4 +162,11 @@ public class FilteringApples {
         }
         return result;
     }
+
+    /**
+     * Parallel version of filterItems: a fork/join split with a cutoff based on the size and the cost of the predicate.
+     */
+    public static <T> List<T> parallelFilterItems(List<T> inventory, Predicate<T> predicate) {
+        return ParallelFilter.filter(inventory, predicate);
+    }
 }
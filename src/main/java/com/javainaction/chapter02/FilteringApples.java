@@ -1,11 +1,15 @@
 package com.javainaction.chapter02;
 
 import com.javainaction.entities.Apple;
+import com.javainaction.utilities.IndexBuffer;
+import com.javainaction.utilities.ResultBuffer;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.RandomAccess;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 @Slf4j
 public class FilteringApples {
@@ -17,10 +21,10 @@ public class FilteringApples {
          * Most of the code is available in chapter01.FilteringApples.
          * Especially look again at the use of lambda (Predicate) expresions.
          */
-        List<Apple> inventory = Arrays.asList(new Apple(80, "green")
-                , new Apple(155, "green")
-                , new Apple(120, "red")
-                , new Apple(100, "brown"));
+        List<Apple> inventory = Arrays.asList(Apple.of(80, "green")
+                , Apple.of(155, "green")
+                , Apple.of(120, "red")
+                , Apple.of(100, "brown"));
 
         // It is possible to predefine an instance of type Consumer<T>.
         Consumer<Apple> consumer = (Apple apple) -> log.info(" {}", apple.getColor());
@@ -38,6 +42,13 @@ public class FilteringApples {
         };
         filterItems(inventory, consumer);
 
+        log.info("Filtering into a reusable buffer: no new List per call.");
+        ResultBuffer<Apple> heavyApples = new ResultBuffer<>(inventory.size());
+        for (int weight : new int[]{100, 150}) {
+            heavyApples.reset();
+            int count = filterItems(inventory, (Apple apple) -> Apple.isHeavyApple(apple, weight), heavyApples);
+            log.info("{} apples heavier than {}: {}", count, weight, heavyApples.toList());
+        }
     }
 
     /**
@@ -56,4 +67,59 @@ public class FilteringApples {
 //        }
         inventory.stream().forEach(consumer::accept);
     }
+
+    /**
+     * Allocation free filter: the matching items are added to result instead of to a new ArrayList.
+     * The buffer must be empty (reset()); it is refused when it still holds a previous result.
+     * A RandomAccess list is walked by index, so not even an Iterator is created.
+     *
+     * @return the number of matching items
+     */
+    public static <T> int filterItems(List<T> inventory, Predicate<? super T> predicate, ResultBuffer<T> result) {
+        if (!result.isEmpty()) {
+            throw new IllegalStateException("The result buffer is in use; reset() it before reusing it");
+        }
+        if (inventory instanceof RandomAccess) {
+            for (int i = 0; i < inventory.size(); i++) {
+                T t = inventory.get(i);
+                if (predicate.test(t)) {
+                    result.add(t);
+                }
+            }
+        } else {
+            for (T t : inventory) {
+                if (predicate.test(t)) {
+                    result.add(t);
+                }
+            }
+        }
+        return result.size();
+    }
+
+    /**
+     * Allocation free filter that only records the indexes of the matching items.
+     *
+     * @return the number of matching items
+     */
+    public static <T> int filterIndexes(List<T> inventory, Predicate<? super T> predicate, IndexBuffer indexes) {
+        if (!indexes.isEmpty()) {
+            throw new IllegalStateException("The index buffer is in use; reset() it before reusing it");
+        }
+        if (inventory instanceof RandomAccess) {
+            for (int i = 0; i < inventory.size(); i++) {
+                if (predicate.test(inventory.get(i))) {
+                    indexes.accept(i);
+                }
+            }
+        } else {
+            int i = 0;
+            for (T t : inventory) {
+                if (predicate.test(t)) {
+                    indexes.accept(i);
+                }
+                i++;
+            }
+        }
+        return indexes.size();
+    }
 }
@@ -1,20 +1,37 @@
 package com.javainaction.chapter03;
 
+import com.javainaction.fileprocessing.AsyncFileProcessor;
+import com.javainaction.fileprocessing.CompressedInput;
+import com.javainaction.fileprocessing.LinePublisher;
+import com.javainaction.fileprocessing.MappedLineSource;
+import com.javainaction.fileprocessing.ResourceCache;
 import com.javainaction.interfaces.BufferredReaderProcessor;
+import com.javainaction.interfaces.CharChunkProcessor;
+import com.javainaction.interfaces.Flow;
+import com.javainaction.interfaces.LineStreamProcessor;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.BufferedReader;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.net.URISyntaxException;
+import java.net.URL;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Execute around pattern:
@@ -27,6 +44,8 @@ public class ExecuteAround {
 
     private static String dataFile = "javainaction/chapter03/data.txt";
 
+    private static final ResourceCache resourceCache = new ResourceCache();
+
     public static void main(String... args) throws IOException {
         log.info("Chapter 3: Lambda expressions; execute around pattern.");
 
@@ -43,9 +62,63 @@ public class ExecuteAround {
         );
         log.info("result processFile2 = \n{}", result);
 
+        // The same lambda, now against the cached content. Only the first call reads the file.
+        for (int i = 0; i < 3; i++) {
+            result = processCachedFile((BufferedReader br) -> br.readLine() + "\n" + br.readLine());
+        }
+        log.info("result processCachedFile = \n{}", result);
+        log.info("Resource cache: {} hits, {} misses", resourceCache.getHits(), resourceCache.getMisses());
+
         List<String> lines = processFile3(dataFile);
         lines.forEach( (String line) -> log.info(line));
 
+        // The memory-mapped version: the lines can be processed by a parallel stream.
+        result = processMappedFile(
+                (Stream<CharSequence> mappedLines) ->
+                        String.valueOf(mappedLines.parallel().mapToInt(CharSequence::length).sum())
+        );
+        log.info("result processMappedFile = {} characters", result);
+
+        StringBuilder content = new StringBuilder();
+        CompletableFuture<String> futureResult = processFileAsync(
+                CharChunkProcessor.of(content::append, content::toString)
+        );
+        log.info("result processFileAsync = \n{}", futureResult.join());
+
+        // A subscriber that requests one line at a time: the reader never gets ahead of it.
+        CountDownLatch published = new CountDownLatch(1);
+        publishFile(dataFile).subscribe(new Flow.Subscriber<String>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(String line) {
+                log.info("Published line: {}", line);
+                subscription.request(1);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                log.error("Publishing failed", throwable);
+                published.countDown();
+            }
+
+            @Override
+            public void onComplete() {
+                published.countDown();
+            }
+        });
+        try {
+            published.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
         lines = processFile4(dataFile);
         lines.forEach((String line) -> log.info(line));
         // This would fail: here an absolute path is required.
@@ -59,21 +132,21 @@ public class ExecuteAround {
     }
 
     public static String processFile() throws IOException {
-        InputStream inputStream = ExecuteAround.class.getClassLoader().getResourceAsStream(dataFile);
+        InputStream inputStream = CompressedInput.decompressIfNeeded(ExecuteAround.class.getClassLoader().getResourceAsStream(dataFile));
         try (BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(inputStream))) {
             return bufferedReader.readLine();
         }
     }
 
     public static String processFile(BufferredReaderProcessor bufferredReaderProcessor) throws IOException {
-        InputStream inputStream = ExecuteAround.class.getClassLoader().getResourceAsStream(dataFile);
+        InputStream inputStream = CompressedInput.decompressIfNeeded(ExecuteAround.class.getClassLoader().getResourceAsStream(dataFile));
         try (BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(inputStream))) {
             return bufferredReaderProcessor.process(bufferedReader);
         }
     }
 
     public static String processFile2(Function<BufferedReader, String> processBufferedReader) throws IOException {
-        InputStream inputStream = ExecuteAround.class.getClassLoader().getResourceAsStream(dataFile);
+        InputStream inputStream = CompressedInput.decompressIfNeeded(ExecuteAround.class.getClassLoader().getResourceAsStream(dataFile));
 
         try (BufferedReader bufferedReader = new BufferedReader(new InputStreamReader(inputStream))) {
             return processBufferedReader.apply(bufferedReader);
@@ -81,7 +154,7 @@ public class ExecuteAround {
     }
 
     public static List<String> processFile3(String dataFile) throws IOException {
-        InputStream inputStream = ExecuteAround.class.getClassLoader().getResourceAsStream(dataFile);
+        InputStream inputStream = CompressedInput.decompressIfNeeded(ExecuteAround.class.getClassLoader().getResourceAsStream(dataFile));
         List<String> lines = new ArrayList<>();
         try( BufferedReader bufferedReader = new BufferedReader( new InputStreamReader(inputStream))) {
             lines.addAll(bufferedReader.lines().collect(Collectors.toList()));
@@ -89,6 +162,70 @@ public class ExecuteAround {
         return lines;
     }
 
+    /**
+     * Same pattern for a file outside the classpath. A gzip compressed file is decompressed on the fly,
+     * in parallel when it consists of several gzip members.
+     */
+    public static String processFile(Path path, BufferredReaderProcessor bufferredReaderProcessor) throws IOException {
+        try (BufferedReader bufferedReader = CompressedInput.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return bufferredReaderProcessor.process(bufferedReader);
+        }
+    }
+
+    /**
+     * Same pattern as processFile(BufferredReaderProcessor), but the file is memory-mapped.
+     * The processor receives a Stream that splits on line boundaries, so it may go parallel.
+     * Note that mapping requires a real file: this fails when the resource is packaged inside a jar.
+     */
+    public static String processMappedFile(LineStreamProcessor lineStreamProcessor) throws IOException {
+        try (MappedLineSource lineSource = new MappedLineSource(resourcePath(dataFile))) {
+            return lineStreamProcessor.process(lineSource.lines());
+        }
+    }
+
+    /**
+     * Same as processFile(BufferredReaderProcessor), but the content is read and decoded only once:
+     * the following calls get a BufferedReader over the cached content, as long as the file is not modified.
+     */
+    public static String processCachedFile(BufferredReaderProcessor bufferredReaderProcessor) throws IOException {
+        return resourceCache.process(dataFile, bufferredReaderProcessor);
+    }
+
+    public static ResourceCache getResourceCache() {
+        return resourceCache;
+    }
+
+    /**
+     * Alternative for processFile3: instead of returning all lines in a List the lines are published
+     * one by one, as fast as the subscriber requests them.
+     */
+    public static LinePublisher<String> publishFile(String dataFile) {
+        return new LinePublisher<>(
+                () -> new BufferedReader(new InputStreamReader(ExecuteAround.class.getClassLoader().getResourceAsStream(dataFile))),
+                Function.identity(),
+                ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Asynchronous variant: returns immediately, the chunks of the file are read with an AsynchronousFileChannel
+     * and pushed to the processor. The caller decides whether to wait (join()) or to chain further processing.
+     */
+    public static <R> CompletableFuture<R> processFileAsync(CharChunkProcessor<R> charChunkProcessor) throws IOException {
+        return new AsyncFileProcessor().process(resourcePath(dataFile), charChunkProcessor);
+    }
+
+    public static Path resourcePath(String resource) throws IOException {
+        URL url = ExecuteAround.class.getClassLoader().getResource(resource);
+        if (url == null) {
+            throw new FileNotFoundException("Resource " + resource + " not found on the classpath");
+        }
+        try {
+            return Paths.get(url.toURI());
+        } catch (URISyntaxException e) {
+            throw new IOException("Resource " + resource + " cannot be mapped to a file", e);
+        }
+    }
+
     // Doesn't work: Paths.get() requires an absolute path.
     public static List<String> processFile4(String dataFile) throws IOException {
         return Files.lines(Paths.get("data.txt"), Charset.defaultCharset()).collect(Collectors.toList());
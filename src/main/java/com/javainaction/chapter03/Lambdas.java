@@ -1,5 +1,6 @@
 package com.javainaction.chapter03;
 
+import com.javainaction.utilities.LazyView;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.Arrays;
@@ -21,6 +22,11 @@ public class Lambdas {
         List<String> nonEmptyStrings = filter(strings, nonEmptyStringPredicate);
         log.info("Overview of non-empty strings: ");
         log.info("{}", nonEmptyStrings);
+        // The lazy variant: the filters and the map are only evaluated when the view is used.
+        LazyView<Integer> digits = lazyFilter(strings, nonEmptyStringPredicate)
+                .filter((String string) -> Character.isDigit(string.charAt(0)))
+                .map(Integer::valueOf);
+        log.info("Number of digits: {}, first digit: {}", digits.size(), digits.first().orElse(null));
 
         // Working with Consumer<T>.
         log.info("Overview of all strings in List 'strings':");
@@ -99,6 +105,14 @@ public class Lambdas {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Lazy alternative for filter(): no copy is made. Further filters and maps can be chained on the result,
+     * and size() or first() do not need a copy either.
+     */
+    public static <T> LazyView<T> lazyFilter(List<T> list, Predicate<T> predicate) {
+        return LazyView.of(list).filter(predicate);
+    }
+
     public static <T> void printList(List<T> list, Consumer<T> consumer) {
         list.stream().forEach(consumer);
     }
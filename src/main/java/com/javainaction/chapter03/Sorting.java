@@ -2,6 +2,11 @@ package com.javainaction.chapter03;
 
 import com.javainaction.entities.Apple;
 import com.javainaction.interfaces.NoInputAction;
+import com.javainaction.inventory.SortedViews;
+import com.javainaction.utilities.IntComposition;
+import com.javainaction.utilities.PackedComparator;
+import com.javainaction.utilities.RadixSort;
+import com.javainaction.utilities.TopK;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
@@ -24,11 +29,11 @@ public class Sorting {
          * Most of the code is available in chapter01.FilteringApples.
          * Especially look again at the use of lambda (Predicate) expresions.
          */
-        List<Apple> inventory = Arrays.asList(new Apple(155, "orange")
-                , new Apple(80, "green")
-                , new Apple(155, "green")
-                , new Apple(120, "red")
-                , new Apple(100, "brown")
+        List<Apple> inventory = Arrays.asList(Apple.of(155, "orange")
+                , Apple.of(80, "green")
+                , Apple.of(155, "green")
+                , Apple.of(120, "red")
+                , Apple.of(100, "brown")
                 );
 
         List<String> characterStrings = Arrays.asList("a", "b", "A", "B");
@@ -100,6 +105,11 @@ public class Sorting {
         List<Apple> inventorySortedByWeight = new ArrayList<>(inventory);
         inventorySortedByWeight.sort(comparingByWeight);
         log.info("{}", inventorySortedByWeight);
+        // The same stable order without comparisons (and without unboxing the weights in every comparison).
+        log.info("Overview of the apple inventory, radix sorted ascending by weight:");
+        List<Apple> inventoryRadixSortedByWeight = new ArrayList<>(inventory);
+        RadixSort.sortByInt(inventoryRadixSortedByWeight, Apple::getWeight);
+        log.info("{}", inventoryRadixSortedByWeight);
         log.info("Overview of the apple inventory, sorted descending by weight:");
         // Now using the static method Comparator.comparing in combination with the reversed sorting.
         inventorySortedByWeight.sort(comparing(Apple::getWeight).reversed());
@@ -108,6 +118,22 @@ public class Sorting {
         log.info("Sorting by weight and then by color using Comparator chaining.");
         inventorySortedByWeight.sort(comparing(Apple::getWeight).reversed().thenComparing(Apple::getColor));
         log.info("{}", inventorySortedByWeight);
+        // The same chain, compiled into one packed long per apple (weight descending, then the rank of the color).
+        log.info("Sorting by weight and then by color using a packed comparator chain.");
+        List<Apple> inventoryPackedSorted = new ArrayList<>(inventory);
+        PackedComparator.<Apple>byInt(Apple::getWeight).reversed().thenByString(Apple::getColor).sort(inventoryPackedSorted);
+        log.info("{}", inventoryPackedSorted);
+        // When the inventory changes, a SortedViews keeps both orderings up to date: no copy and no sort again.
+        SortedViews<Apple> sortedInventory = SortedViews.ofApples(inventory);
+        try (SortedViews<Apple>.Snapshot before = sortedInventory.snapshot()) {
+            sortedInventory.add(Apple.of(130, "yellow"));
+            log.info("Sorted by weight and then by color before adding an apple: {}", before.toList("heaviest"));
+            log.info("Sorted by weight and then by color after adding an apple: {}", sortedInventory.toList("heaviest"));
+        }
+        // Only the heaviest apples are needed: a top-k collector does not sort (or copy) the whole inventory.
+        log.info("The two heaviest apples, by color for equal weights:");
+        log.info("{}", inventory.stream()
+                .collect(TopK.smallest(2, comparing(Apple::getWeight).reversed().thenComparing(Apple::getColor))));
 
         /**
          * ± 3.8.3. Composing Functions
@@ -122,6 +148,14 @@ public class Sorting {
         Function<Integer, Integer> j = f.compose(g);
         result = j.apply(2);
         log.info("Result after compose = {}", result);
+        // The same without boxing: x + 1 and x * 2 are folded into one step.
+        IntComposition intH = IntComposition.add(1).thenMultiply(2);
+        log.info("Result after primitive andThen = {} ({})", intH.applyAsInt(2), intH);
+        IntComposition intJ = IntComposition.add(1).compose(IntComposition.multiply(2));
+        log.info("Result after primitive compose = {} ({})", intJ.applyAsInt(2), intJ);
+        int[] values = {1, 2, 3};
+        intH.applyTo(values);
+        log.info("Primitive andThen applied to [1, 2, 3] = {}", Arrays.toString(values));
 
 
     }
@@ -1,6 +1,8 @@
 package com.javainaction.chapter04;
 
 import com.javainaction.entities.Dish;
+import com.javainaction.utilities.RadixSort;
+import com.javainaction.utilities.TopK;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.*;
@@ -18,8 +20,14 @@ public class StreamBasic {
         log.info("Determine names of dishes with < 400 calories in descending order of the amount of calories using Java 8.");
         getLowCaloricDishNamesInJava8(Dish.menu).stream().forEach( System.out::println);
 
+        log.info("The same dishes radix sorted on their calories, without a Comparator.");
+        getLowCaloricDishNamesRadixSorted(Dish.menu).stream().forEach( (String dishName) -> log.info("{}", dishName));
+
         log.info("Determine the first three names of dishes with > 300 calories using Java 8.");
         getFirstThreeHighCaloricDishNames(Dish.menu).stream().forEach( (String dishName) -> log.info("{}", dishName));
+
+        log.info("Determine the names of the three dishes with the fewest calories, without sorting all dishes.");
+        getLowestCaloricDishNames(Dish.menu, 3).stream().forEach( (String dishName) -> log.info("{}", dishName));
     }
 
     /**
@@ -58,6 +66,40 @@ public class StreamBasic {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Same result as getLowCaloricDishNamesInJava8, but the dishes are radix sorted on their int calories
+     * (RadixSort, stable like sorted()) instead of compared with Comparator.comparing(Dish::getCalories),
+     * which unboxes the calories in every comparison.
+     *
+     * @param dishes
+     * @return
+     */
+    public static List<String> getLowCaloricDishNamesRadixSorted(List<Dish> dishes) {
+        List<Dish> lowCaloricDishes = dishes.stream()
+                .filter( (Dish dish ) -> dish.getCalories() < 400)
+                .collect(Collectors.toCollection(ArrayList::new));
+        RadixSort.sortByInt(lowCaloricDishes, Dish::getCalories);
+        return lowCaloricDishes.stream()
+                .map(Dish::getName)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * The names of the k dishes with the fewest calories, in ascending order of calories.
+     * Same result as sorted(...).limit(k), but only k dishes are kept and there is no full sort.
+     *
+     * @param dishes
+     * @param k
+     * @return
+     */
+    public static List<String> getLowestCaloricDishNames(List<Dish> dishes, int k) {
+        return dishes.stream()
+                .collect(TopK.smallestByKey(k, Dish::getCalories))
+                .stream()
+                .map(Dish::getName)
+                .collect(Collectors.toList());
+    }
+
     /**
      * Select the first three names of dishes with more than 300 calories.
      *
@@ -1,6 +1,7 @@
 package com.javainaction.chapter05;
 
 import com.javainaction.entities.Dish;
+import com.javainaction.utilities.IntComposition;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.Arrays;
@@ -35,6 +36,12 @@ public class Par04Reducing {
         log.info("sum = {}", sum);
         int multiplication = numbers.stream().reduce(1, multiply);
         log.info("multiplication = {}", multiplication);
+        // Without boxing: the int values are reduced directly.
+        int[] intNumbers = {1, 2, 3, 4, 5};
+        log.info("sum = {}", IntComposition.identity().reduce(intNumbers, 0, IntComposition.SUM));
+        log.info("multiplication = {}", IntComposition.identity().reduce(intNumbers, 1, IntComposition.PRODUCT));
+        // The sum of x * 2 + 1 is folded into sum(x) * 2 + n.
+        log.info("sum of 2x + 1 = {}", IntComposition.multiply(2).thenAdd(1).reduce(intNumbers, 0, IntComposition.SUM));
 
         // Method reference can also be used:
         // The first element of List numbers is used as initial value.
@@ -2,19 +2,47 @@ package com.javainaction.chapter05;
 
 import com.javainaction.entities.TradeTransaction;
 import com.javainaction.entities.Trader;
+import com.javainaction.fileprocessing.ExternalSort;
+import com.javainaction.interfaces.RecordCodec;
+import com.javainaction.utilities.RadixSort;
+import com.javainaction.utilities.TopK;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 public class Par05PuttingIntoPractice {
 
-    public static void main(String... args) {
-        Trader raoul = new Trader("Raoul", "Cambridge");
-        Trader mario = new Trader("Mario","Milan");
-        Trader alan = new Trader("Alan","Cambridge");
-        Trader brian = new Trader("Brian","Cambridge");
+    /**
+     * Binary encoding of a transaction for the runs of an ExternalSort: the trader as two strings, year and value as ints.
+     */
+    static final RecordCodec<TradeTransaction> TRANSACTION_CODEC = new RecordCodec<TradeTransaction>() {
+        @Override
+        public void write(DataOutput out, TradeTransaction transaction) throws IOException {
+            out.writeUTF(transaction.getTrader().getName());
+            out.writeUTF(transaction.getTrader().getCity());
+            out.writeInt(transaction.getYear());
+            out.writeInt(transaction.getValue());
+        }
+
+        @Override
+        public TradeTransaction read(DataInput in) throws IOException {
+            // The traders are read again and again: Trader.of shares the strings.
+            Trader trader = Trader.of(in.readUTF(), in.readUTF());
+            return new TradeTransaction(trader, in.readInt(), in.readInt());
+        }
+    };
+
+    public static void main(String... args) throws IOException {
+        Trader raoul = Trader.of("Raoul", "Cambridge");
+        Trader mario = Trader.of("Mario","Milan");
+        Trader alan = Trader.of("Alan","Cambridge");
+        Trader brian = Trader.of("Brian","Cambridge");
 
         List<TradeTransaction> transactions = Arrays.asList(
                 new TradeTransaction(brian, 2011, 300),
@@ -32,6 +60,13 @@ public class Par05PuttingIntoPractice {
                 .sorted(Comparator.comparing( (transaction1) -> transaction1.getValue()))
                 .collect(Collectors.toList());
         tranactions2011.forEach( (TradeTransaction transaction) -> log.info("TradeTransaction: {}", transaction.toString()));
+        // The same (stable) order with a radix sort on the int value: no comparisons and no unboxing.
+        log.info("The transactions in 2011 radix sorted ascending by value.");
+        List<TradeTransaction> transactions2011RadixSorted = transactions.stream()
+                .filter( (TradeTransaction transaction) -> transaction.getYear() == 2011 )
+                .collect(Collectors.toCollection(ArrayList::new));
+        RadixSort.sortByInt(transactions2011RadixSorted, TradeTransaction::getValue);
+        transactions2011RadixSorted.forEach( (TradeTransaction transaction) -> log.info("TradeTransaction: {}", transaction.toString()));
 
         // 2. What are all the unique cities where the traders work?
         log.info("2. What are all the unique cities where the traders work?");
@@ -120,5 +155,21 @@ public class Par05PuttingIntoPractice {
                 .min(Comparator.comparing(Integer::intValue));
         log.info("Minimum value of all transactions: {}", minValue.orElse(0));
 
+        // Not just the extreme but the top k: a bounded heap instead of sorting all transactions.
+        log.info("9. Find the three transactions with the highest value.");
+        transactions.stream()
+                .collect(TopK.largestByKey(3, TradeTransaction::getValue))
+                .forEach( (TradeTransaction transaction) -> log.info("TradeTransaction: {}", transaction.toString()));
+
+        // For a file of transactions that does not fit in memory: sort in runs on disk and merge them.
+        // The memory budget is tiny here, to get more than one run.
+        log.info("10. Sort all transactions ascending by value with an external sort.");
+        try (Stream<TradeTransaction> sorted = ExternalSort.byLongKey(TradeTransaction::getValue, TRANSACTION_CODEC)
+                .withMemoryBudget(256)
+                .withFanIn(2)
+                .sort(transactions.stream())) {
+            sorted.forEach( (TradeTransaction transaction) -> log.info("TradeTransaction: {}", transaction.toString()));
+        }
+
     }
 }
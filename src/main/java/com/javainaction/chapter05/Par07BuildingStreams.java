@@ -1,6 +1,11 @@
 package com.javainaction.chapter05;
 
 import com.javainaction.chapter03.ExecuteAround;
+import com.javainaction.fileprocessing.ByteSlice;
+import com.javainaction.fileprocessing.CompressedInput;
+import com.javainaction.fileprocessing.MappedLineSource;
+import com.javainaction.utilities.HyperLogLog;
+import com.javainaction.utilities.WordCardinality;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.BufferedReader;
@@ -47,6 +52,24 @@ public class Par07BuildingStreams {
                 .count();
         System.out.println("There are " + uniqueWords + " unique words in data.txt");
 
+        // distinct() keeps the encounter order in one LinkedHashSet. For a count the order is irrelevant:
+        // WordCardinality collects the words unordered, exact or approximated by a HyperLogLog sketch.
+        uniqueWords = lines.parallelStream()
+                .flatMap( (String line) -> Arrays.stream(line.split(" ")))
+                .collect(WordCardinality.exact());
+        log.info("Exact number of unique words in data.txt: {}", uniqueWords);
+        uniqueWords = lines.parallelStream()
+                .flatMap( (String line) -> Arrays.stream(line.split(" ")))
+                .collect(WordCardinality.approximate());
+        log.info("Approximate number of unique words in data.txt: {}", uniqueWords);
+
+        // Without String.split() and without decoding: the words are hashed straight from the bytes of the mapped file.
+        HyperLogLog sketch = new HyperLogLog();
+        try (MappedLineSource lineSource = new MappedLineSource(ExecuteAround.resourcePath(dataFile))) {
+            lineSource.forEachToken( (ByteSlice word) -> sketch.addHash(word.hash64()));
+        }
+        log.info("Approximate number of unique words in data.txt: {}", sketch.estimate());
+
         // Stream.iterate(T seed, UnaryOperator<T> f)
         // Interface UnaryOperator<T> with T - the type of the operand and result of the operator
         Stream.iterate(0, n -> n + 2)
@@ -57,7 +80,7 @@ public class Par07BuildingStreams {
     // The old-fashioned way. But it works.
     // That is: find a file in the project based on a relative path.
     public static List<String> processFile(String dataFile) throws IOException {
-        InputStream inputStream = ExecuteAround.class.getClassLoader().getResourceAsStream(dataFile);
+        InputStream inputStream = CompressedInput.decompressIfNeeded(ExecuteAround.class.getClassLoader().getResourceAsStream(dataFile));
         List<String> lines = new ArrayList<>();
         try( BufferedReader bufferedReader = new BufferedReader( new InputStreamReader(inputStream))) {
             lines.addAll(bufferedReader.lines().collect(Collectors.toList()));
@@ -0,0 +1,87 @@
+package com.javainaction.columnar;
+
+import com.javainaction.enums.ColumnType;
+
+import java.time.LocalDate;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Definition of one column of a ColumnarSchema: its name, its type and how to get the value from an entity.
+ * Create columns with the static factory methods, e.g. Column.ofInt("calories", Dish::getCalories).
+ * Null values are not supported.
+ */
+public final class Column<T> {
+
+    private final String name;
+    private final ColumnType type;
+    // INT, LONG, BOOLEAN and DATE values are extracted as long.
+    private final ToLongFunction<T> longExtractor;
+    private final ToDoubleFunction<T> doubleExtractor;
+    // STRING and ENUM values are extracted as String (the name of the enum constant).
+    private final Function<T, String> stringExtractor;
+
+    private Column(String name, ColumnType type, ToLongFunction<T> longExtractor,
+                   ToDoubleFunction<T> doubleExtractor, Function<T, String> stringExtractor) {
+        this.name = name;
+        this.type = type;
+        this.longExtractor = longExtractor;
+        this.doubleExtractor = doubleExtractor;
+        this.stringExtractor = stringExtractor;
+    }
+
+    public static <T> Column<T> ofInt(String name, ToIntFunction<T> extractor) {
+        return new Column<>(name, ColumnType.INT, extractor::applyAsInt, null, null);
+    }
+
+    public static <T> Column<T> ofLong(String name, ToLongFunction<T> extractor) {
+        return new Column<>(name, ColumnType.LONG, extractor, null, null);
+    }
+
+    public static <T> Column<T> ofDouble(String name, ToDoubleFunction<T> extractor) {
+        return new Column<>(name, ColumnType.DOUBLE, null, extractor, null);
+    }
+
+    public static <T> Column<T> ofBoolean(String name, Predicate<T> extractor) {
+        return new Column<>(name, ColumnType.BOOLEAN, (T t) -> extractor.test(t) ? 1 : 0, null, null);
+    }
+
+    public static <T> Column<T> ofDate(String name, Function<T, LocalDate> extractor) {
+        return new Column<>(name, ColumnType.DATE, (T t) -> extractor.apply(t).toEpochDay(), null, null);
+    }
+
+    public static <T> Column<T> ofString(String name, Function<T, String> extractor) {
+        return new Column<>(name, ColumnType.STRING, null, null, extractor);
+    }
+
+    public static <T, E extends Enum<E>> Column<T> ofEnum(String name, Function<T, E> extractor) {
+        return new Column<>(name, ColumnType.ENUM, null, null, (T t) -> extractor.apply(t).name());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public ColumnType getType() {
+        return type;
+    }
+
+    long longValue(T t) {
+        return longExtractor.applyAsLong(t);
+    }
+
+    double doubleValue(T t) {
+        return doubleExtractor.applyAsDouble(t);
+    }
+
+    String stringValue(T t) {
+        String value = stringExtractor.apply(t);
+        if (value == null) {
+            throw new IllegalArgumentException("Column " + name + ": null values are not supported");
+        }
+        return value;
+    }
+}
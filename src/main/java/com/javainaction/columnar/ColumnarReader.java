@@ -0,0 +1,376 @@
+package com.javainaction.columnar;
+
+import com.javainaction.enums.ColumnType;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads a columnar snapshot written by ColumnarWriter.
+ * <p>
+ * Only the footer is read when the file is opened. A column is only read when it is asked for,
+ * so a query that needs two columns of a ten column file reads two columns.
+ * The select methods use the min/max statistics of the blocks: blocks that cannot contain a match are not read.
+ * A ColumnarReader is not thread safe.
+ */
+public class ColumnarReader implements Closeable {
+
+    private final FileChannel channel;
+    private final int rowCount;
+    private final int blockSize;
+    private final int blockCount;
+    private final Map<String, ColumnInfo> columns = new LinkedHashMap<>();
+
+    public ColumnarReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            DataInputStream header = new DataInputStream(new ByteArrayInputStream(read(0, 8).array()));
+            if (header.readInt() != ColumnarWriter.MAGIC) {
+                throw new IOException(path + " is not a columnar snapshot");
+            }
+            int version = header.readInt();
+            if (version != ColumnarWriter.VERSION) {
+                throw new IOException(path + " has unsupported version " + version);
+            }
+            long footerOffset = read(channel.size() - 8, 8).getLong();
+            ByteBuffer footerBytes = read(footerOffset, (int) (channel.size() - 8 - footerOffset));
+            DataInputStream footer = new DataInputStream(new ByteArrayInputStream(footerBytes.array()));
+            rowCount = footer.readInt();
+            blockSize = footer.readInt();
+            blockCount = (rowCount + blockSize - 1) / blockSize;
+            int columnCount = footer.readInt();
+            for (int c = 0; c < columnCount; c++) {
+                String name = footer.readUTF();
+                ColumnType type = ColumnType.values()[footer.readByte()];
+                long offset = footer.readLong();
+                long[] minimums = new long[blockCount];
+                long[] maximums = new long[blockCount];
+                for (int b = 0; b < blockCount; b++) {
+                    minimums[b] = footer.readLong();
+                    maximums[b] = footer.readLong();
+                }
+                columns.put(name, new ColumnInfo(name, type, offset, minimums, maximums));
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public Set<String> getColumnNames() {
+        return Collections.unmodifiableSet(columns.keySet());
+    }
+
+    public ColumnType getType(String column) {
+        return info(column).type;
+    }
+
+    /**
+     * Returns the values of an INT column, the epoch days of a DATE column or the codes of a STRING or ENUM column.
+     */
+    public int[] readInts(String column) throws IOException {
+        ColumnInfo info = info(column, ColumnType.INT, ColumnType.DATE, ColumnType.STRING, ColumnType.ENUM);
+        int[] values = new int[rowCount];
+        for (int b = 0; b < blockCount; b++) {
+            readBlock(info, b).asIntBuffer().get(values, b * blockSize, blockLength(b));
+        }
+        return values;
+    }
+
+    public long[] readLongs(String column) throws IOException {
+        ColumnInfo info = info(column, ColumnType.LONG);
+        long[] values = new long[rowCount];
+        for (int b = 0; b < blockCount; b++) {
+            readBlock(info, b).asLongBuffer().get(values, b * blockSize, blockLength(b));
+        }
+        return values;
+    }
+
+    public double[] readDoubles(String column) throws IOException {
+        ColumnInfo info = info(column, ColumnType.DOUBLE);
+        double[] values = new double[rowCount];
+        for (int b = 0; b < blockCount; b++) {
+            readBlock(info, b).asDoubleBuffer().get(values, b * blockSize, blockLength(b));
+        }
+        return values;
+    }
+
+    public boolean[] readBooleans(String column) throws IOException {
+        ColumnInfo info = info(column, ColumnType.BOOLEAN);
+        boolean[] values = new boolean[rowCount];
+        for (int b = 0; b < blockCount; b++) {
+            ByteBuffer block = readBlock(info, b);
+            for (int i = 0; i < blockLength(b); i++) {
+                values[b * blockSize + i] = block.get(i) != 0;
+            }
+        }
+        return values;
+    }
+
+    public LocalDate[] readDates(String column) throws IOException {
+        info(column, ColumnType.DATE);
+        int[] epochDays = readInts(column);
+        LocalDate[] values = new LocalDate[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            values[i] = LocalDate.ofEpochDay(epochDays[i]);
+        }
+        return values;
+    }
+
+    /**
+     * Returns the values of a STRING column or the names of the constants of an ENUM column.
+     * Equal values are the same String instance (the dictionary entry).
+     */
+    public String[] readStrings(String column) throws IOException {
+        String[] dictionary = getDictionary(column);
+        int[] codes = readInts(column);
+        String[] values = new String[rowCount];
+        for (int i = 0; i < rowCount; i++) {
+            values[i] = dictionary[codes[i]];
+        }
+        return values;
+    }
+
+    public <E extends Enum<E>> List<E> readEnums(String column, Class<E> enumClass) throws IOException {
+        String[] dictionary = getDictionary(column);
+        List<E> constants = new ArrayList<>(dictionary.length);
+        for (String name : dictionary) {
+            constants.add(Enum.valueOf(enumClass, name));
+        }
+        int[] codes = readInts(column);
+        List<E> values = new ArrayList<>(rowCount);
+        for (int code : codes) {
+            values.add(constants.get(code));
+        }
+        return values;
+    }
+
+    /**
+     * Returns the sorted distinct values of a STRING or ENUM column; the code of a value is its index.
+     */
+    public String[] getDictionary(String column) throws IOException {
+        ColumnInfo info = info(column, ColumnType.STRING, ColumnType.ENUM);
+        if (info.dictionary == null) {
+            ByteBuffer sizes = read(info.offset, 8);
+            int count = sizes.getInt();
+            int length = sizes.getInt();
+            ByteBuffer values = read(info.offset + 8, length);
+            String[] dictionary = new String[count];
+            for (int i = 0; i < count; i++) {
+                int valueLength = values.getInt();
+                dictionary[i] = new String(values.array(), values.position(), valueLength, StandardCharsets.UTF_8);
+                values.position(values.position() + valueLength);
+            }
+            info.dictionary = dictionary;
+            info.dataOffset = info.offset + 8 + length;
+        }
+        return info.dictionary;
+    }
+
+    /**
+     * Returns the indexes of the rows with minimum <= value <= maximum, in ascending order.
+     * For INT, LONG, BOOLEAN (0/1), DATE (epoch day) and the codes of STRING and ENUM columns.
+     */
+    public int[] select(String column, long minimum, long maximum) throws IOException {
+        ColumnInfo info = info(column);
+        if (info.type == ColumnType.DOUBLE) {
+            throw new IllegalArgumentException("Column " + column + " is a DOUBLE column");
+        }
+        RowIndexes rows = new RowIndexes();
+        for (int b = 0; b < blockCount; b++) {
+            if (info.maximums[b] < minimum || info.minimums[b] > maximum) {
+                continue;
+            }
+            ByteBuffer block = readBlock(info, b);
+            for (int i = 0; i < blockLength(b); i++) {
+                long value;
+                switch (info.type) {
+                    case LONG:
+                        value = block.getLong(i * 8);
+                        break;
+                    case BOOLEAN:
+                        value = block.get(i);
+                        break;
+                    default:
+                        value = block.getInt(i * 4);
+                        break;
+                }
+                if (value >= minimum && value <= maximum) {
+                    rows.add(b * blockSize + i);
+                }
+            }
+        }
+        return rows.toArray();
+    }
+
+    public int[] select(String column, double minimum, double maximum) throws IOException {
+        ColumnInfo info = info(column, ColumnType.DOUBLE);
+        RowIndexes rows = new RowIndexes();
+        for (int b = 0; b < blockCount; b++) {
+            if (Double.longBitsToDouble(info.maximums[b]) < minimum || Double.longBitsToDouble(info.minimums[b]) > maximum) {
+                continue;
+            }
+            ByteBuffer block = readBlock(info, b);
+            for (int i = 0; i < blockLength(b); i++) {
+                double value = block.getDouble(i * 8);
+                if (value >= minimum && value <= maximum) {
+                    rows.add(b * blockSize + i);
+                }
+            }
+        }
+        return rows.toArray();
+    }
+
+    public int[] select(String column, LocalDate from, LocalDate to) throws IOException {
+        info(column, ColumnType.DATE);
+        return select(column, from.toEpochDay(), to.toEpochDay());
+    }
+
+    /**
+     * Returns the indexes of the rows of a STRING or ENUM column that are equal to value.
+     * The value is looked up in the sorted dictionary, after that only int codes are compared.
+     */
+    public int[] selectEquals(String column, String value) throws IOException {
+        int code = Arrays.binarySearch(getDictionary(column), value);
+        return code < 0 ? new int[0] : select(column, code, code);
+    }
+
+    /**
+     * Reads complete entities. Only the columns of the schema are read.
+     */
+    public <T> List<T> readAll(ColumnarSchema<T> schema) throws IOException {
+        Map<String, Object> loaded = new HashMap<>();
+        for (Column<T> column : schema.getColumns()) {
+            String name = column.getName();
+            switch (info(name).type) {
+                case INT:
+                    loaded.put(name, readInts(name));
+                    break;
+                case LONG:
+                    loaded.put(name, readLongs(name));
+                    break;
+                case DOUBLE:
+                    loaded.put(name, readDoubles(name));
+                    break;
+                case BOOLEAN:
+                    loaded.put(name, readBooleans(name));
+                    break;
+                case DATE:
+                    loaded.put(name, readDates(name));
+                    break;
+                default:
+                    loaded.put(name, readStrings(name));
+                    break;
+            }
+        }
+        ColumnarRow row = new ColumnarRow(loaded);
+        List<T> result = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            row.setIndex(i);
+            result.add(schema.create(row));
+        }
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int blockLength(int block) {
+        return Math.min(blockSize, rowCount - block * blockSize);
+    }
+
+    private ByteBuffer readBlock(ColumnInfo info, int block) throws IOException {
+        if (info.type.isDictionaryEncoded()) {
+            // Reads the dictionary (once) to find where the values start.
+            getDictionary(info.name);
+        }
+        int width = info.type.getWidth();
+        return read(info.dataOffset + (long) block * blockSize * width, blockLength(block) * width);
+    }
+
+    private ByteBuffer read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of columnar snapshot");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private ColumnInfo info(String column, ColumnType... allowedTypes) {
+        ColumnInfo info = columns.get(column);
+        if (info == null) {
+            throw new IllegalArgumentException("Unknown column " + column);
+        }
+        if (allowedTypes.length > 0 && !Arrays.asList(allowedTypes).contains(info.type)) {
+            throw new IllegalArgumentException("Column " + column + " has type " + info.type);
+        }
+        return info;
+    }
+
+    private static final class ColumnInfo {
+
+        private final String name;
+        private final ColumnType type;
+        private final long offset;
+        private final long[] minimums;
+        private final long[] maximums;
+        // Start of the values; for dictionary encoded columns only known after reading the dictionary.
+        private long dataOffset;
+        private String[] dictionary;
+
+        private ColumnInfo(String name, ColumnType type, long offset, long[] minimums, long[] maximums) {
+            this.name = name;
+            this.type = type;
+            this.offset = offset;
+            this.minimums = minimums;
+            this.maximums = maximums;
+            this.dataOffset = offset;
+        }
+    }
+
+    /**
+     * Growable int array for the selected row indexes.
+     */
+    private static final class RowIndexes {
+
+        private int[] indexes = new int[64];
+        private int size;
+
+        private void add(int index) {
+            if (size == indexes.length) {
+                indexes = Arrays.copyOf(indexes, size * 2);
+            }
+            indexes[size++] = index;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(indexes, size);
+        }
+    }
+}
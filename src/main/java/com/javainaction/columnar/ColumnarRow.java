@@ -0,0 +1,58 @@
+package com.javainaction.columnar;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * One row of a columnar snapshot while entities are constructed by ColumnarSchema's factory.
+ * The instance is reused for every row; the values are looked up in the loaded column arrays.
+ */
+public final class ColumnarRow {
+
+    private final Map<String, Object> columns;
+    private int index;
+
+    ColumnarRow(Map<String, Object> columns) {
+        this.columns = columns;
+    }
+
+    void setIndex(int index) {
+        this.index = index;
+    }
+
+    public int getInt(String column) {
+        return ((int[]) column(column))[index];
+    }
+
+    public long getLong(String column) {
+        return ((long[]) column(column))[index];
+    }
+
+    public double getDouble(String column) {
+        return ((double[]) column(column))[index];
+    }
+
+    public boolean getBoolean(String column) {
+        return ((boolean[]) column(column))[index];
+    }
+
+    public LocalDate getDate(String column) {
+        return ((LocalDate[]) column(column))[index];
+    }
+
+    public String getString(String column) {
+        return ((String[]) column(column))[index];
+    }
+
+    public <E extends Enum<E>> E getEnum(String column, Class<E> enumClass) {
+        return Enum.valueOf(enumClass, getString(column));
+    }
+
+    private Object column(String column) {
+        Object values = columns.get(column);
+        if (values == null) {
+            throw new IllegalArgumentException("Column " + column + " has not been loaded");
+        }
+        return values;
+    }
+}
@@ -0,0 +1,36 @@
+package com.javainaction.columnar;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The columns of an entity in a columnar snapshot, and how to construct the entity again from a row.
+ * The factory is only needed to read complete entities; a query that reads single columns does not use it.
+ */
+public final class ColumnarSchema<T> {
+
+    private final List<Column<T>> columns;
+    private final Function<ColumnarRow, T> factory;
+
+    public ColumnarSchema(List<Column<T>> columns, Function<ColumnarRow, T> factory) {
+        List<String> names = new ArrayList<>();
+        for (Column<T> column : columns) {
+            if (names.contains(column.getName())) {
+                throw new IllegalArgumentException("Duplicate column " + column.getName());
+            }
+            names.add(column.getName());
+        }
+        this.columns = Collections.unmodifiableList(new ArrayList<>(columns));
+        this.factory = factory;
+    }
+
+    public List<Column<T>> getColumns() {
+        return columns;
+    }
+
+    T create(ColumnarRow row) {
+        return factory.apply(row);
+    }
+}
@@ -0,0 +1,159 @@
+package com.javainaction.columnar;
+
+import com.javainaction.enums.ColumnType;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Writes a list of entities as a columnar snapshot.
+ * <p>
+ * Layout of the file (all numbers big-endian):
+ * - header: magic, version
+ * - per column: [dictionary: count, byte length, per value its UTF-8 byte length and bytes] followed by the values of all rows,
+ *   fixed width per value (see ColumnType). The values are grouped in blocks of blockSize rows.
+ * - footer: row count, block size and per column its name, type, offset, and min/max of every block.
+ * - the offset of the footer (last 8 bytes).
+ * <p>
+ * STRING and ENUM columns are dictionary encoded: the dictionary holds every distinct value once, sorted,
+ * and the rows hold int codes. Because the dictionary is sorted, the order of the codes is the order of the values,
+ * so the min/max statistics of a block are also useful for strings.
+ * The values are written with an int length, not with writeUTF(): that one fails above 65535 bytes.
+ * The footer lets a reader find every column directly and skip blocks of which the min/max cannot match.
+ */
+public class ColumnarWriter {
+
+    static final int MAGIC = 0x434f4c53; // "COLS"
+    static final int VERSION = 2;
+    public static final int DEFAULT_BLOCK_SIZE = 4096;
+
+    private ColumnarWriter() {
+    }
+
+    public static <T> void write(Path path, ColumnarSchema<T> schema, List<T> rows) throws IOException {
+        write(path, schema, rows, DEFAULT_BLOCK_SIZE);
+    }
+
+    public static <T> void write(Path path, ColumnarSchema<T> schema, List<T> rows, int blockSize) throws IOException {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize must be positive: " + blockSize);
+        }
+        List<Column<T>> columns = schema.getColumns();
+        int rowCount = rows.size();
+        int blockCount = (rowCount + blockSize - 1) / blockSize;
+        long[] offsets = new long[columns.size()];
+        long[][] minimums = new long[columns.size()][];
+        long[][] maximums = new long[columns.size()][];
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 64 * 1024))) {
+            long position = 0;
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            position += 8;
+
+            for (int c = 0; c < columns.size(); c++) {
+                Column<T> column = columns.get(c);
+                offsets[c] = position;
+                minimums[c] = new long[blockCount];
+                maximums[c] = new long[blockCount];
+                // DataOutputStream.size() is an int; keep the position in a long so files > 2 GB work.
+                position += writeColumn(out, column, rows, blockSize, minimums[c], maximums[c]);
+            }
+
+            long footerOffset = position;
+            out.writeInt(rowCount);
+            out.writeInt(blockSize);
+            out.writeInt(columns.size());
+            for (int c = 0; c < columns.size(); c++) {
+                out.writeUTF(columns.get(c).getName());
+                out.writeByte(columns.get(c).getType().ordinal());
+                out.writeLong(offsets[c]);
+                for (int b = 0; b < blockCount; b++) {
+                    out.writeLong(minimums[c][b]);
+                    out.writeLong(maximums[c][b]);
+                }
+            }
+            out.writeLong(footerOffset);
+        }
+    }
+
+    /**
+     * Writes one column and fills the block statistics. Returns the number of bytes written.
+     * For DOUBLE columns the statistics are stored as Double.doubleToLongBits.
+     */
+    private static <T> long writeColumn(DataOutputStream out, Column<T> column, List<T> rows, int blockSize,
+                                        long[] minimums, long[] maximums) throws IOException {
+        ColumnType type = column.getType();
+        long written = 0;
+        Map<String, Integer> codes = null;
+        if (type.isDictionaryEncoded()) {
+            TreeSet<String> distinct = new TreeSet<>();
+            for (T row : rows) {
+                distinct.add(column.stringValue(row));
+            }
+            codes = new HashMap<>();
+            ByteArrayOutputStream dictionaryBytes = new ByteArrayOutputStream();
+            DataOutputStream dictionary = new DataOutputStream(dictionaryBytes);
+            for (String value : distinct) {
+                codes.put(value, codes.size());
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                dictionary.writeInt(bytes.length);
+                dictionary.write(bytes);
+            }
+            // The byte length lets the reader read the dictionary in one go and find the start of the values.
+            out.writeInt(distinct.size());
+            out.writeInt(dictionaryBytes.size());
+            dictionaryBytes.writeTo(out);
+            written += 8 + dictionaryBytes.size();
+        }
+        Arrays.fill(minimums, Long.MAX_VALUE);
+        Arrays.fill(maximums, Long.MIN_VALUE);
+        double[] doubleMinimums = new double[minimums.length];
+        double[] doubleMaximums = new double[maximums.length];
+        Arrays.fill(doubleMinimums, Double.POSITIVE_INFINITY);
+        Arrays.fill(doubleMaximums, Double.NEGATIVE_INFINITY);
+
+        for (int i = 0; i < rows.size(); i++) {
+            T row = rows.get(i);
+            int block = i / blockSize;
+            if (type == ColumnType.DOUBLE) {
+                double value = column.doubleValue(row);
+                out.writeDouble(value);
+                doubleMinimums[block] = Math.min(doubleMinimums[block], value);
+                doubleMaximums[block] = Math.max(doubleMaximums[block], value);
+                continue;
+            }
+            long value = type.isDictionaryEncoded() ? codes.get(column.stringValue(row)) : column.longValue(row);
+            switch (type) {
+                case LONG:
+                    out.writeLong(value);
+                    break;
+                case BOOLEAN:
+                    out.writeByte((int) value);
+                    break;
+                default:
+                    out.writeInt((int) value);
+                    break;
+            }
+            minimums[block] = Math.min(minimums[block], value);
+            maximums[block] = Math.max(maximums[block], value);
+        }
+        if (type == ColumnType.DOUBLE) {
+            for (int b = 0; b < minimums.length; b++) {
+                minimums[b] = Double.doubleToLongBits(doubleMinimums[b]);
+                maximums[b] = Double.doubleToLongBits(doubleMaximums[b]);
+            }
+        }
+        return written + (long) rows.size() * type.getWidth();
+    }
+}
@@ -0,0 +1,97 @@
+package com.javainaction.columnar;
+
+import com.javainaction.entities.Apple;
+import com.javainaction.entities.Dish;
+import com.javainaction.entities.Person;
+import com.javainaction.entities.TradeTransaction;
+import com.javainaction.entities.Trader;
+import com.javainaction.enums.Sex;
+import com.javainaction.enums.Type;
+import com.javainaction.utilities.StringPool;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The columnar schemas of the entities, with a demonstration of writing and querying a snapshot.
+ */
+@Slf4j
+public class Snapshots {
+
+    public static final ColumnarSchema<Apple> APPLE = new ColumnarSchema<>(
+            Arrays.asList(
+                    Column.ofString("color", Apple::getColor),
+                    Column.ofInt("weight", Apple::getWeight)),
+            (ColumnarRow row) -> Apple.of(row.getInt("weight"), row.getString("color")));
+
+    // Dishes and traders are created with Dish.of and Trader.of: snapshots loaded one after the other share the strings.
+    public static final ColumnarSchema<Dish> DISH = new ColumnarSchema<>(
+            Arrays.asList(
+                    Column.ofString("name", Dish::getName),
+                    Column.ofBoolean("vegetarian", Dish::isVegetarian),
+                    Column.ofInt("calories", Dish::getCalories),
+                    Column.ofEnum("type", Dish::getType)),
+            (ColumnarRow row) -> Dish.of(
+                    row.getString("name"),
+                    row.getBoolean("vegetarian"),
+                    row.getInt("calories"),
+                    row.getEnum("type", Type.class)));
+
+    // The Trader is flattened into two columns; every trader name and city is stored once in the dictionaries.
+    public static final ColumnarSchema<TradeTransaction> TRADE_TRANSACTION = new ColumnarSchema<>(
+            Arrays.asList(
+                    Column.ofString("trader.name", (TradeTransaction transaction) -> transaction.getTrader().getName()),
+                    Column.ofString("trader.city", (TradeTransaction transaction) -> transaction.getTrader().getCity()),
+                    Column.ofInt("year", TradeTransaction::getYear),
+                    Column.ofInt("value", TradeTransaction::getValue)),
+            (ColumnarRow row) -> new TradeTransaction(
+                    Trader.of(row.getString("trader.name"), row.getString("trader.city")),
+                    row.getInt("year"),
+                    row.getInt("value")));
+
+    public static final ColumnarSchema<Person> PERSON = new ColumnarSchema<>(
+            Arrays.asList(
+                    Column.ofString("name", Person::getName),
+                    Column.ofDate("birthday", Person::getBirthday),
+                    Column.ofEnum("gender", Person::getGender),
+                    Column.ofString("emailAddress", Person::getEmailAddress),
+                    Column.ofInt("age", Person::getAge)),
+            (ColumnarRow row) -> {
+                Person person = new Person(
+                        row.getString("name"),
+                        row.getDate("birthday"),
+                        row.getEnum("gender", Sex.class),
+                        row.getString("emailAddress"));
+                // The constructor derives the age from today; restore the age as it was written.
+                person.setAge(row.getInt("age"));
+                return person;
+            });
+
+    public static void main(String... args) throws IOException {
+        Path file = Files.createTempFile("menu", ".cols");
+        try {
+            ColumnarWriter.write(file, DISH, Dish.menu);
+            try (ColumnarReader reader = new ColumnarReader(file)) {
+                log.info("Snapshot with {} dishes and columns {}", reader.getRowCount(), reader.getColumnNames());
+
+                // Only the columns "calories" and "name" are read.
+                int[] lowCaloric = reader.select("calories", 0, 399);
+                String[] names = reader.readStrings("name");
+                for (int row : lowCaloric) {
+                    log.info("Dish with < 400 calories: {}", names[row]);
+                }
+
+                List<Dish> dishes = reader.readAll(DISH);
+                log.info("All dishes read back equal the menu: {}", dishes.equals(Dish.menu));
+                log.info("String pool: {}", StringPool.shared().report());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.javainaction.entities;
 
+import com.javainaction.utilities.StringPool;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
@@ -10,6 +11,13 @@ public class Apple {
     private Integer weight = 0;
     private String color = "";
 
+    /**
+     * Creates an apple with the canonical instance of the color, see StringPool.
+     */
+    public static Apple of(int weight, String color) {
+        return new Apple(weight, StringPool.shared().intern(color));
+    }
+
     public static boolean isGreenApple(Apple apple) {
         return "green".equals(apple.getColor());
     }
@@ -1,6 +1,7 @@
 package com.javainaction.entities;
 
 import com.javainaction.enums.Type;
+import com.javainaction.utilities.StringPool;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
@@ -11,7 +12,7 @@ import static java.util.Arrays.asList;
 
 @Data
 @AllArgsConstructor
-public class Dish {
+public class Dish implements Serializable {
 
     private static final long serialVersionUID = -2348532826532126049L;
 
@@ -20,16 +21,23 @@ public class Dish {
     private final int calories;
     private final Type type;
 
+    /**
+     * Creates a dish with the canonical instance of the name, see StringPool.
+     */
+    public static Dish of(String name, boolean vegetarian, int calories, Type type) {
+        return new Dish(StringPool.shared().intern(name), vegetarian, calories, type);
+    }
+
     public static final List<Dish> menu =
-            Arrays.asList( new Dish("pork", false, 800, Type.MEAT),
-                    new Dish("beef", false, 700, Type.MEAT),
-                    new Dish("chicken", false, 400, Type.MEAT),
-                    new Dish("french fries", true, 530, Type.OTHER),
-                    new Dish("rice", true, 350, Type.OTHER),
-                    new Dish("season fruit", true, 120, Type.OTHER),
-                    new Dish("pizza", true, 550, Type.OTHER),
-                    new Dish("prawns", false, 400, Type.FISH),
-                    new Dish("salmon", false, 450, Type.FISH));
+            Arrays.asList( Dish.of("pork", false, 800, Type.MEAT),
+                    Dish.of("beef", false, 700, Type.MEAT),
+                    Dish.of("chicken", false, 400, Type.MEAT),
+                    Dish.of("french fries", true, 530, Type.OTHER),
+                    Dish.of("rice", true, 350, Type.OTHER),
+                    Dish.of("season fruit", true, 120, Type.OTHER),
+                    Dish.of("pizza", true, 550, Type.OTHER),
+                    Dish.of("prawns", false, 400, Type.FISH),
+                    Dish.of("salmon", false, 450, Type.FISH));
 
     public static final List<Dish> emptyMenu = new ArrayList<>();
 
@@ -1,5 +1,6 @@
 package com.javainaction.entities;
 
+import com.javainaction.utilities.StringPool;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
@@ -8,4 +9,12 @@ import lombok.Data;
 public class Trader {
     private String name;
     private String city;
+
+    /**
+     * Creates a trader with the canonical instances of the name and the city, see StringPool.
+     */
+    public static Trader of(String name, String city) {
+        StringPool pool = StringPool.shared();
+        return new Trader(pool.intern(name), pool.intern(city));
+    }
 }
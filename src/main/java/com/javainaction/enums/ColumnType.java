@@ -0,0 +1,24 @@
+package com.javainaction.enums;
+
+/**
+ * The types of the columns of a columnar snapshot (com.javainaction.columnar).
+ * The width is the number of bytes per value; STRING and ENUM columns store an int code into a dictionary.
+ */
+public enum ColumnType {
+
+    INT(4), LONG(8), DOUBLE(8), BOOLEAN(1), DATE(4), STRING(4), ENUM(4);
+
+    private final int width;
+
+    ColumnType(int width) {
+        this.width = width;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public boolean isDictionaryEncoded() {
+        return this == STRING || this == ENUM;
+    }
+}
@@ -0,0 +1,230 @@
+package com.javainaction.fileprocessing;
+
+import com.javainaction.interfaces.CharChunkProcessor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Processes files with an AsynchronousFileChannel instead of a blocking BufferedReader.
+ * <p>
+ * process() returns immediately with a CompletableFuture; no thread waits for the disk.
+ * The chunks of one file are read one after the other, decoded and pushed to the CharChunkProcessor.
+ * Many files can be processed at the same time: the number of reads in flight over all files is bounded
+ * by maxReadsInFlight, further reads are queued until a read completes.
+ * Cancelling the returned future stops reading the file and closes its channel.
+ */
+public class AsyncFileProcessor {
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    public static final int DEFAULT_MAX_READS_IN_FLIGHT = 16;
+    // The longest UTF-8 character: a smaller buffer could hold an incomplete character and never complete it.
+    public static final int MIN_BUFFER_SIZE = 4;
+
+    private static final Set<OpenOption> READ = Collections.singleton(StandardOpenOption.READ);
+
+    private final int bufferSize;
+    private final Charset charset;
+    // null: the channels use the default thread pool.
+    private final ExecutorService executorService;
+    private final ReadLimiter readLimiter;
+
+    public AsyncFileProcessor() {
+        this(DEFAULT_BUFFER_SIZE, DEFAULT_MAX_READS_IN_FLIGHT, StandardCharsets.UTF_8, null);
+    }
+
+    public AsyncFileProcessor(int bufferSize, int maxReadsInFlight, Charset charset, ExecutorService executorService) {
+        if (bufferSize < MIN_BUFFER_SIZE || maxReadsInFlight <= 0) {
+            throw new IllegalArgumentException("bufferSize must be at least " + MIN_BUFFER_SIZE
+                    + " and maxReadsInFlight must be positive");
+        }
+        this.bufferSize = bufferSize;
+        this.charset = charset;
+        this.executorService = executorService;
+        this.readLimiter = new ReadLimiter(maxReadsInFlight);
+    }
+
+    public <R> CompletableFuture<R> process(Path path, CharChunkProcessor<R> processor) {
+        CompletableFuture<R> result = new CompletableFuture<>();
+        try {
+            AsynchronousFileChannel channel = AsynchronousFileChannel.open(path, READ, executorService);
+            FileReader<R> fileReader = new FileReader<>(channel, processor, result);
+            // Whatever the outcome (including cancel()): close the channel.
+            result.whenComplete((R value, Throwable throwable) -> fileReader.close());
+            fileReader.readNext();
+        } catch (IOException | RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    public int getReadsInFlight() {
+        return readLimiter.inFlight.get();
+    }
+
+    /**
+     * Reads one file, chunk by chunk. The next read is only started when the previous chunk has been processed,
+     * so the processor is never called concurrently.
+     */
+    private final class FileReader<R> implements CompletionHandler<Integer, Void> {
+
+        private final AsynchronousFileChannel channel;
+        private final CharChunkProcessor<R> processor;
+        private final CompletableFuture<R> result;
+        private final ByteBuffer bytes = ByteBuffer.allocateDirect(bufferSize);
+        private final CharBuffer chars;
+        private final CharsetDecoder decoder;
+        private long position;
+
+        private FileReader(AsynchronousFileChannel channel, CharChunkProcessor<R> processor, CompletableFuture<R> result) {
+            this.channel = channel;
+            this.processor = processor;
+            this.result = result;
+            this.decoder = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            // At least a surrogate pair, which the decoder writes at once.
+            this.chars = CharBuffer.allocate(Math.max(2, (int) Math.ceil(bufferSize * (double) decoder.maxCharsPerByte())));
+        }
+
+        private void readNext() {
+            readLimiter.submit(() -> {
+                if (result.isDone()) {
+                    // Cancelled or failed in the meantime: don't start another read.
+                    readLimiter.release();
+                    return;
+                }
+                try {
+                    channel.read(bytes, position, null, this);
+                } catch (RuntimeException e) {
+                    readLimiter.release();
+                    result.completeExceptionally(e);
+                }
+            });
+        }
+
+        @Override
+        public void completed(Integer bytesRead, Void attachment) {
+            readLimiter.release();
+            if (result.isDone()) {
+                return;
+            }
+            try {
+                boolean endOfInput = bytesRead < 0;
+                if (!endOfInput) {
+                    position += bytesRead;
+                }
+                bytes.flip();
+                decodeAndProcess(endOfInput);
+                bytes.compact();
+                if (endOfInput) {
+                    result.complete(processor.getResult());
+                } else {
+                    readNext();
+                }
+            } catch (IOException | RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }
+
+        @Override
+        public void failed(Throwable throwable, Void attachment) {
+            readLimiter.release();
+            result.completeExceptionally(throwable);
+        }
+
+        private void decodeAndProcess(boolean endOfInput) throws IOException {
+            CoderResult coderResult;
+            do {
+                coderResult = decoder.decode(bytes, chars, endOfInput);
+                processChars();
+            } while (coderResult.isOverflow());
+            // On underflow an incomplete multi-byte character stays in the buffer for the next read.
+            if (endOfInput) {
+                // A flushed decoder cannot decode any more: on overflow only flush again.
+                while (decoder.flush(chars).isOverflow()) {
+                    processChars();
+                }
+                processChars();
+            }
+        }
+
+        private void processChars() throws IOException {
+            chars.flip();
+            if (chars.hasRemaining()) {
+                processor.process(chars);
+            }
+            chars.clear();
+        }
+
+        private void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // Nothing sensible to do: the result is already known.
+            }
+        }
+    }
+
+    /**
+     * Bounds the number of reads in flight without blocking a thread: reads above the bound are queued
+     * and started by release().
+     */
+    private static final class ReadLimiter {
+
+        private final int maxInFlight;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final Queue<Runnable> waiting = new ConcurrentLinkedQueue<>();
+
+        private ReadLimiter(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+        }
+
+        private void submit(Runnable read) {
+            waiting.add(read);
+            drain();
+        }
+
+        private void release() {
+            inFlight.decrementAndGet();
+            drain();
+        }
+
+        private void drain() {
+            while (!waiting.isEmpty()) {
+                int current = inFlight.get();
+                if (current >= maxInFlight) {
+                    return;
+                }
+                if (!inFlight.compareAndSet(current, current + 1)) {
+                    continue;
+                }
+                Runnable read = waiting.poll();
+                if (read == null) {
+                    // Another thread took it; give the permit back.
+                    inFlight.decrementAndGet();
+                } else {
+                    read.run();
+                }
+            }
+        }
+    }
+}
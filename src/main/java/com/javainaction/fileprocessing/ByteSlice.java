@@ -0,0 +1,119 @@
+package com.javainaction.fileprocessing;
+
+import com.javainaction.utilities.HyperLogLog;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A view on length bytes of an array, starting at offset; the bytes are UTF-8 encoded text.
+ * <p>
+ * ByteTokenizer reuses one instance for every token, so a ByteSlice received by a ByteSliceConsumer
+ * must not be stored: use toString() or copy() to keep it.
+ * As long as the consumer only looks at the bytes (length, byteAt, hash64, contentEquals) no object is created.
+ */
+public final class ByteSlice {
+
+    private byte[] array;
+    private int offset;
+    private int length;
+    private boolean ascii;
+
+    public ByteSlice() {
+        this(new byte[0], 0, 0, true);
+    }
+
+    private ByteSlice(byte[] array, int offset, int length, boolean ascii) {
+        set(array, offset, length, ascii);
+    }
+
+    void set(byte[] array, int offset, int length, boolean ascii) {
+        this.array = array;
+        this.offset = offset;
+        this.length = length;
+        this.ascii = ascii;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public byte byteAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+        }
+        return array[offset + index];
+    }
+
+    /**
+     * Returns true when all bytes are 7 bit ASCII, i.e. every byte is one char.
+     */
+    public boolean isAscii() {
+        return ascii;
+    }
+
+    /**
+     * 64-bit FNV-1a hash over the bytes, mixed like HyperLogLog.hash().
+     * For an ASCII token the result is equal to HyperLogLog.hash(toString()).
+     */
+    public long hash64() {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = offset; i < offset + length; i++) {
+            hash ^= array[i] & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return HyperLogLog.mix(hash);
+    }
+
+    public boolean contentEquals(ByteSlice other) {
+        if (other.length != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (array[offset + i] != other.array[other.offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares with an ASCII String without creating one; always false for a non-ASCII token.
+     */
+    public boolean contentEquals(String ascii) {
+        if (!this.ascii || ascii.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (array[offset + i] != ascii.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a ByteSlice with its own copy of the bytes, which is safe to keep (e.g. as key in a HashMap).
+     */
+    public ByteSlice copy() {
+        return new ByteSlice(Arrays.copyOfRange(array, offset, offset + length), 0, length, ascii);
+    }
+
+    /**
+     * Materializes the token as a String. Only here the bytes are decoded.
+     */
+    @Override
+    public String toString() {
+        return new String(array, offset, length, ascii ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof ByteSlice && contentEquals((ByteSlice) o));
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) hash64();
+    }
+}
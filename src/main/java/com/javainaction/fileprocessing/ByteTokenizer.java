@@ -0,0 +1,143 @@
+package com.javainaction.fileprocessing;
+
+import com.javainaction.interfaces.ByteSliceConsumer;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Splits UTF-8 (or ASCII) text into words without decoding it and without creating objects per word.
+ * <p>
+ * line.split(" ") decodes the whole line into a String and then creates a String[] and a String per word.
+ * This tokenizer scans the raw bytes for ASCII whitespace and hands every word to the consumer as a
+ * reused ByteSlice. This is safe for UTF-8: bytes of a multi-byte character are never smaller than 0x80.
+ * Note the difference with split(" "): consecutive whitespace does not produce empty words.
+ * <p>
+ * The input can be given in pieces (feed), e.g. the chunks of a MappedLineSource or the buffers of an
+ * asynchronous read. A word that is cut off at the end of a piece is kept and completed by the next piece;
+ * finish() emits the last word.
+ * A ByteTokenizer is not thread safe: use one instance per thread.
+ */
+public class ByteTokenizer {
+
+    private static final boolean[] WHITESPACE = new boolean[256];
+
+    static {
+        WHITESPACE[' '] = true;
+        WHITESPACE['\t'] = true;
+        WHITESPACE['\n'] = true;
+        WHITESPACE['\r'] = true;
+        WHITESPACE['\f'] = true;
+        WHITESPACE[0x0B] = true;
+    }
+
+    private static final int SCRATCH_SIZE = 8 * 1024;
+
+    private final ByteSlice token = new ByteSlice();
+    // Holds a word that continues in the next piece of input.
+    private byte[] pending = new byte[64];
+    private int pendingLength;
+    private boolean pendingAscii = true;
+    // Direct buffers (such as mapped files) have no array: they are copied into this array block by block.
+    private byte[] scratch;
+
+    /**
+     * Tokenizes a complete text: bytes[from, to). Returns the number of tokens.
+     */
+    public long tokenize(byte[] bytes, int from, int to, ByteSliceConsumer consumer) {
+        return feed(bytes, from, to, consumer) + finish(consumer);
+    }
+
+    public long tokenize(ByteBuffer buffer, ByteSliceConsumer consumer) {
+        return feed(buffer, consumer) + finish(consumer);
+    }
+
+    /**
+     * Tokenizes the remaining bytes of the buffer, which is only a part of the text. Consumes the buffer.
+     */
+    public long feed(ByteBuffer buffer, ByteSliceConsumer consumer) {
+        long count;
+        if (buffer.hasArray()) {
+            int from = buffer.arrayOffset() + buffer.position();
+            count = feed(buffer.array(), from, from + buffer.remaining(), consumer);
+            buffer.position(buffer.limit());
+        } else {
+            if (scratch == null) {
+                scratch = new byte[SCRATCH_SIZE];
+            }
+            count = 0;
+            while (buffer.hasRemaining()) {
+                int length = Math.min(scratch.length, buffer.remaining());
+                buffer.get(scratch, 0, length);
+                count += feed(scratch, 0, length, consumer);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Tokenizes bytes[from, to), which is only a part of the text.
+     */
+    public long feed(byte[] bytes, int from, int to, ByteSliceConsumer consumer) {
+        long count = 0;
+        int i = from;
+        if (pendingLength > 0) {
+            int start = i;
+            int bits = 0;
+            while (i < to && !WHITESPACE[bytes[i] & 0xff]) {
+                bits |= bytes[i];
+                i++;
+            }
+            appendPending(bytes, start, i - start, bits >= 0);
+            if (i == to) {
+                return 0;
+            }
+            count += finish(consumer);
+        }
+        while (true) {
+            while (i < to && WHITESPACE[bytes[i] & 0xff]) {
+                i++;
+            }
+            if (i == to) {
+                return count;
+            }
+            int start = i;
+            // A byte >= 0x80 is negative in Java; or-ing them shows whether the word is pure ASCII.
+            int bits = 0;
+            while (i < to && !WHITESPACE[bytes[i] & 0xff]) {
+                bits |= bytes[i];
+                i++;
+            }
+            if (i == to) {
+                appendPending(bytes, start, i - start, bits >= 0);
+                return count;
+            }
+            token.set(bytes, start, i - start, bits >= 0);
+            consumer.accept(token);
+            count++;
+        }
+    }
+
+    /**
+     * Emits the word that was cut off at the end of the last piece of input, if any.
+     */
+    public long finish(ByteSliceConsumer consumer) {
+        if (pendingLength == 0) {
+            return 0;
+        }
+        token.set(pending, 0, pendingLength, pendingAscii);
+        pendingLength = 0;
+        pendingAscii = true;
+        consumer.accept(token);
+        return 1;
+    }
+
+    private void appendPending(byte[] bytes, int from, int length, boolean ascii) {
+        if (pendingLength + length > pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(pending.length * 2, pendingLength + length));
+        }
+        System.arraycopy(bytes, from, pending, pendingLength, length);
+        pendingLength += length;
+        pendingAscii &= ascii;
+    }
+}
@@ -0,0 +1,81 @@
+package com.javainaction.fileprocessing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Opens text input that may be gzip compressed, so the line processing does not have to know.
+ * Compression is recognised by the gzip magic bytes, not by the file name.
+ * <p>
+ * - decompressIfNeeded(InputStream): for classpath resources and other streams; decompresses sequentially.
+ * - open(Path): for files; a multi-member gzip file is decompressed in parallel by a ParallelGzipInputStream.
+ */
+public final class CompressedInput {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int THREADS = Runtime.getRuntime().availableProcessors();
+    // Members decompressed ahead of the reader: enough to keep every core busy.
+    private static final int LOOK_AHEAD = 2 * THREADS;
+    // Decompressed members in memory, in total per stream.
+    private static final long MAX_BUFFERED_BYTES = 256L * 1024 * 1024;
+    // The decompression tasks block on file reads: they get their own daemon threads, not the common pool.
+    private static final ExecutorService INFLATERS = Executors.newFixedThreadPool(THREADS, daemonThreads());
+
+    private CompressedInput() {
+    }
+
+    public static InputStream decompressIfNeeded(InputStream inputStream) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(inputStream, BUFFER_SIZE);
+        buffered.mark(4);
+        boolean gzip = startsWithGzipHeader(buffered);
+        buffered.reset();
+        return gzip ? new GZIPInputStream(buffered, BUFFER_SIZE) : buffered;
+    }
+
+    public static InputStream open(Path path) throws IOException {
+        if (!isGzip(path)) {
+            return new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE);
+        }
+        return new ParallelGzipInputStream(path, INFLATERS, LOOK_AHEAD, MAX_BUFFERED_BYTES);
+    }
+
+    public static BufferedReader newBufferedReader(Path path, Charset charset) throws IOException {
+        return new BufferedReader(new InputStreamReader(open(path), charset));
+    }
+
+    public static boolean isGzip(Path path) throws IOException {
+        try (InputStream inputStream = Files.newInputStream(path)) {
+            return startsWithGzipHeader(inputStream);
+        }
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "gzip-inflater-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static boolean startsWithGzipHeader(InputStream inputStream) throws IOException {
+        byte[] magic = new byte[4];
+        int read = 0;
+        int count;
+        while (read < magic.length && (count = inputStream.read(magic, read, magic.length - read)) > 0) {
+            read += count;
+        }
+        return read == magic.length && ParallelGzipInputStream.isHeader(magic[0], magic[1], magic[2], magic[3]);
+    }
+}
@@ -0,0 +1,398 @@
+package com.javainaction.fileprocessing;
+
+import com.javainaction.interfaces.RecordCodec;
+import com.javainaction.utilities.RadixSort;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Sorts a stream of records that does not fit in the heap, for the cases where sorted() or List.sort would need
+ * all records in memory at once.
+ * <p>
+ * The sort has two phases:
+ * - run generation: the records are collected until the memory budget is used (RecordCodec.estimatedSize()),
+ *   sorted in memory and written to a temporary file (a run) with the RecordCodec. The first run may use the whole
+ *   budget; when the records do not fit, it is split in parallelism + 1 runs. From then on up to parallelism runs
+ *   are sorted and written at the same time while the next run is collected, and every run gets
+ *   budget / (parallelism + 1);
+ * - merge: a heap holds the next record of every run and returns the smallest. With more runs than fanIn,
+ *   groups of fanIn runs are first merged into longer runs, so at most fanIn files are open at the same time.
+ * When all records fit in the memory budget nothing is written at all.
+ * <p>
+ * The sort is stable: runs hold consecutive records and equal records are taken from the earliest run first.
+ * With a key extractor (byLongKey) the runs are sorted with RadixSort instead of a comparison sort.
+ * The result is a Stream that has to be closed: closing it closes and deletes the run files.
+ * A read error during the merge is thrown as an UncheckedIOException.
+ */
+@Slf4j
+public class ExternalSort<T> {
+
+    public static final long DEFAULT_MEMORY_BUDGET = 64L * 1024 * 1024;
+    public static final int DEFAULT_FAN_IN = 64;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Comparator<? super T> comparator;
+    private final ToLongFunction<? super T> key;
+    private final RecordCodec<T> codec;
+    private final long memoryBudget;
+    private final int fanIn;
+    private final int parallelism;
+    private final Path tempDirectory;
+
+    private ExternalSort(Comparator<? super T> comparator, ToLongFunction<? super T> key, RecordCodec<T> codec,
+                         long memoryBudget, int fanIn, int parallelism, Path tempDirectory) {
+        if (memoryBudget <= 0) {
+            throw new IllegalArgumentException("memoryBudget must be positive: " + memoryBudget);
+        }
+        if (fanIn < 2) {
+            throw new IllegalArgumentException("fanIn must be at least 2: " + fanIn);
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        this.comparator = comparator;
+        this.key = key;
+        this.codec = codec;
+        this.memoryBudget = memoryBudget;
+        this.fanIn = fanIn;
+        this.parallelism = parallelism;
+        this.tempDirectory = tempDirectory;
+    }
+
+    public static <T> ExternalSort<T> comparing(Comparator<? super T> comparator, RecordCodec<T> codec) {
+        return new ExternalSort<>(comparator, null, codec, DEFAULT_MEMORY_BUDGET, DEFAULT_FAN_IN,
+                Runtime.getRuntime().availableProcessors(), Paths.get(System.getProperty("java.io.tmpdir")));
+    }
+
+    public static <T> ExternalSort<T> byLongKey(ToLongFunction<? super T> key, RecordCodec<T> codec) {
+        return new ExternalSort<>(Comparator.comparingLong(key), key, codec, DEFAULT_MEMORY_BUDGET, DEFAULT_FAN_IN,
+                Runtime.getRuntime().availableProcessors(), Paths.get(System.getProperty("java.io.tmpdir")));
+    }
+
+    public ExternalSort<T> withMemoryBudget(long memoryBudget) {
+        return new ExternalSort<>(comparator, key, codec, memoryBudget, fanIn, parallelism, tempDirectory);
+    }
+
+    public ExternalSort<T> withFanIn(int fanIn) {
+        return new ExternalSort<>(comparator, key, codec, memoryBudget, fanIn, parallelism, tempDirectory);
+    }
+
+    public ExternalSort<T> withParallelism(int parallelism) {
+        return new ExternalSort<>(comparator, key, codec, memoryBudget, fanIn, parallelism, tempDirectory);
+    }
+
+    public ExternalSort<T> withTempDirectory(Path tempDirectory) {
+        return new ExternalSort<>(comparator, key, codec, memoryBudget, fanIn, parallelism, tempDirectory);
+    }
+
+    /**
+     * Sorts records. The records are read completely before this method returns; the merge happens
+     * while the returned Stream is consumed.
+     */
+    public Stream<T> sort(Stream<T> records) throws IOException {
+        List<Path> runs = new ArrayList<>();
+        try {
+            List<T> last = createRuns(records.iterator(), runs);
+            if (runs.isEmpty()) {
+                return last.stream();
+            }
+            log.debug("Merging {} runs with fan-in {}", runs.size(), fanIn);
+            while (runs.size() > fanIn) {
+                runs = mergePass(runs);
+            }
+            return merged(runs);
+        } catch (IOException | RuntimeException e) {
+            delete(runs);
+            throw e;
+        }
+    }
+
+    /**
+     * Splits the records in sorted runs. Returns the records when they all fit in the memory budget (no run written);
+     * otherwise every run is written and added to runs, in the order of the records.
+     */
+    private List<T> createRuns(Iterator<T> records, List<Path> runs) throws IOException {
+        // parallelism runs are sorted and written while the next one is collected.
+        long runBudget = Math.max(1, memoryBudget / (parallelism + 1));
+        ExecutorService executor = null;
+        List<Future<Path>> pending = new ArrayList<>();
+        try {
+            List<T> run = new ArrayList<>();
+            long runSize = 0;
+            // Until the executor is started (the first run) the whole budget is used.
+            long limit = memoryBudget;
+            while (records.hasNext()) {
+                T record = records.next();
+                run.add(record);
+                runSize += codec.estimatedSize(record);
+                if (runSize < limit || !records.hasNext()) {
+                    continue;
+                }
+                if (executor == null) {
+                    executor = Executors.newFixedThreadPool(parallelism);
+                    limit = runBudget;
+                    // The records do not fit: the first run becomes parallelism + 1 runs of (about) runBudget.
+                    // All but the last one are written, the last one is collected further.
+                    int partSize = (run.size() + parallelism) / (parallelism + 1);
+                    List<T> first = run;
+                    for (int from = 0; from + partSize < first.size(); from += partSize) {
+                        List<T> part = new ArrayList<>(first.subList(from, from + partSize));
+                        pending.add(executor.submit(() -> writeRun(sorted(part))));
+                    }
+                    run = new ArrayList<>(first.subList(pending.size() * partSize, first.size()));
+                    runSize = 0;
+                    for (T collected : run) {
+                        runSize += codec.estimatedSize(collected);
+                    }
+                    if (runSize < limit) {
+                        continue;
+                    }
+                }
+                // Wait for the oldest run when parallelism runs are in progress: that keeps the memory in budget.
+                if (pending.size() == parallelism) {
+                    runs.add(await(pending.remove(0)));
+                }
+                List<T> full = run;
+                pending.add(executor.submit(() -> writeRun(sorted(full))));
+                run = new ArrayList<>();
+                runSize = 0;
+            }
+            if (pending.isEmpty()) {
+                return sorted(run);
+            }
+            for (Future<Path> future : pending) {
+                runs.add(await(future));
+            }
+            pending.clear();
+            runs.add(writeRun(sorted(run)));
+            return null;
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+                // Runs that were still in progress after an error are deleted once they are written.
+                for (Future<Path> future : pending) {
+                    try {
+                        Files.deleteIfExists(await(future));
+                    } catch (IOException | RuntimeException e) {
+                        log.debug("Cleaning up a run failed", e);
+                    }
+                }
+            }
+        }
+    }
+
+    private static Path await(Future<Path> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing a run", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Writing a run failed", e.getCause());
+        }
+    }
+
+    private List<T> sorted(List<T> run) {
+        if (key != null) {
+            RadixSort.sortByLong(run, key);
+        } else {
+            run.sort(comparator);
+        }
+        return run;
+    }
+
+    // Run file: the number of records, followed by the records.
+    private Path writeRun(List<T> run) throws IOException {
+        Path file = Files.createTempFile(tempDirectory, "run-", ".bin");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE))) {
+            out.writeLong(run.size());
+            for (T record : run) {
+                codec.write(out, record);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        return file;
+    }
+
+    private List<Path> mergePass(List<Path> runs) throws IOException {
+        List<Path> merged = new ArrayList<>();
+        try {
+            for (int from = 0; from < runs.size(); from += fanIn) {
+                List<Path> group = runs.subList(from, Math.min(runs.size(), from + fanIn));
+                if (group.size() == 1) {
+                    merged.add(group.get(0));
+                    continue;
+                }
+                Path file = Files.createTempFile(tempDirectory, "run-", ".bin");
+                merged.add(file);
+                // Closing the merge deletes the runs of the group.
+                try (Merge merge = new Merge(group);
+                     DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE))) {
+                    out.writeLong(merge.remaining);
+                    while (merge.hasNext()) {
+                        codec.write(out, merge.next());
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            delete(merged);
+            throw e;
+        }
+        return merged;
+    }
+
+    private Stream<T> merged(List<Path> runs) throws IOException {
+        Merge merge = new Merge(runs);
+        return StreamSupport.stream(Spliterators.spliterator(merge, merge.remaining, Spliterator.ORDERED), false)
+                .onClose(() -> {
+                    try {
+                        merge.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    private static void delete(List<Path> files) {
+        for (Path file : files) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.debug("Deleting run {} failed", file, e);
+            }
+        }
+    }
+
+    /**
+     * k-way merge of run files: a heap of the runs, ordered by their current record and (for stability) their index.
+     * close() closes and deletes the run files.
+     */
+    private final class Merge implements Iterator<T>, Closeable {
+
+        private final List<Path> files;
+        private final List<RunReader> readers = new ArrayList<>();
+        private final PriorityQueue<RunReader> heap;
+        private long remaining;
+
+        private Merge(List<Path> files) throws IOException {
+            this.files = new ArrayList<>(files);
+            heap = new PriorityQueue<>(Math.max(1, files.size()), (RunReader first, RunReader second) -> {
+                int result = comparator.compare(first.current, second.current);
+                return result != 0 ? result : Integer.compare(first.index, second.index);
+            });
+            try {
+                for (Path file : files) {
+                    RunReader reader = new RunReader(file, readers.size());
+                    readers.add(reader);
+                    remaining += reader.remaining;
+                    if (reader.advance()) {
+                        heap.add(reader);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heap.isEmpty();
+        }
+
+        @Override
+        public T next() {
+            RunReader reader = heap.poll();
+            if (reader == null) {
+                throw new NoSuchElementException();
+            }
+            T record = reader.current;
+            try {
+                if (reader.advance()) {
+                    heap.add(reader);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            remaining--;
+            return record;
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException failure = null;
+            for (RunReader reader : readers) {
+                try {
+                    reader.in.close();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            readers.clear();
+            heap.clear();
+            delete(files);
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    private final class RunReader {
+
+        private final DataInputStream in;
+        private final int index;
+        private long remaining;
+        private T current;
+
+        private RunReader(Path file, int index) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE));
+            this.index = index;
+            try {
+                this.remaining = in.readLong();
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+        }
+
+        private boolean advance() throws IOException {
+            if (remaining == 0) {
+                current = null;
+                return false;
+            }
+            remaining--;
+            current = codec.read(in);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.javainaction.fileprocessing;
+
+import com.javainaction.interfaces.LineListener;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Follows a growing (append-only) file, like "tail -f".
+ * <p>
+ * Instead of processing the whole file again, the follower remembers the byte offset up to which it has read
+ * and only reads what was appended since. Every complete line is passed to the LineListener;
+ * an incomplete last line is kept until its line terminator arrives.
+ * <p>
+ * - Truncation: when the file becomes shorter than the offset it is read again from the start (onTruncated).
+ * - Rotation: when the file is replaced by a new file, the rest of the old file is read first and then
+ *   the new file from the start (onRotated). A rotation is recognised by the file key (inode) of the file.
+ * <p>
+ * poll() reads what is new right now; follow() keeps polling on WatchService events until stop() is called.
+ * getOffset() is the end of the last line passed to the listener; it can be saved to resume later
+ * with the constructor that takes a start offset. An incomplete last line is then read again.
+ */
+public class FileFollower implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path path;
+    private final Charset charset;
+    private final LineListener listener;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    private FileChannel channel;
+    private Object fileKey;
+    // Up to where the file has been read.
+    private long position;
+    // The end of the last line passed to the listener.
+    private long offset;
+    // Bytes of a line of which the terminator has not been read yet.
+    private byte[] partialLine = new byte[256];
+    private int partialLineLength;
+    private volatile boolean running;
+
+    public FileFollower(Path path, Charset charset, LineListener listener) {
+        this(path, charset, 0, listener);
+    }
+
+    public FileFollower(Path path, Charset charset, long startOffset, LineListener listener) {
+        this.path = path.toAbsolutePath();
+        this.charset = charset;
+        this.position = startOffset;
+        this.offset = startOffset;
+        this.listener = listener;
+    }
+
+    /**
+     * Reads the lines appended since the previous call. Returns the number of lines passed to the listener.
+     */
+    public synchronized long poll() throws IOException {
+        long lines = 0;
+        Object currentFileKey = currentFileKey();
+        if (channel != null && !Objects.equals(currentFileKey, fileKey)) {
+            // Rotated (or removed): finish the old file before switching.
+            lines += readAppended();
+            lines += flushPartialLine();
+            closeChannel();
+            position = 0;
+            offset = 0;
+            listener.onRotated();
+        }
+        if (currentFileKey == null) {
+            // No file at the moment, e.g. between the rotation and the creation of the new file.
+            return lines;
+        }
+        if (channel == null) {
+            try {
+                channel = FileChannel.open(path, StandardOpenOption.READ);
+            } catch (NoSuchFileException e) {
+                return lines;
+            }
+            fileKey = currentFileKey;
+        }
+        if (channel.size() < position) {
+            position = 0;
+            offset = 0;
+            partialLineLength = 0;
+            listener.onTruncated();
+        }
+        lines += readAppended();
+        return lines;
+    }
+
+    /**
+     * Blocks and processes every change of the file until stop() is called.
+     * The WatchService of the directory signals changes; every maxWaitMillis the file is polled anyway,
+     * because some file systems (e.g. network shares) don't deliver events reliably.
+     */
+    public void follow(long maxWaitMillis) throws IOException, InterruptedException {
+        Path directory = path.getParent();
+        try (WatchService watchService = directory.getFileSystem().newWatchService()) {
+            directory.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY,
+                    StandardWatchEventKinds.ENTRY_DELETE);
+            running = true;
+            poll();
+            while (running) {
+                WatchKey watchKey = watchService.poll(maxWaitMillis, TimeUnit.MILLISECONDS);
+                if (watchKey != null) {
+                    boolean relevant = false;
+                    for (WatchEvent<?> event : watchKey.pollEvents()) {
+                        relevant |= event.kind() == StandardWatchEventKinds.OVERFLOW
+                                || path.getFileName().equals(event.context());
+                    }
+                    watchKey.reset();
+                    if (!relevant) {
+                        continue;
+                    }
+                }
+                poll();
+            }
+        }
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    public synchronized long getOffset() {
+        return offset;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        stop();
+        closeChannel();
+    }
+
+    private Object currentFileKey() throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            // Not every file system has file keys; then rotation can only be recognised as truncation.
+            return attributes.fileKey() != null ? attributes.fileKey() : path;
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private long readAppended() throws IOException {
+        long lines = 0;
+        int read;
+        while ((read = channel.read(buffer, position)) > 0) {
+            buffer.flip();
+            lines += emitLines();
+            buffer.clear();
+            position += read;
+        }
+        return lines;
+    }
+
+    private long emitLines() {
+        long lines = 0;
+        byte[] bytes = buffer.array();
+        int start = 0;
+        int limit = buffer.limit();
+        for (int i = 0; i < limit; i++) {
+            if (bytes[i] == '\n') {
+                appendPartialLine(bytes, start, i - start);
+                emit();
+                lines++;
+                start = i + 1;
+                offset = position + start;
+            }
+        }
+        appendPartialLine(bytes, start, limit - start);
+        return lines;
+    }
+
+    private long flushPartialLine() {
+        if (partialLineLength == 0) {
+            return 0;
+        }
+        emit();
+        offset = position;
+        return 1;
+    }
+
+    private void emit() {
+        int length = partialLineLength;
+        if (length > 0 && partialLine[length - 1] == '\r') {
+            length--;
+        }
+        String line = new String(partialLine, 0, length, charset);
+        partialLineLength = 0;
+        listener.onLine(line);
+    }
+
+    private void appendPartialLine(byte[] bytes, int from, int length) {
+        if (partialLineLength + length > partialLine.length) {
+            partialLine = Arrays.copyOf(partialLine, Math.max(2 * partialLine.length, partialLineLength + length));
+        }
+        System.arraycopy(bytes, from, partialLine, partialLineLength, length);
+        partialLineLength += length;
+    }
+
+    private void closeChannel() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+            fileKey = null;
+        }
+    }
+}
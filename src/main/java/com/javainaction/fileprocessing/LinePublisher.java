@@ -0,0 +1,153 @@
+package com.javainaction.fileprocessing;
+
+import com.javainaction.interfaces.BufferedReaderOpener;
+import com.javainaction.interfaces.Flow;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Publishes the lines of a file, or records parsed from them, with backpressure.
+ * <p>
+ * processFile3() reads all lines into an ArrayList before anyone can use them, so the heap grows with the file.
+ * This Publisher only reads a line when the Subscriber has requested one: a slow Subscriber throttles the reader
+ * and at most one line is in memory per subscription.
+ * <p>
+ * Every subscription opens its own reader, so the Publisher can be subscribed several times.
+ * The reading and the onNext() calls happen on the given Executor, never on the thread that calls request().
+ */
+public class LinePublisher<T> implements Flow.Publisher<T> {
+
+    private final BufferedReaderOpener opener;
+    private final Function<String, T> parser;
+    private final Executor executor;
+
+    public LinePublisher(BufferedReaderOpener opener, Function<String, T> parser, Executor executor) {
+        this.opener = opener;
+        this.parser = parser;
+        this.executor = executor;
+    }
+
+    public static LinePublisher<String> lines(Path path, Charset charset) {
+        return new LinePublisher<>(() -> Files.newBufferedReader(path, charset), Function.identity(), ForkJoinPool.commonPool());
+    }
+
+    public static <T> LinePublisher<T> records(Path path, Charset charset, Function<String, T> parser) {
+        return new LinePublisher<>(() -> Files.newBufferedReader(path, charset), parser, ForkJoinPool.commonPool());
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber");
+        }
+        subscriber.onSubscribe(new LineSubscription(subscriber));
+    }
+
+    private final class LineSubscription implements Flow.Subscription, Runnable {
+
+        private final Flow.Subscriber<? super T> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        // Work-in-progress counter: guarantees that only one thread at a time runs drain().
+        private final AtomicInteger workInProgress = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile Throwable invalidRequest;
+        // Only used by the thread running drain().
+        private BufferedReader reader;
+        private boolean done;
+
+        private LineSubscription(Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("Reactive Streams rule 3.9: request must be positive: " + n);
+            } else {
+                demand.getAndUpdate((long current) -> current + n < 0 ? Long.MAX_VALUE : current + n);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (workInProgress.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                drain();
+                missed = workInProgress.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drain() {
+            if (done) {
+                return;
+            }
+            if (cancelled) {
+                terminate();
+                return;
+            }
+            if (invalidRequest != null) {
+                terminate();
+                subscriber.onError(invalidRequest);
+                return;
+            }
+            try {
+                if (reader == null) {
+                    reader = opener.open();
+                }
+                while (demand.get() > 0) {
+                    if (cancelled) {
+                        terminate();
+                        return;
+                    }
+                    String line = reader.readLine();
+                    if (line == null) {
+                        terminate();
+                        subscriber.onComplete();
+                        return;
+                    }
+                    T item = parser.apply(line);
+                    if (demand.get() != Long.MAX_VALUE) {
+                        demand.decrementAndGet();
+                    }
+                    subscriber.onNext(item);
+                }
+            } catch (IOException | RuntimeException e) {
+                terminate();
+                subscriber.onError(e);
+            }
+        }
+
+        private void terminate() {
+            done = true;
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    // The subscription is over; there is nobody left to tell.
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.javainaction.fileprocessing;
+
+import com.javainaction.interfaces.ByteSliceConsumer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A line source backed by FileChannel.map().
+ * <p>
+ * In contrast with BufferedReader.lines() the lines are not decoded one char at a time from a single reader:
+ * the file is mapped into memory and the Spliterator splits on newline boundaries,
+ * so a parallel stream really uses all cores.
+ * A MappedByteBuffer can hold at most 2 GB, therefore larger files are mapped as a chain of chunks.
+ * Lines crossing the border of two chunks are copied into a small array before decoding.
+ * <p>
+ * Note: Java 8 offers no way to unmap a MappedByteBuffer; the mappings are released by the garbage collector.
+ * close() only closes the channel.
+ */
+public class MappedLineSource implements Closeable {
+
+    // 1 GB; must be a power of two so a position can be translated by shifting and masking.
+    static final int DEFAULT_CHUNK_SHIFT = 30;
+
+    // Don't split below this number of bytes: the overhead of a split would exceed the gain.
+    private static final long MINIMUM_SPLIT_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] chunks;
+    private final long size;
+    private final int chunkShift;
+    private final long chunkMask;
+    private final Charset charset;
+
+    public MappedLineSource(Path path) throws IOException {
+        this(path, StandardCharsets.UTF_8);
+    }
+
+    public MappedLineSource(Path path, Charset charset) throws IOException {
+        this(path, charset, DEFAULT_CHUNK_SHIFT);
+    }
+
+    // Package-private so that tests can force small chunks.
+    MappedLineSource(Path path, Charset charset, int chunkShift) throws IOException {
+        if (chunkShift < 1 || chunkShift > 30) {
+            throw new IllegalArgumentException("chunkShift must be between 1 and 30: " + chunkShift);
+        }
+        this.charset = charset;
+        this.chunkShift = chunkShift;
+        this.chunkMask = (1L << chunkShift) - 1;
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            this.size = channel.size();
+            long chunkSize = 1L << chunkShift;
+            int numberOfChunks = (int) ((size + chunkSize - 1) >>> chunkShift);
+            this.chunks = new MappedByteBuffer[numberOfChunks];
+            for (int i = 0; i < numberOfChunks; i++) {
+                long position = (long) i << chunkShift;
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(chunkSize, size - position));
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public Spliterator<CharSequence> spliterator() {
+        return new LineSpliterator(0, size);
+    }
+
+    public Stream<CharSequence> lines() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    public Stream<CharSequence> parallelLines() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    /**
+     * Feeds all words of the file to the consumer, straight from the mapped bytes: no line is decoded.
+     * Returns the number of words. See ByteTokenizer.
+     */
+    public long forEachToken(ByteSliceConsumer consumer) {
+        ByteTokenizer tokenizer = new ByteTokenizer();
+        long count = 0;
+        for (MappedByteBuffer chunk : chunks) {
+            count += tokenizer.feed(chunk.duplicate(), consumer);
+        }
+        return count + tokenizer.finish(consumer);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private byte byteAt(long position) {
+        return chunks[(int) (position >>> chunkShift)].get((int) (position & chunkMask));
+    }
+
+    /**
+     * Returns the position of the first '\n' in [from, to), or -1 when there is none.
+     * Scans chunk by chunk so that the inner loop only uses int offsets.
+     */
+    private long indexOfNewline(long from, long to) {
+        long position = from;
+        while (position < to) {
+            ByteBuffer chunk = chunks[(int) (position >>> chunkShift)];
+            int offset = (int) (position & chunkMask);
+            int limit = (int) Math.min(chunk.limit(), offset + (to - position));
+            for (int i = offset; i < limit; i++) {
+                if (chunk.get(i) == '\n') {
+                    return position + (i - offset);
+                }
+            }
+            position += limit - offset;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the bytes in [from, to) as a ByteBuffer.
+     * Only a line crossing the border of two chunks is copied, all other lines are views on the mapping.
+     */
+    private ByteBuffer slice(long from, long to) {
+        int firstChunk = (int) (from >>> chunkShift);
+        int length = (int) (to - from);
+        if (length == 0 || firstChunk == (int) ((to - 1) >>> chunkShift)) {
+            ByteBuffer view = chunks[firstChunk].duplicate();
+            int offset = (int) (from & chunkMask);
+            view.limit(offset + length).position(offset);
+            return view;
+        }
+        byte[] copy = new byte[length];
+        for (int i = 0; i < length; i++) {
+            copy[i] = byteAt(from + i);
+        }
+        return ByteBuffer.wrap(copy);
+    }
+
+    private final class LineSpliterator implements Spliterator<CharSequence> {
+
+        private long position;
+        private final long end;
+        // A CharsetDecoder is not thread safe; every spliterator gets its own one when it starts decoding.
+        private CharsetDecoder decoder;
+
+        // Invariant: position is 0 or directly follows a '\n', so this spliterator always starts on a line.
+        private LineSpliterator(long position, long end) {
+            this.position = position;
+            this.end = end;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super CharSequence> action) {
+            if (position >= end) {
+                return false;
+            }
+            long newline = indexOfNewline(position, end);
+            long lineEnd = newline < 0 ? end : newline;
+            long next = newline < 0 ? end : newline + 1;
+            // Like BufferedReader: accept "\r\n" as line terminator as well.
+            if (lineEnd > position && byteAt(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+            CharSequence line = decode(slice(position, lineEnd));
+            position = next;
+            action.accept(line);
+            return true;
+        }
+
+        @Override
+        public Spliterator<CharSequence> trySplit() {
+            long remaining = end - position;
+            if (remaining < MINIMUM_SPLIT_SIZE) {
+                return null;
+            }
+            long newline = indexOfNewline(position + remaining / 2, end);
+            if (newline < 0 || newline + 1 >= end) {
+                return null;
+            }
+            LineSpliterator prefix = new LineSpliterator(position, newline + 1);
+            position = newline + 1;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            // The number of lines is not known without scanning; the number of bytes is an upper bound.
+            return end - position;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | NONNULL | IMMUTABLE;
+        }
+
+        private CharSequence decode(ByteBuffer bytes) {
+            if (decoder == null) {
+                decoder = charset.newDecoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            }
+            try {
+                return decoder.decode(bytes);
+            } catch (CharacterCodingException e) {
+                // Cannot happen with CodingErrorAction.REPLACE.
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,402 @@
+package com.javainaction.fileprocessing;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+/**
+ * Decompresses a multi-member (blocked) gzip file with several threads and returns the bytes in file order.
+ * <p>
+ * A gzip file may consist of several members, each one a complete gzip stream (e.g. written by "pigz" or bgzip,
+ * or files that were concatenated). Members can be decompressed independently, but their borders are only known
+ * after decompressing. Therefore every position where a gzip header starts is a candidate; candidates are
+ * decompressed speculatively in parallel, and a candidate is only used when it is where the previous member ended.
+ * A false candidate (header bytes inside compressed data) fails the CRC check or is simply not used.
+ * <p>
+ * The file is scanned for candidates while it is read, just ahead of the members that are being decompressed,
+ * so there is no extra pass over the file before the first byte is returned.
+ * <p>
+ * At most lookAhead members are decompressed ahead of the reader. maxBufferedBytes is the total memory for
+ * decompressed members: every member in the window, and the member that is being read, gets an equal share.
+ * A member larger than its share, or anything that is not a valid member, makes the stream continue
+ * sequentially with a GZIPInputStream from that position. So does the last member of the file, as there is
+ * nothing left to decompress in parallel with it; a single-member file is therefore simply read sequentially.
+ * <p>
+ * The executor should be dedicated to decompression: the tasks read the file, so they block.
+ */
+public class ParallelGzipInputStream extends InputStream {
+
+    private static final int READ_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final long size;
+    private final Executor executor;
+    private final int lookAhead;
+    private final int maxMemberSize;
+    private final Deque<PendingMember> window = new ArrayDeque<>();
+
+    // Candidates found by the scan that are not in the window yet.
+    private final Deque<Long> candidates = new ArrayDeque<>();
+    private final ByteBuffer scanBuffer = ByteBuffer.allocate(READ_SIZE + 3);
+    private long scanPosition;
+    private long lastCandidate;
+
+    private long chainPosition;
+    private byte[] current = new byte[0];
+    private int currentPosition;
+    private InputStream sequentialRest;
+
+    public ParallelGzipInputStream(Path path, Executor executor, int lookAhead, long maxBufferedBytes) throws IOException {
+        if (lookAhead <= 0 || maxBufferedBytes <= 0) {
+            throw new IllegalArgumentException("lookAhead and maxBufferedBytes must be positive");
+        }
+        this.executor = executor;
+        this.lookAhead = lookAhead;
+        this.maxMemberSize = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, maxBufferedBytes / (lookAhead + 1)));
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            this.size = channel.size();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        while (currentPosition == current.length) {
+            if (sequentialRest != null) {
+                return sequentialRest.read(bytes, offset, length);
+            }
+            if (!nextMember()) {
+                return -1;
+            }
+        }
+        int count = Math.min(length, current.length - currentPosition);
+        System.arraycopy(current, currentPosition, bytes, offset, count);
+        currentPosition += count;
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        cancelWindow();
+        if (sequentialRest != null) {
+            sequentialRest.close();
+        }
+        channel.close();
+    }
+
+    /**
+     * Moves to the member that starts at chainPosition. Returns false at the end of the file.
+     */
+    private boolean nextMember() throws IOException {
+        if (chainPosition >= size) {
+            return false;
+        }
+        fillWindow();
+        // Candidates before the chain position were false candidates inside the previous member.
+        while (!window.isEmpty() && window.peekFirst().start < chainPosition) {
+            window.pollFirst().cancel();
+            fillWindow();
+        }
+        PendingMember pending = window.peekFirst();
+        Member member = null;
+        if (pending != null && pending.start == chainPosition) {
+            window.pollFirst();
+            fillWindow();
+            if (window.isEmpty() && isScanned() && !pending.member.isDone()) {
+                // The last member: streaming it is faster than waiting until it is decompressed completely.
+                pending.cancel();
+            } else {
+                member = join(pending.member);
+            }
+        }
+        if (member == null) {
+            // No valid member here: let GZIPInputStream handle the rest (and report any real corruption).
+            switchToSequential();
+            return true;
+        }
+        current = member.data;
+        currentPosition = 0;
+        chainPosition = member.end;
+        return true;
+    }
+
+    private void fillWindow() throws IOException {
+        while (window.size() < lookAhead) {
+            Long start = nextCandidate();
+            if (start == null) {
+                return;
+            }
+            if (start >= chainPosition) {
+                PendingMember pending = new PendingMember(start);
+                pending.member = CompletableFuture.supplyAsync(() -> inflateMember(pending), executor);
+                window.addLast(pending);
+            }
+        }
+    }
+
+    /**
+     * The next candidate, scanning the file further when needed. Returns null at the end of the file, or when
+     * the scan is too far ahead: after more than 2 * maxMemberSize bytes without a candidate, the member at the
+     * last candidate is too large to decompress in parallel anyway (deflate hardly expands any data).
+     * The scan continues once the reader has moved on.
+     */
+    private Long nextCandidate() throws IOException {
+        while (candidates.isEmpty()) {
+            long limit = Math.max(chainPosition, lastCandidate) + 2L * maxMemberSize;
+            if (isScanned() || scanPosition > limit) {
+                return null;
+            }
+            scan();
+        }
+        return candidates.pollFirst();
+    }
+
+    private boolean isScanned() {
+        return scanPosition >= size;
+    }
+
+    // Scans the next READ_SIZE bytes for gzip headers.
+    private void scan() throws IOException {
+        scanBuffer.clear();
+        // Read 3 bytes more than we scan, so a header across the border is seen in the next round.
+        while (scanBuffer.hasRemaining()) {
+            if (channel.read(scanBuffer, scanPosition + scanBuffer.position()) < 0) {
+                break;
+            }
+        }
+        int limit = scanBuffer.position();
+        int scanned = limit < scanBuffer.capacity() ? limit : READ_SIZE;
+        for (int i = 0; i + 3 < limit && i < scanned; i++) {
+            if (isHeader(scanBuffer.get(i), scanBuffer.get(i + 1), scanBuffer.get(i + 2), scanBuffer.get(i + 3))) {
+                lastCandidate = scanPosition + i;
+                candidates.addLast(lastCandidate);
+            }
+        }
+        scanPosition += scanned;
+    }
+
+    private void switchToSequential() throws IOException {
+        cancelWindow();
+        candidates.clear();
+        channel.position(chainPosition);
+        sequentialRest = new GZIPInputStream(Channels.newInputStream(channel), READ_SIZE);
+    }
+
+    private void cancelWindow() {
+        for (PendingMember pending : window) {
+            pending.cancel();
+        }
+        window.clear();
+    }
+
+    private static Member join(CompletableFuture<Member> member) throws IOException {
+        try {
+            return member.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while decompressing", e);
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Decompresses the member starting at start. Returns null when there is no valid member at that position.
+     */
+    private Member inflateMember(PendingMember pending) {
+        Inflater inflater = new Inflater(true);
+        try {
+            ChannelCursor cursor = new ChannelCursor(channel, pending.start, size);
+            if (!skipHeader(cursor)) {
+                return null;
+            }
+            CRC32 crc = new CRC32();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] output = new byte[READ_SIZE];
+            while (!inflater.finished()) {
+                // A cancelled member (a false candidate, or the stream was closed) frees its memory right away.
+                if (pending.cancelled) {
+                    return null;
+                }
+                if (inflater.needsInput()) {
+                    ByteBuffer input = cursor.next(READ_SIZE);
+                    if (input == null) {
+                        return null;
+                    }
+                    inflater.setInput(input.array(), 0, input.limit());
+                }
+                int inflated = inflater.inflate(output);
+                if (inflated == 0 && inflater.needsDictionary()) {
+                    return null;
+                }
+                crc.update(output, 0, inflated);
+                out.write(output, 0, inflated);
+                if (out.size() > maxMemberSize) {
+                    return null;
+                }
+            }
+            cursor.unread(inflater.getRemaining());
+            ByteBuffer trailer = cursor.next(8);
+            if (trailer == null || trailer.limit() < 8) {
+                return null;
+            }
+            long expectedCrc = Integer.toUnsignedLong(Integer.reverseBytes(trailer.getInt(0)));
+            int expectedSize = Integer.reverseBytes(trailer.getInt(4));
+            if (expectedCrc != crc.getValue() || expectedSize != (int) inflater.getBytesWritten()) {
+                return null;
+            }
+            return new Member(cursor.position(), out.toByteArray());
+        } catch (IOException | DataFormatException e) {
+            return null;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Skips the gzip header (RFC 1952), including the optional fields. Returns false when it is no valid header.
+     */
+    private static boolean skipHeader(ChannelCursor cursor) throws IOException {
+        ByteBuffer header = cursor.next(10);
+        if (header == null || header.limit() < 10 || !isHeader(header.get(0), header.get(1), header.get(2), header.get(3))) {
+            return false;
+        }
+        int flags = header.get(3);
+        if ((flags & 0x04) != 0) {
+            ByteBuffer extraLength = cursor.next(2);
+            if (extraLength == null || extraLength.limit() < 2) {
+                return false;
+            }
+            int length = (extraLength.get(0) & 0xff) | (extraLength.get(1) & 0xff) << 8;
+            cursor.skip(length);
+        }
+        if ((flags & 0x08) != 0 && !cursor.skipZeroTerminated()) {
+            return false;
+        }
+        if ((flags & 0x10) != 0 && !cursor.skipZeroTerminated()) {
+            return false;
+        }
+        if ((flags & 0x02) != 0) {
+            cursor.skip(2);
+        }
+        return cursor.position() <= cursor.end;
+    }
+
+    // ID1, ID2, compression method "deflate", and no reserved flag bits.
+    static boolean isHeader(byte id1, byte id2, byte method, byte flags) {
+        return id1 == (byte) 0x1f && id2 == (byte) 0x8b && method == 8 && (flags & 0xe0) == 0;
+    }
+
+    private static final class PendingMember {
+
+        private final long start;
+        private CompletableFuture<Member> member;
+        private volatile boolean cancelled;
+
+        private PendingMember(long start) {
+            this.start = start;
+        }
+
+        private void cancel() {
+            cancelled = true;
+            member.cancel(false);
+        }
+    }
+
+    private static final class Member {
+
+        private final long end;
+        private final byte[] data;
+
+        private Member(long end, byte[] data) {
+            this.end = end;
+            this.data = data;
+        }
+    }
+
+    /**
+     * Reads a FileChannel from a position with positional reads, so several threads can share the channel.
+     */
+    private static final class ChannelCursor {
+
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+
+        private ChannelCursor(FileChannel channel, long position, long end) {
+            this.channel = channel;
+            this.position = position;
+            this.end = end;
+        }
+
+        private long position() {
+            return position;
+        }
+
+        /**
+         * Returns up to length bytes, or null at the end of the file.
+         */
+        private ByteBuffer next(int length) throws IOException {
+            int count = (int) Math.min(length, end - position);
+            if (count <= 0) {
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(count);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    break;
+                }
+            }
+            buffer.flip();
+            position += buffer.limit();
+            return buffer;
+        }
+
+        private void unread(int count) {
+            position -= count;
+        }
+
+        private void skip(long count) {
+            position += count;
+        }
+
+        private boolean skipZeroTerminated() throws IOException {
+            ByteBuffer buffer;
+            while ((buffer = next(256)) != null) {
+                for (int i = 0; i < buffer.limit(); i++) {
+                    if (buffer.get(i) == 0) {
+                        unread(buffer.limit() - i - 1);
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.javainaction.fileprocessing;
+
+import com.javainaction.interfaces.BufferredReaderProcessor;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Cache of the decoded content of classpath resources and files.
+ * <p>
+ * The processFile methods of ExecuteAround open, read and decode the resource on every call.
+ * This cache keeps the decoded content per resource, together with the last-modified time of the resource:
+ * a changed file is reloaded, an unchanged file is served from memory.
+ * The existing processors run unchanged: process() hands them a BufferedReader over the cached content.
+ * <p>
+ * The cache is bounded by the total number of chars; the least recently used entries are evicted first.
+ * The lines of an entry (lines()) are counted as well: their chars plus an estimated overhead per line.
+ * Hits, misses and evictions are counted.
+ */
+public class ResourceCache {
+
+    public static final long DEFAULT_MAX_CHARS = 64L * 1024 * 1024;
+    // Estimated size of a cached line besides its chars (String, char[] header, list reference), in chars.
+    private static final int LINE_OVERHEAD = 24;
+
+    private final long maxChars;
+    private final Charset charset;
+    // Access order: iteration starts with the least recently used entry.
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalChars;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ResourceCache() {
+        this(DEFAULT_MAX_CHARS, StandardCharsets.UTF_8);
+    }
+
+    public ResourceCache(long maxChars, Charset charset) {
+        if (maxChars <= 0) {
+            throw new IllegalArgumentException("maxChars must be positive: " + maxChars);
+        }
+        this.maxChars = maxChars;
+        this.charset = charset;
+    }
+
+    /**
+     * Returns the content of a classpath resource, such as "javainaction/chapter03/data.txt".
+     */
+    public String content(String resource) throws IOException {
+        return entry(resource).content;
+    }
+
+    public String content(Path path) throws IOException {
+        return entry(path).content;
+    }
+
+    /**
+     * Returns the lines of a classpath resource. The lines are split once and then cached with the content
+     * (and count for the size of the cache).
+     */
+    public List<String> lines(String resource) throws IOException {
+        return lines(entry(resource));
+    }
+
+    public List<String> lines(Path path) throws IOException {
+        return lines(entry(path));
+    }
+
+    public BufferedReader reader(String resource) throws IOException {
+        return new BufferedReader(new StringReader(content(resource)));
+    }
+
+    public String process(String resource, BufferredReaderProcessor bufferredReaderProcessor) throws IOException {
+        try (BufferedReader bufferedReader = reader(resource)) {
+            return bufferredReaderProcessor.process(bufferedReader);
+        }
+    }
+
+    /**
+     * Not an overload of process(): with an implicitly typed lambda, such as br -> br.readLine(),
+     * the two would be ambiguous.
+     */
+    public <R> R processWith(String resource, Function<BufferedReader, R> processBufferedReader) throws IOException {
+        try (BufferedReader bufferedReader = reader(resource)) {
+            return processBufferedReader.apply(bufferedReader);
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public double getHitRate() {
+        long total = hits.get() + misses.get();
+        return total > 0 ? (double) hits.get() / total : 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getTotalChars() {
+        return totalChars;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        totalChars = 0;
+    }
+
+    private Entry entry(String resource) throws IOException {
+        URL url = ResourceCache.class.getClassLoader().getResource(resource);
+        if (url == null) {
+            throw new FileNotFoundException("Resource " + resource + " not found on the classpath");
+        }
+        if ("file".equals(url.getProtocol())) {
+            try {
+                return entry(Paths.get(url.toURI()));
+            } catch (URISyntaxException e) {
+                throw new IOException("Resource " + resource + " has an invalid URL", e);
+            }
+        }
+        // E.g. a resource inside a jar: ask the connection for the modification time.
+        URLConnection connection = url.openConnection();
+        long lastModified = connection.getLastModified();
+        Entry entry = lookup(url.toString(), lastModified);
+        if (entry == null) {
+            try (InputStream inputStream = connection.getInputStream()) {
+                entry = store(new Entry(url.toString(), lastModified, new String(readAll(inputStream), charset)));
+            }
+        }
+        return entry;
+    }
+
+    private Entry entry(Path path) throws IOException {
+        Path absolutePath = path.toAbsolutePath().normalize();
+        long lastModified = Files.getLastModifiedTime(absolutePath).toMillis();
+        String key = absolutePath.toUri().toString();
+        Entry entry = lookup(key, lastModified);
+        if (entry == null) {
+            entry = store(new Entry(key, lastModified, new String(Files.readAllBytes(absolutePath), charset)));
+        }
+        return entry;
+    }
+
+    private synchronized Entry lookup(String key, long lastModified) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.lastModified == lastModified) {
+            hits.incrementAndGet();
+            return entry;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Stores the entry and evicts least recently used entries until the cache fits again.
+     * Note: the loading itself happens outside the lock, so two threads may load the same resource at the same time.
+     */
+    private synchronized Entry store(Entry entry) {
+        Entry previous = entries.put(entry.key, entry);
+        if (previous != null) {
+            totalChars -= previous.chars();
+        }
+        totalChars += entry.chars();
+        evict();
+        return entry;
+    }
+
+    /**
+     * The lines are split outside the lock; the first thread to finish installs them. They are only counted
+     * while the entry is in the cache: an entry that was evicted or replaced in the meantime is not counted any more.
+     */
+    private List<String> lines(Entry entry) {
+        List<String> lines = entry.lines;
+        if (lines != null) {
+            return lines;
+        }
+        List<String> split = split(entry.content);
+        synchronized (this) {
+            if (entry.lines == null) {
+                for (String line : split) {
+                    entry.linesChars += line.length() + LINE_OVERHEAD;
+                }
+                entry.lines = split;
+                if (entries.get(entry.key) == entry) {
+                    totalChars += entry.linesChars;
+                    evict();
+                }
+            }
+            return entry.lines;
+        }
+    }
+
+    // The newest entry is always kept, even when it is larger than the cache on its own.
+    private void evict() {
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (totalChars > maxChars && entries.size() > 1) {
+            Map.Entry<String, Entry> eldest = iterator.next();
+            totalChars -= eldest.getValue().chars();
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    // Same line terminators as BufferedReader.readLine(); no empty last line after a final terminator.
+    private static List<String> split(String content) {
+        String[] split = content.isEmpty() ? new String[0] : content.split("\r\n|\r|\n", -1);
+        int length = split.length;
+        if (length > 0 && split[length - 1].isEmpty()) {
+            length--;
+        }
+        return Collections.unmodifiableList(Arrays.asList(Arrays.copyOf(split, length)));
+    }
+
+    private static byte[] readAll(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static final class Entry {
+
+        private final String key;
+        private final long lastModified;
+        private final String content;
+        // Set once, under the lock of the cache.
+        private volatile List<String> lines;
+        private long linesChars;
+
+        private Entry(String key, long lastModified, String content) {
+            this.key = key;
+            this.lastModified = lastModified;
+            this.content = content;
+        }
+
+        // Only called under the lock of the cache.
+        private long chars() {
+            return content.length() + linesChars;
+        }
+    }
+}
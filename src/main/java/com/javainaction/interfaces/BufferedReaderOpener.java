@@ -0,0 +1,13 @@
+package com.javainaction.interfaces;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * Note that this is a customization of the functional interface Supplier<T> that may throw an IOException.
+ * Used where a reader has to be opened lazily, e.g. by a Publisher when the first item is requested.
+ */
+@FunctionalInterface
+public interface BufferedReaderOpener {
+    BufferedReader open() throws IOException;
+}
@@ -0,0 +1,13 @@
+package com.javainaction.interfaces;
+
+import com.javainaction.fileprocessing.ByteSlice;
+
+/**
+ * Note that this is a customization of the functional interface Consumer<T>:
+ * the ByteSlice is reused for the next token, so it is only valid during the call of accept().
+ * Call toString() or copy() on it to keep the token.
+ */
+@FunctionalInterface
+public interface ByteSliceConsumer {
+    void accept(ByteSlice token);
+}
@@ -0,0 +1,33 @@
+package com.javainaction.interfaces;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Asynchronous counterpart of BufferredReaderProcessor.
+ * Instead of pulling lines from a BufferedReader the processor is pushed the decoded chunks of a file,
+ * in file order and never concurrently. The CharBuffer is reused: copy what has to be kept.
+ * getResult() is called once, after the last chunk.
+ */
+public interface CharChunkProcessor<R> {
+
+    void process(CharBuffer chunk) throws IOException;
+
+    R getResult();
+
+    static <R> CharChunkProcessor<R> of(Consumer<CharBuffer> chunkConsumer, Supplier<R> resultSupplier) {
+        return new CharChunkProcessor<R>() {
+            @Override
+            public void process(CharBuffer chunk) {
+                chunkConsumer.accept(chunk);
+            }
+
+            @Override
+            public R getResult() {
+                return resultSupplier.get();
+            }
+        };
+    }
+}
@@ -0,0 +1,38 @@
+package com.javainaction.interfaces;
+
+/**
+ * The Reactive Streams interfaces, identical to java.util.concurrent.Flow of Java 9.
+ * This project is compiled for Java 8; when it moves to Java 9+ replacing the import is enough.
+ * <p>
+ * The essence is backpressure: a Publisher only calls onNext() as often as the Subscriber requested
+ * with Subscription.request(n). A slow Subscriber therefore throttles the Publisher.
+ */
+public final class Flow {
+
+    private Flow() {
+    }
+
+    @FunctionalInterface
+    public interface Publisher<T> {
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+    public interface Subscriber<T> {
+        void onSubscribe(Subscription subscription);
+
+        void onNext(T item);
+
+        void onError(Throwable throwable);
+
+        void onComplete();
+    }
+
+    public interface Subscription {
+        void request(long n);
+
+        void cancel();
+    }
+
+    public interface Processor<T, R> extends Subscriber<T>, Publisher<R> {
+    }
+}
@@ -0,0 +1,19 @@
+package com.javainaction.interfaces;
+
+/**
+ * Receives the lines appended to a followed file, see com.javainaction.fileprocessing.FileFollower.
+ * onTruncated() and onRotated() are optional: by default an incremental aggregate just continues.
+ */
+@FunctionalInterface
+public interface LineListener {
+
+    void onLine(String line);
+
+    // The file became shorter than what was already read: it is read again from the start.
+    default void onTruncated() {
+    }
+
+    // The file was replaced by a new file with the same name: the new file is read from the start.
+    default void onRotated() {
+    }
+}
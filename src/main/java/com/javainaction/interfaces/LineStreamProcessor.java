@@ -0,0 +1,14 @@
+package com.javainaction.interfaces;
+
+import java.io.IOException;
+import java.util.stream.Stream;
+
+/**
+ * Counterpart of BufferredReaderProcessor for line sources that can be split for parallel streams,
+ * such as com.javainaction.fileprocessing.MappedLineSource.
+ * Note that the lines are CharSequences: call toString() only when a String is really needed.
+ */
+@FunctionalInterface
+public interface LineStreamProcessor {
+    String process(Stream<CharSequence> lines) throws IOException;
+}
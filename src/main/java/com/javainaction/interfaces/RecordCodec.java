@@ -0,0 +1,21 @@
+package com.javainaction.interfaces;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Binary encoding of a record, e.g. for the runs of an ExternalSort.
+ * read() must read exactly what write() wrote; a compact encoding means less disk I/O.
+ * estimatedSize() is the estimated size of a record on the heap, used to stay within a memory budget.
+ */
+public interface RecordCodec<T> {
+
+    void write(DataOutput out, T record) throws IOException;
+
+    T read(DataInput in) throws IOException;
+
+    default long estimatedSize(T record) {
+        return 64;
+    }
+}
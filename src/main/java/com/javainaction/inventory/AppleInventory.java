@@ -0,0 +1,302 @@
+package com.javainaction.inventory;
+
+import com.javainaction.entities.Apple;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An inventory of apples stored column by column ("struct of arrays") instead of as a List of Apple objects:
+ * - the weights in an int[], so no Integer has to be unboxed;
+ * - the colors dictionary encoded: each distinct color gets a code, the rows store the code in a byte[]
+ *   (up to 256 colors) or a short[] (up to 65536 colors).
+ * A filter on the color looks up the code once and then compares numbers instead of calling String.equals().
+ * <p>
+ * The filter kernels are simple loops over a primitive array without branches in the loop body,
+ * which the JIT can unroll and vectorize. They return the selected rows:
+ * - as a selection vector: the ascending row indexes in an int[];
+ * - or as a bitmap: a BitSet with a bit per row.
+ * Apple objects are only created on demand by toApples().
+ * An AppleInventory is not thread safe; concurrent reads without writes are fine.
+ */
+public class AppleInventory {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final int MAX_BYTE_CODES = 256;
+    private static final int MAX_SHORT_CODES = 65536;
+
+    private int[] weights;
+    // One of both is used: byteCodes until there are more than 256 colors.
+    private byte[] byteCodes;
+    private short[] shortCodes;
+    private int size;
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> colors = new ArrayList<>();
+
+    public AppleInventory() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * For large inventories: reserve the capacity up front instead of growing the arrays step by step.
+     */
+    public AppleInventory(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must not be negative");
+        }
+        weights = new int[capacity];
+        byteCodes = new byte[capacity];
+    }
+
+    public static AppleInventory of(Collection<Apple> apples) {
+        AppleInventory inventory = new AppleInventory(apples.size());
+        inventory.addAll(apples);
+        return inventory;
+    }
+
+    /**
+     * Adds an apple and returns its row index.
+     */
+    public int add(Apple apple) {
+        return add(apple.getWeight(), apple.getColor());
+    }
+
+    public int add(int weight, String color) {
+        int code = encode(color);
+        ensureCapacity(size + 1);
+        weights[size] = weight;
+        if (byteCodes != null) {
+            byteCodes[size] = (byte) code;
+        } else {
+            shortCodes[size] = (short) code;
+        }
+        return size++;
+    }
+
+    public void addAll(Collection<Apple> apples) {
+        ensureCapacity(size + apples.size());
+        for (Apple apple : apples) {
+            add(apple);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getWeight(int row) {
+        checkRow(row);
+        return weights[row];
+    }
+
+    public String getColor(int row) {
+        checkRow(row);
+        return colors.get(codeAt(row));
+    }
+
+    public Apple get(int row) {
+        return new Apple(getWeight(row), getColor(row));
+    }
+
+    /**
+     * Returns the code of a color, or -1 when no apple in the inventory has that color.
+     */
+    public int colorCode(String color) {
+        Integer code = codes.get(color);
+        return code == null ? -1 : code;
+    }
+
+    /**
+     * Returns the distinct colors; the index of a color is its code.
+     */
+    public List<String> getColors() {
+        return Collections.unmodifiableList(colors);
+    }
+
+    /**
+     * Selection vector of the apples with weight > weight (the same test as Apple.isHeavyApple(apple, weight)).
+     */
+    public int[] selectHeavierThan(int weight) {
+        // No weight is heavier than Integer.MAX_VALUE (and weight + 1 would overflow).
+        if (weight == Integer.MAX_VALUE) {
+            return new int[0];
+        }
+        return selectWeightBetween(weight + 1, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Selection vector of the apples with minimum <= weight <= maximum.
+     */
+    public int[] selectWeightBetween(int minimum, int maximum) {
+        if (minimum > maximum) {
+            return new int[0];
+        }
+        int[] rows = new int[size];
+        int count = 0;
+        // Unsigned compare: one comparison for both bounds.
+        int range = maximum - minimum;
+        for (int i = 0; i < size; i++) {
+            rows[count] = i;
+            count += Integer.compareUnsigned(weights[i] - minimum, range) <= 0 ? 1 : 0;
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    /**
+     * Selection vector of the apples with the given color (the same test as filterGreenApples(inventory, color)).
+     */
+    public int[] selectColor(String color) {
+        int code = colorCode(color);
+        if (code < 0) {
+            return new int[0];
+        }
+        int[] rows = new int[size];
+        int count = 0;
+        if (byteCodes != null) {
+            byte wanted = (byte) code;
+            for (int i = 0; i < size; i++) {
+                rows[count] = i;
+                count += byteCodes[i] == wanted ? 1 : 0;
+            }
+        } else {
+            short wanted = (short) code;
+            for (int i = 0; i < size; i++) {
+                rows[count] = i;
+                count += shortCodes[i] == wanted ? 1 : 0;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    /**
+     * Narrows a selection vector to the rows with the given color, e.g. selectColor(selectHeavierThan(150), "green").
+     */
+    public int[] selectColor(int[] selection, String color) {
+        int code = colorCode(color);
+        int[] rows = new int[selection.length];
+        int count = 0;
+        if (code >= 0) {
+            for (int row : selection) {
+                rows[count] = row;
+                count += codeAt(row) == code ? 1 : 0;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    public BitSet heavierThanBitmap(int weight) {
+        if (weight == Integer.MAX_VALUE) {
+            return new BitSet();
+        }
+        return weightBetweenBitmap(weight + 1, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Bitmap of the apples with minimum <= weight <= maximum. Bitmaps are combined with and(), or() and andNot().
+     */
+    public BitSet weightBetweenBitmap(int minimum, int maximum) {
+        long[] words = new long[wordCount()];
+        if (minimum <= maximum) {
+            int range = maximum - minimum;
+            for (int i = 0; i < size; i++) {
+                long selected = Integer.compareUnsigned(weights[i] - minimum, range) <= 0 ? 1L : 0L;
+                words[i >>> 6] |= selected << i;
+            }
+        }
+        return BitSet.valueOf(words);
+    }
+
+    public BitSet colorBitmap(String color) {
+        long[] words = new long[wordCount()];
+        int code = colorCode(color);
+        if (code >= 0) {
+            for (int i = 0; i < size; i++) {
+                long selected = codeAt(i) == code ? 1L : 0L;
+                words[i >>> 6] |= selected << i;
+            }
+        }
+        return BitSet.valueOf(words);
+    }
+
+    public List<Apple> toApples(int[] selection) {
+        List<Apple> apples = new ArrayList<>(selection.length);
+        for (int row : selection) {
+            apples.add(get(row));
+        }
+        return apples;
+    }
+
+    public List<Apple> toApples(BitSet bitmap) {
+        List<Apple> apples = new ArrayList<>(bitmap.cardinality());
+        for (int row = bitmap.nextSetBit(0); row >= 0 && row < size; row = bitmap.nextSetBit(row + 1)) {
+            apples.add(get(row));
+        }
+        return apples;
+    }
+
+    public List<Apple> toApples() {
+        List<Apple> apples = new ArrayList<>(size);
+        for (int row = 0; row < size; row++) {
+            apples.add(get(row));
+        }
+        return apples;
+    }
+
+    private int codeAt(int row) {
+        return byteCodes != null ? byteCodes[row] & 0xff : shortCodes[row] & 0xffff;
+    }
+
+    private int encode(String color) {
+        Integer code = codes.get(color);
+        if (code != null) {
+            return code;
+        }
+        if (colors.size() == MAX_SHORT_CODES) {
+            throw new IllegalStateException("More than " + MAX_SHORT_CODES + " distinct colors");
+        }
+        if (colors.size() == MAX_BYTE_CODES && byteCodes != null) {
+            widenCodes();
+        }
+        colors.add(color);
+        codes.put(color, colors.size() - 1);
+        return colors.size() - 1;
+    }
+
+    private void widenCodes() {
+        shortCodes = new short[weights.length];
+        for (int i = 0; i < size; i++) {
+            shortCodes[i] = (short) (byteCodes[i] & 0xff);
+        }
+        byteCodes = null;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= weights.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, weights.length + (weights.length >> 1) + 1);
+        weights = Arrays.copyOf(weights, newCapacity);
+        if (byteCodes != null) {
+            byteCodes = Arrays.copyOf(byteCodes, newCapacity);
+        } else {
+            shortCodes = Arrays.copyOf(shortCodes, newCapacity);
+        }
+    }
+
+    private int wordCount() {
+        return (size + 63) >>> 6;
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + ", size " + size);
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.javainaction.inventory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * A conjunction (allOf) or disjunction (anyOf) of predicates that is evaluated as one flat loop,
+ * with the terms ordered so the cheapest and most decisive test runs first.
+ * <p>
+ * Predicate.and() and Predicate.or() nest a lambda per call: a chain of ten predicates is ten levels of calls,
+ * always evaluated in declaration order. A FusedPredicate flattens nested allOf/and and anyOf/or into one array
+ * of terms, and negate() is pushed down to the terms (De Morgan).
+ * <p>
+ * The order of the terms is based on statistics:
+ * - every sampleInterval-th test (and every element passed to calibrate()) evaluates all terms,
+ *   measuring how often each term passes and how long it takes;
+ * - for allOf the terms are ordered by cost / (1 - pass rate), for anyOf by cost / pass rate;
+ * - older statistics are halved regularly, so the order follows when the data changes.
+ * Because the order changes, the terms must be independent and free of side effects:
+ * a term may not rely on an earlier term as a guard (e.g. a null check).
+ * <p>
+ * test() may be called concurrently; the statistics are updated under a lock, only for the sampled tests.
+ */
+public class FusedPredicate<T> implements Predicate<T> {
+
+    public static final int DEFAULT_SAMPLE_INTERVAL = 1024;
+    // Number of sampled tests after which the terms are reordered.
+    private static final int REORDER_SAMPLES = 64;
+    // Number of samples per term after which the statistics are halved.
+    private static final long DECAY_SAMPLES = 4096;
+
+    private final boolean conjunction;
+    private final List<Term<T>> terms;
+    private final int sampleInterval;
+    private volatile Term<T>[] order;
+    // Not atomic on purpose: a lost increment only shifts the next sample.
+    private int calls;
+    private int samplesSinceReorder;
+
+    private FusedPredicate(boolean conjunction, List<Predicate<? super T>> predicates, int sampleInterval) {
+        if (predicates.isEmpty()) {
+            throw new IllegalArgumentException("At least one predicate is required");
+        }
+        if (sampleInterval <= 0) {
+            throw new IllegalArgumentException("sampleInterval must be positive");
+        }
+        this.conjunction = conjunction;
+        this.sampleInterval = sampleInterval;
+        List<Term<T>> list = new ArrayList<>(predicates.size());
+        for (Predicate<? super T> predicate : predicates) {
+            list.add(new Term<>(predicate));
+        }
+        this.terms = Collections.unmodifiableList(list);
+        this.order = toArray(list);
+    }
+
+    @SafeVarargs
+    public static <T> FusedPredicate<T> allOf(Predicate<? super T>... predicates) {
+        // Copied element by element: passing the varargs array on is what makes it unsafe.
+        List<Predicate<? super T>> list = new ArrayList<>(predicates.length);
+        for (Predicate<? super T> predicate : predicates) {
+            list.add(predicate);
+        }
+        return allOf(list);
+    }
+
+    public static <T> FusedPredicate<T> allOf(List<? extends Predicate<? super T>> predicates) {
+        return new FusedPredicate<>(true, flatten(true, predicates), DEFAULT_SAMPLE_INTERVAL);
+    }
+
+    @SafeVarargs
+    public static <T> FusedPredicate<T> anyOf(Predicate<? super T>... predicates) {
+        List<Predicate<? super T>> list = new ArrayList<>(predicates.length);
+        for (Predicate<? super T> predicate : predicates) {
+            list.add(predicate);
+        }
+        return anyOf(list);
+    }
+
+    public static <T> FusedPredicate<T> anyOf(List<? extends Predicate<? super T>> predicates) {
+        return new FusedPredicate<>(false, flatten(false, predicates), DEFAULT_SAMPLE_INTERVAL);
+    }
+
+    /**
+     * Returns a predicate with the same terms that samples every sampleInterval-th test.
+     */
+    public FusedPredicate<T> withSampleInterval(int sampleInterval) {
+        return new FusedPredicate<>(conjunction, predicates(), sampleInterval);
+    }
+
+    @Override
+    public boolean test(T t) {
+        if (++calls >= sampleInterval) {
+            calls = 0;
+            return sample(t);
+        }
+        Term<T>[] current = order;
+        if (conjunction) {
+            for (Term<T> term : current) {
+                if (!term.predicate.test(t)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        for (Term<T> term : current) {
+            if (term.predicate.test(t)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Measures the terms on (at most) sampleSize elements spread over the items, and orders the terms accordingly.
+     * Typically called once with the inventory before filtering it.
+     */
+    public FusedPredicate<T> calibrate(Collection<? extends T> items, int sampleSize) {
+        if (sampleSize <= 0 || items.isEmpty()) {
+            return this;
+        }
+        int step = Math.max(1, items.size() / sampleSize);
+        int index = 0;
+        for (T item : items) {
+            if (index++ % step == 0) {
+                sample(item);
+            }
+        }
+        synchronized (this) {
+            reorder();
+        }
+        return this;
+    }
+
+    @Override
+    public FusedPredicate<T> and(Predicate<? super T> other) {
+        return new FusedPredicate<>(true, flatten(true, Arrays.asList(this, other)), sampleInterval);
+    }
+
+    @Override
+    public FusedPredicate<T> or(Predicate<? super T> other) {
+        return new FusedPredicate<>(false, flatten(false, Arrays.asList(this, other)), sampleInterval);
+    }
+
+    /**
+     * not(a and b) = not a or not b; not(a or b) = not a and not b.
+     */
+    @Override
+    public FusedPredicate<T> negate() {
+        List<Predicate<? super T>> negated = new ArrayList<>(terms.size());
+        for (Term<T> term : terms) {
+            negated.add(negate(term.predicate));
+        }
+        return new FusedPredicate<>(!conjunction, negated, sampleInterval);
+    }
+
+    public boolean isConjunction() {
+        return conjunction;
+    }
+
+    /**
+     * Returns the terms in the order in which they are currently evaluated.
+     */
+    public List<Predicate<? super T>> getOrder() {
+        List<Predicate<? super T>> predicates = new ArrayList<>();
+        for (Term<T> term : order) {
+            predicates.add(term.predicate);
+        }
+        return predicates;
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder(conjunction ? "allOf[" : "anyOf[");
+        Term<T>[] current = order;
+        for (int i = 0; i < current.length; i++) {
+            builder.append(i == 0 ? "" : ", ").append(current[i]);
+        }
+        return builder.append(']').toString();
+    }
+
+    private synchronized boolean sample(T t) {
+        boolean result = conjunction;
+        for (Term<T> term : terms) {
+            long start = System.nanoTime();
+            boolean passed = term.predicate.test(t);
+            term.record(passed, System.nanoTime() - start);
+            result = conjunction ? result && passed : result || passed;
+        }
+        if (++samplesSinceReorder >= REORDER_SAMPLES) {
+            reorder();
+        }
+        return result;
+    }
+
+    // Called with the lock held.
+    private void reorder() {
+        samplesSinceReorder = 0;
+        for (Term<T> term : terms) {
+            term.rank = term.rank(conjunction);
+        }
+        List<Term<T>> sorted = new ArrayList<>(terms);
+        sorted.sort(Comparator.comparingDouble((Term<T> term) -> term.rank));
+        order = toArray(sorted);
+    }
+
+    private List<Predicate<? super T>> predicates() {
+        List<Predicate<? super T>> predicates = new ArrayList<>(terms.size());
+        for (Term<T> term : terms) {
+            predicates.add(term.predicate);
+        }
+        return predicates;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Term<T>[] toArray(List<Term<T>> terms) {
+        return (Term<T>[]) terms.toArray(new Term<?>[0]);
+    }
+
+    private static <T> List<Predicate<? super T>> flatten(boolean conjunction, List<? extends Predicate<? super T>> predicates) {
+        List<Predicate<? super T>> flat = new ArrayList<>();
+        for (Predicate<? super T> predicate : predicates) {
+            if (predicate instanceof FusedPredicate && ((FusedPredicate<?>) predicate).conjunction == conjunction) {
+                flat.addAll(((FusedPredicate<? super T>) predicate).predicates());
+            } else {
+                flat.add(predicate);
+            }
+        }
+        return flat;
+    }
+
+    private static <T> Predicate<? super T> negate(Predicate<? super T> predicate) {
+        if (predicate instanceof FusedPredicate) {
+            return ((FusedPredicate<? super T>) predicate).negate();
+        }
+        if (predicate instanceof Not) {
+            return ((Not<? super T>) predicate).predicate;
+        }
+        return new Not<>(predicate);
+    }
+
+    private static final class Not<T> implements Predicate<T> {
+
+        private final Predicate<? super T> predicate;
+
+        private Not(Predicate<? super T> predicate) {
+            this.predicate = predicate;
+        }
+
+        @Override
+        public boolean test(T t) {
+            return !predicate.test(t);
+        }
+
+        @Override
+        public String toString() {
+            return "not(" + predicate + ")";
+        }
+    }
+
+    private static final class Term<T> {
+
+        private final Predicate<? super T> predicate;
+        private long samples;
+        private long passes;
+        private long nanos;
+        private double rank;
+
+        private Term(Predicate<? super T> predicate) {
+            this.predicate = predicate;
+        }
+
+        private void record(boolean passed, long elapsed) {
+            if (samples == DECAY_SAMPLES) {
+                samples >>= 1;
+                passes >>= 1;
+                nanos >>= 1;
+            }
+            samples++;
+            passes += passed ? 1 : 0;
+            nanos += elapsed;
+        }
+
+        private double passRate() {
+            // Laplace smoothing: no division by zero and no extreme rates after a few samples.
+            return (passes + 1.0) / (samples + 2.0);
+        }
+
+        private double cost() {
+            return samples == 0 ? 1.0 : Math.max(1.0, (double) nanos / samples);
+        }
+
+        /**
+         * Expected cost per decision: a term is worth running early when it is cheap and often decides the outcome,
+         * i.e. fails for allOf or passes for anyOf.
+         */
+        private double rank(boolean conjunction) {
+            return cost() / (conjunction ? 1.0 - passRate() : passRate());
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s (pass rate %.2f, %.0f ns)", predicate, passRate(), cost());
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package com.javainaction.inventory;
+
+import com.javainaction.entities.Apple;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+/**
+ * A collection with optional secondary indexes, so that filters do not have to scan all items
+ * (as filterItems(List, Predicate) and Lambdas.filter do).
+ * <p>
+ * Every item gets an id. An index maps a property to a CompressedBitmap of the ids:
+ * - an equality index (addIndex) has a bitmap per distinct value, e.g. a bitmap per color;
+ * - a range index (addRangeIndex) has a bitmap per bucket of bucketWidth values, e.g. weights 150-159,
+ *   plus the int values per id, so the partial buckets at the borders of a range are resolved without the items.
+ * A query returns a bitmap; queries are combined with and(), or() and andNot() and only then turned into items:
+ * <pre>
+ *     get(equalTo("color", "green").and(greaterThan("weight", 150)))
+ * </pre>
+ * The indexes are updated by add() and remove(). The indexed values are taken when an item is added:
+ * after changing an indexed property of an item (e.g. Apple.setColor()), call update(item).
+ * An IndexedCollection is not thread safe.
+ */
+public class IndexedCollection<T> {
+
+    private final List<T> items = new ArrayList<>();
+    private final Map<T, Integer> ids = new IdentityHashMap<>();
+    // Ids of removed items, reused by add() so the bitmaps stay dense.
+    private final CompressedBitmap freeIds = new CompressedBitmap();
+    private final Map<String, Index<T>> indexes = new LinkedHashMap<>();
+
+    /**
+     * An IndexedCollection of apples with an equality index "color" and a range index "weight" in buckets of 10 grams.
+     */
+    public static IndexedCollection<Apple> ofApples(List<Apple> apples) {
+        IndexedCollection<Apple> collection = new IndexedCollection<>();
+        collection.addIndex("color", Apple::getColor);
+        collection.addRangeIndex("weight", Apple::getWeight, 10);
+        collection.addAll(apples);
+        return collection;
+    }
+
+    public <K> void addIndex(String name, Function<? super T, K> key) {
+        registerIndex(name, new EqualityIndex<>(key));
+    }
+
+    public void addRangeIndex(String name, ToIntFunction<? super T> value, int bucketWidth) {
+        if (bucketWidth <= 0) {
+            throw new IllegalArgumentException("bucketWidth must be positive");
+        }
+        registerIndex(name, new RangeIndex<>(value, bucketWidth));
+    }
+
+    public void removeIndex(String name) {
+        indexes.remove(name);
+    }
+
+    /**
+     * Adds an item and returns its id. The same instance cannot be added twice.
+     */
+    public int add(T item) {
+        if (ids.containsKey(item)) {
+            throw new IllegalArgumentException("Item is already in the collection: " + item);
+        }
+        int id;
+        if (freeIds.isEmpty()) {
+            id = items.size();
+            items.add(item);
+        } else {
+            id = freeIds.first();
+            freeIds.remove(id);
+            items.set(id, item);
+        }
+        ids.put(item, id);
+        for (Index<T> index : indexes.values()) {
+            index.add(id, item);
+        }
+        return id;
+    }
+
+    public void addAll(List<? extends T> newItems) {
+        for (T item : newItems) {
+            add(item);
+        }
+    }
+
+    /**
+     * Removes the item (the same instance, not an equal one). Returns false when it was not in the collection.
+     */
+    public boolean remove(T item) {
+        Integer id = ids.remove(item);
+        if (id == null) {
+            return false;
+        }
+        for (Index<T> index : indexes.values()) {
+            index.remove(id);
+        }
+        items.set(id, null);
+        freeIds.add(id);
+        return true;
+    }
+
+    /**
+     * Re-indexes an item after one of its indexed properties has changed.
+     */
+    public void update(T item) {
+        Integer id = ids.get(item);
+        if (id == null) {
+            throw new IllegalArgumentException("Item is not in the collection: " + item);
+        }
+        for (Index<T> index : indexes.values()) {
+            index.remove(id);
+            index.add(id, item);
+        }
+    }
+
+    public int size() {
+        return ids.size();
+    }
+
+    public T get(int id) {
+        T item = id >= 0 && id < items.size() ? items.get(id) : null;
+        if (item == null) {
+            throw new IndexOutOfBoundsException("No item with id " + id);
+        }
+        return item;
+    }
+
+    /**
+     * Returns the items of a query result, in id order.
+     */
+    public List<T> get(CompressedBitmap selection) {
+        List<T> result = new ArrayList<>(selection.cardinality());
+        selection.forEach((int id) -> result.add(get(id)));
+        return result;
+    }
+
+    /**
+     * The ids of all items, e.g. as the start of an andNot().
+     */
+    public CompressedBitmap all() {
+        CompressedBitmap all = new CompressedBitmap();
+        for (int id : ids.values()) {
+            all.add(id);
+        }
+        return all;
+    }
+
+    public CompressedBitmap equalTo(String indexName, Object key) {
+        return ((EqualityIndex<T, ?>) index(indexName, EqualityIndex.class)).equalTo(key);
+    }
+
+    /**
+     * Items with minimum <= value <= maximum.
+     */
+    public CompressedBitmap between(String indexName, int minimum, int maximum) {
+        return ((RangeIndex<T>) index(indexName, RangeIndex.class)).between(minimum, maximum);
+    }
+
+    public CompressedBitmap greaterThan(String indexName, int value) {
+        return value == Integer.MAX_VALUE ? new CompressedBitmap() : between(indexName, value + 1, Integer.MAX_VALUE);
+    }
+
+    public CompressedBitmap lessThan(String indexName, int value) {
+        return value == Integer.MIN_VALUE ? new CompressedBitmap() : between(indexName, Integer.MIN_VALUE, value - 1);
+    }
+
+    /**
+     * Full scan without an index, for predicates that no index covers.
+     */
+    public CompressedBitmap filter(Predicate<? super T> predicate) {
+        CompressedBitmap result = new CompressedBitmap();
+        for (Map.Entry<T, Integer> entry : ids.entrySet()) {
+            if (predicate.test(entry.getKey())) {
+                result.add(entry.getValue());
+            }
+        }
+        return result;
+    }
+
+    private void registerIndex(String name, Index<T> index) {
+        if (indexes.containsKey(name)) {
+            throw new IllegalArgumentException("Index " + name + " already exists");
+        }
+        for (Map.Entry<T, Integer> entry : ids.entrySet()) {
+            index.add(entry.getValue(), entry.getKey());
+        }
+        indexes.put(name, index);
+    }
+
+    private Index<T> index(String name, Class<?> type) {
+        Index<T> index = indexes.get(name);
+        if (index == null) {
+            throw new IllegalArgumentException("Unknown index " + name);
+        }
+        if (!type.isInstance(index)) {
+            throw new IllegalArgumentException("Index " + name + " is not a " + type.getSimpleName());
+        }
+        return index;
+    }
+
+    private interface Index<T> {
+
+        void add(int id, T item);
+
+        void remove(int id);
+    }
+
+    private static final class EqualityIndex<T, K> implements Index<T> {
+
+        private final Function<? super T, K> key;
+        private final Map<K, CompressedBitmap> bitmaps = new HashMap<>();
+        // The key of every id as it was indexed, to find the bitmap again when the item has changed.
+        private final Map<Integer, K> keys = new HashMap<>();
+
+        private EqualityIndex(Function<? super T, K> key) {
+            this.key = key;
+        }
+
+        @Override
+        public void add(int id, T item) {
+            K value = key.apply(item);
+            keys.put(id, value);
+            bitmaps.computeIfAbsent(value, (K k) -> new CompressedBitmap()).add(id);
+        }
+
+        @Override
+        public void remove(int id) {
+            K value = keys.remove(id);
+            CompressedBitmap bitmap = bitmaps.get(value);
+            if (bitmap != null) {
+                bitmap.remove(id);
+                if (bitmap.isEmpty()) {
+                    bitmaps.remove(value);
+                }
+            }
+        }
+
+        private CompressedBitmap equalTo(Object value) {
+            CompressedBitmap bitmap = bitmaps.get(value);
+            return bitmap == null ? new CompressedBitmap() : bitmap.copy();
+        }
+    }
+
+    private static final class RangeIndex<T> implements Index<T> {
+
+        private final ToIntFunction<? super T> value;
+        private final int bucketWidth;
+        private final NavigableMap<Integer, CompressedBitmap> buckets = new TreeMap<>();
+        private int[] values = new int[16];
+
+        private RangeIndex(ToIntFunction<? super T> value, int bucketWidth) {
+            this.value = value;
+            this.bucketWidth = bucketWidth;
+        }
+
+        @Override
+        public void add(int id, T item) {
+            int v = value.applyAsInt(item);
+            if (id >= values.length) {
+                values = Arrays.copyOf(values, Math.max(id + 1, values.length * 2));
+            }
+            values[id] = v;
+            buckets.computeIfAbsent(bucket(v), (Integer b) -> new CompressedBitmap()).add(id);
+        }
+
+        @Override
+        public void remove(int id) {
+            int bucket = bucket(values[id]);
+            CompressedBitmap bitmap = buckets.get(bucket);
+            if (bitmap != null) {
+                bitmap.remove(id);
+                if (bitmap.isEmpty()) {
+                    buckets.remove(bucket);
+                }
+            }
+        }
+
+        private CompressedBitmap between(int minimum, int maximum) {
+            CompressedBitmap borders = new CompressedBitmap();
+            List<CompressedBitmap> complete = new ArrayList<>();
+            if (minimum > maximum) {
+                return borders;
+            }
+            int first = bucket(minimum);
+            int last = bucket(maximum);
+            for (Map.Entry<Integer, CompressedBitmap> entry : buckets.subMap(first, true, last, true).entrySet()) {
+                int bucket = entry.getKey();
+                if ((bucket > first || bucketStart(bucket) >= minimum) && (bucket < last || bucketEnd(bucket) <= maximum)) {
+                    complete.add(entry.getValue());
+                } else {
+                    // A border bucket: check the values, not the items.
+                    entry.getValue().forEach((int id) -> {
+                        if (values[id] >= minimum && values[id] <= maximum) {
+                            borders.add(id);
+                        }
+                    });
+                }
+            }
+            complete.add(borders);
+            return union(complete, 0, complete.size());
+        }
+
+        // Pairwise, so every id is copied log(buckets) times instead of once per bucket.
+        private static CompressedBitmap union(List<CompressedBitmap> bitmaps, int from, int to) {
+            if (to - from == 1) {
+                return bitmaps.get(from).copy();
+            }
+            int middle = (from + to) >>> 1;
+            return union(bitmaps, from, middle).or(union(bitmaps, middle, to));
+        }
+
+        private int bucket(int v) {
+            return Math.floorDiv(v, bucketWidth);
+        }
+
+        private long bucketStart(int bucket) {
+            return (long) bucket * bucketWidth;
+        }
+
+        private long bucketEnd(int bucket) {
+            return (long) bucket * bucketWidth + bucketWidth - 1;
+        }
+    }
+}
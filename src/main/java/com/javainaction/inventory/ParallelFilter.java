@@ -0,0 +1,179 @@
+package com.javainaction.inventory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+
+/**
+ * Parallel version of filterItems(List, Predicate) on the fork/join framework.
+ * <p>
+ * Whether and how far the work is split depends on the expected work, not only on the size of the list:
+ * the predicate is first applied to the first elements and timed (these results are kept).
+ * - when size * cost is too small to gain from parallelism, the rest is filtered sequentially;
+ * - otherwise the list is split until a task has about LEAF_NANOS of work.
+ * So a short list or a cheap predicate never pays the fork overhead, and an expensive predicate is split finely.
+ * <p>
+ * A leaf task writes its hits into its own chunk; no task shares a buffer, so nothing is synchronized.
+ * The chunks are linked in list order while the tasks are joined, and copied once into the result.
+ * The result has the encounter order of the list, like the sequential filterItems.
+ */
+public final class ParallelFilter {
+
+    // Elements timed to estimate the cost of the predicate.
+    private static final int SAMPLE_SIZE = 64;
+    // Below this amount of work a fork costs more than it gains.
+    private static final long SEQUENTIAL_NANOS = 100_000;
+    // Target amount of work per leaf task.
+    private static final long LEAF_NANOS = 50_000;
+    private static final int MIN_CUTOFF = 256;
+
+    private ParallelFilter() {
+    }
+
+    public static <T> List<T> filter(List<T> inventory, Predicate<? super T> predicate) {
+        return filter(inventory, predicate, ForkJoinPool.commonPool());
+    }
+
+    public static <T> List<T> filter(List<T> inventory, Predicate<? super T> predicate, ForkJoinPool pool) {
+        // A LinkedList would make every get(i) a walk: work on a copy.
+        List<T> items = inventory instanceof RandomAccess ? inventory : new ArrayList<>(inventory);
+        int size = items.size();
+        int sampled = Math.min(size, SAMPLE_SIZE);
+
+        Chunk<T> sample = new Chunk<>(sampled);
+        long start = System.nanoTime();
+        sample.filter(items, 0, sampled, predicate);
+        double nanosPerElement = Math.max(1.0, (System.nanoTime() - start) / (double) Math.max(1, sampled));
+
+        Chunks<T> rest;
+        int remaining = size - sampled;
+        int cutoff = pool.getParallelism() == 1 ? 0 : cutoff(remaining, nanosPerElement);
+        if (remaining == 0) {
+            rest = new Chunks<>();
+        } else if (cutoff == 0) {
+            Chunk<T> chunk = new Chunk<>(Math.min(remaining, 1024));
+            chunk.filter(items, sampled, size, predicate);
+            rest = new Chunks<>(chunk);
+        } else {
+            rest = pool.invoke(new FilterTask<>(items, sampled, size, predicate, cutoff));
+        }
+        return new Chunks<>(sample).append(rest).toList();
+    }
+
+    /**
+     * Returns the sequential cutoff (elements per leaf task) for size elements of the given cost,
+     * or 0 when the work is too small to split at all.
+     */
+    static int cutoff(int size, double nanosPerElement) {
+        if (size * nanosPerElement < SEQUENTIAL_NANOS) {
+            return 0;
+        }
+        return (int) Math.max(MIN_CUTOFF, LEAF_NANOS / nanosPerElement);
+    }
+
+    // ForkJoinTask is Serializable, but a FilterTask is never serialized (its list and predicate need not be).
+    @SuppressWarnings("serial")
+    private static final class FilterTask<T> extends RecursiveTask<Chunks<T>> {
+
+        private final List<T> items;
+        private final int from;
+        private final int to;
+        private final Predicate<? super T> predicate;
+        private final int cutoff;
+
+        private FilterTask(List<T> items, int from, int to, Predicate<? super T> predicate, int cutoff) {
+            this.items = items;
+            this.from = from;
+            this.to = to;
+            this.predicate = predicate;
+            this.cutoff = cutoff;
+        }
+
+        @Override
+        protected Chunks<T> compute() {
+            if (to - from <= cutoff) {
+                Chunk<T> chunk = new Chunk<>(Math.min(to - from, 1024));
+                chunk.filter(items, from, to, predicate);
+                return new Chunks<>(chunk);
+            }
+            int middle = (from + to) >>> 1;
+            FilterTask<T> left = new FilterTask<>(items, from, middle, predicate, cutoff);
+            left.fork();
+            Chunks<T> right = new FilterTask<>(items, middle, to, predicate, cutoff).compute();
+            return left.join().append(right);
+        }
+    }
+
+    /**
+     * The hits of one leaf task.
+     */
+    private static final class Chunk<T> {
+
+        private Object[] hits;
+        private int count;
+        private Chunk<T> next;
+
+        private Chunk(int capacity) {
+            hits = new Object[Math.max(1, capacity)];
+        }
+
+        private void filter(List<T> items, int from, int to, Predicate<? super T> predicate) {
+            for (int i = from; i < to; i++) {
+                T item = items.get(i);
+                if (predicate.test(item)) {
+                    if (count == hits.length) {
+                        hits = Arrays.copyOf(hits, count + (count >> 1) + 1);
+                    }
+                    hits[count++] = item;
+                }
+            }
+        }
+    }
+
+    /**
+     * A linked list of chunks in list order; append() is O(1).
+     */
+    private static final class Chunks<T> {
+
+        private Chunk<T> first;
+        private Chunk<T> last;
+        private int size;
+
+        private Chunks() {
+        }
+
+        private Chunks(Chunk<T> chunk) {
+            first = chunk;
+            last = chunk;
+            size = chunk.count;
+        }
+
+        private Chunks<T> append(Chunks<T> other) {
+            if (other.first == null) {
+                return this;
+            }
+            if (first == null) {
+                return other;
+            }
+            last.next = other.first;
+            last = other.last;
+            size += other.size;
+            return this;
+        }
+
+        @SuppressWarnings("unchecked")
+        private List<T> toList() {
+            List<T> result = new ArrayList<>(size);
+            for (Chunk<T> chunk = first; chunk != null; chunk = chunk.next) {
+                for (int i = 0; i < chunk.count; i++) {
+                    result.add((T) chunk.hits[i]);
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.javainaction.inventory;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Cache of filter results, for the same filters that are run again and again on collections that did not change.
+ * <p>
+ * A result is cached per (list, query key) together with the version of the list.
+ * While the version is the same the cached result is returned; after a change of the list the filter runs again.
+ * The query key identifies the predicate and its parameters, e.g. Arrays.asList("heavier than", 150).
+ * Without a key the predicate instance itself is the key: keep the instance (Apple::isGreenApple creates
+ * a different instance at every place in the code where it is written).
+ * <p>
+ * A result is stored as the int[] of the indexes of the selected items, not as a list of the items.
+ * The cache is bounded by the total size of these arrays; the least recently used results are evicted first.
+ * Hits, misses, evictions and the evaluation time saved by the hits are counted.
+ */
+public class QueryCache {
+
+    public static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+    // Estimated fixed cost of an entry: the map entry, the key, the Entry and the array header.
+    private static final long ENTRY_OVERHEAD = 96;
+
+    private final long maxBytes;
+    // Access order: iteration starts with the least recently used entry.
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong savedNanos = new AtomicLong();
+
+    public QueryCache() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    public QueryCache(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    public <T> List<T> filter(VersionedList<T> list, Predicate<? super T> predicate) {
+        return filter(list, predicate, predicate);
+    }
+
+    /**
+     * Returns the items of list that match predicate, in list order.
+     * The result is a view on list: it throws a ConcurrentModificationException once the list has changed.
+     */
+    public <T> List<T> filter(VersionedList<T> list, Object queryKey, Predicate<? super T> predicate) {
+        return new ResultView<>(list, indexes(list, queryKey, predicate));
+    }
+
+    public <T> int count(VersionedList<T> list, Object queryKey, Predicate<? super T> predicate) {
+        return indexes(list, queryKey, predicate).length;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public double getHitRate() {
+        long total = hits.get() + misses.get();
+        return total > 0 ? (double) hits.get() / total : 0;
+    }
+
+    /**
+     * The time the filters took when they were evaluated, summed over all hits.
+     */
+    public long getSavedNanos() {
+        return savedNanos.get();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        totalBytes = 0;
+    }
+
+    private <T> int[] indexes(VersionedList<T> list, Object queryKey, Predicate<? super T> predicate) {
+        Key key = new Key(list.getId(), Objects.requireNonNull(queryKey, "queryKey"));
+        long version = list.getVersion();
+        int[] indexes = lookup(key, version);
+        if (indexes == null) {
+            long start = System.nanoTime();
+            indexes = evaluate(list, predicate);
+            store(key, new Entry(version, indexes, System.nanoTime() - start));
+        }
+        return indexes;
+    }
+
+    private static <T> int[] evaluate(List<T> list, Predicate<? super T> predicate) {
+        int[] indexes = new int[Math.min(list.size(), 16)];
+        int count = 0;
+        for (int i = 0; i < list.size(); i++) {
+            if (predicate.test(list.get(i))) {
+                if (count == indexes.length) {
+                    indexes = Arrays.copyOf(indexes, Math.min(list.size(), count * 2));
+                }
+                indexes[count++] = i;
+            }
+        }
+        return Arrays.copyOf(indexes, count);
+    }
+
+    private synchronized int[] lookup(Key key, long version) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.version == version) {
+            hits.incrementAndGet();
+            savedNanos.addAndGet(entry.evaluationNanos);
+            return entry.indexes;
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Stores the entry (replacing the result of an older version) and evicts least recently used entries
+     * until the cache fits again.
+     */
+    private synchronized void store(Key key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            totalBytes -= previous.bytes();
+        }
+        totalBytes += entry.bytes();
+        Iterator<Map.Entry<Key, Entry>> iterator = entries.entrySet().iterator();
+        // The newest entry is always kept, even when it is larger than the cache on its own.
+        while (totalBytes > maxBytes && entries.size() > 1) {
+            Map.Entry<Key, Entry> eldest = iterator.next();
+            totalBytes -= eldest.getValue().bytes();
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private static final class Key {
+
+        private final long listId;
+        private final Object queryKey;
+
+        private Key(long listId, Object queryKey) {
+            this.listId = listId;
+            this.queryKey = queryKey;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return listId == other.listId && queryKey.equals(other.queryKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(listId) + queryKey.hashCode();
+        }
+    }
+
+    private static final class Entry {
+
+        private final long version;
+        private final int[] indexes;
+        private final long evaluationNanos;
+
+        private Entry(long version, int[] indexes, long evaluationNanos) {
+            this.version = version;
+            this.indexes = indexes;
+            this.evaluationNanos = evaluationNanos;
+        }
+
+        private long bytes() {
+            return ENTRY_OVERHEAD + 4L * indexes.length;
+        }
+    }
+
+    private static final class ResultView<T> extends AbstractList<T> implements RandomAccess {
+
+        private final VersionedList<T> list;
+        private final long version;
+        private final int[] indexes;
+
+        private ResultView(VersionedList<T> list, int[] indexes) {
+            this.list = list;
+            this.version = list.getVersion();
+            this.indexes = indexes;
+        }
+
+        @Override
+        public T get(int index) {
+            if (list.getVersion() != version) {
+                throw new ConcurrentModificationException("The list has changed since the query");
+            }
+            return list.get(indexes[index]);
+        }
+
+        @Override
+        public int size() {
+            return indexes.length;
+        }
+    }
+}
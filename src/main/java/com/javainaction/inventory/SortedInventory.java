@@ -0,0 +1,201 @@
+package com.javainaction.inventory;
+
+import com.javainaction.entities.Apple;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.ToIntFunction;
+
+/**
+ * Items sorted on a primitive int key (e.g. the weight of an apple), for threshold queries without a scan:
+ * filterHeavyApples(inventory, weight) looks at every apple, greaterThan(weight) does a binary search.
+ * <p>
+ * The keys are kept in an int[] next to the items, so the binary search does not unbox or dereference.
+ * The query methods return a view on a range of the sorted arrays: nothing is copied, whatever the size of the result.
+ * <p>
+ * add() and addAll() do not sort again: the new items are collected in a pending batch. Before the next query
+ * the batch is sorted and merged with the sorted items in one linear pass.
+ * A merge writes new arrays, so a view taken earlier keeps showing the items as they were (a snapshot).
+ * Items with equal keys keep their insertion order. A SortedInventory is not thread safe.
+ */
+public class SortedInventory<T> {
+
+    private final ToIntFunction<? super T> key;
+    private int[] keys = new int[0];
+    private Object[] items = new Object[0];
+    private final List<T> pending = new ArrayList<>();
+
+    public SortedInventory(ToIntFunction<? super T> key) {
+        this.key = key;
+    }
+
+    public static SortedInventory<Apple> byWeight(Collection<Apple> apples) {
+        SortedInventory<Apple> inventory = new SortedInventory<>(Apple::getWeight);
+        inventory.addAll(apples);
+        return inventory;
+    }
+
+    public void add(T item) {
+        pending.add(item);
+    }
+
+    public void addAll(Collection<? extends T> batch) {
+        pending.addAll(batch);
+    }
+
+    public int size() {
+        return keys.length + pending.size();
+    }
+
+    /**
+     * Items with key > value, in ascending key order (Apple.isHeavyApple(apple, weight) for an inventory by weight).
+     */
+    public List<T> greaterThan(int value) {
+        merge();
+        return new View<>(items, upperBound(value), keys.length);
+    }
+
+    public List<T> lessThan(int value) {
+        merge();
+        return new View<>(items, 0, lowerBound(value));
+    }
+
+    /**
+     * Items with minimum <= key <= maximum.
+     */
+    public List<T> between(int minimum, int maximum) {
+        merge();
+        int from = lowerBound(minimum);
+        return new View<>(items, from, Math.max(from, upperBound(maximum)));
+    }
+
+    public int countGreaterThan(int value) {
+        merge();
+        return keys.length - upperBound(value);
+    }
+
+    public int countBetween(int minimum, int maximum) {
+        merge();
+        return Math.max(0, upperBound(maximum) - lowerBound(minimum));
+    }
+
+    /**
+     * All items in ascending key order.
+     */
+    public List<T> asList() {
+        merge();
+        return new View<>(items, 0, keys.length);
+    }
+
+    // Index of the first key >= value.
+    private int lowerBound(int value) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    // Index of the first key > value.
+    private int upperBound(int value) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (keys[middle] <= value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Sorts the pending batch and merges it into new arrays.
+     * The key of every item is extracted once: (key, position) is packed into a long, key in the high half,
+     * so sorting the longs orders on the key, and on equal keys on the position (stable, like List.sort).
+     */
+    private void merge() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        int batchSize = pending.size();
+        long[] order = new long[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            order[i] = (long) key.applyAsInt(pending.get(i)) << 32 | i;
+        }
+        Arrays.sort(order);
+        int[] batchKeys = new int[batchSize];
+        Object[] batch = new Object[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            batchKeys[i] = (int) (order[i] >> 32);
+            batch[i] = pending.get((int) order[i]);
+        }
+        int[] mergedKeys = new int[keys.length + batchSize];
+        Object[] mergedItems = new Object[keys.length + batchSize];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < mergedKeys.length; k++) {
+            // On equal keys the existing item goes first: it was added earlier.
+            if (j == batchSize || (i < keys.length && keys[i] <= batchKeys[j])) {
+                mergedKeys[k] = keys[i];
+                mergedItems[k] = items[i++];
+            } else {
+                mergedKeys[k] = batchKeys[j];
+                mergedItems[k] = batch[j++];
+            }
+        }
+        keys = mergedKeys;
+        items = mergedItems;
+        pending.clear();
+    }
+
+    /**
+     * Read-only view on a range of the sorted arrays.
+     */
+    private static final class View<T> extends AbstractList<T> implements RandomAccess {
+
+        private final Object[] items;
+        private final int from;
+        private final int to;
+
+        private View(Object[] items, int from, int to) {
+            this.items = items;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get(int index) {
+            if (index < 0 || index >= to - from) {
+                throw new IndexOutOfBoundsException("Index " + index + ", size " + (to - from));
+            }
+            return (T) items[from + index];
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        @Override
+        public List<T> subList(int fromIndex, int toIndex) {
+            if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+                throw new IndexOutOfBoundsException("Range " + fromIndex + "-" + toIndex + ", size " + size());
+            }
+            return new View<>(items, from + fromIndex, from + toIndex);
+        }
+    }
+}
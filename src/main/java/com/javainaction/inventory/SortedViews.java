@@ -0,0 +1,278 @@
+package com.javainaction.inventory;
+
+import com.javainaction.entities.Apple;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static java.util.Comparator.comparing;
+
+/**
+ * A collection that keeps its items sorted in one or more named orderings, so nothing has to be copied and
+ * sorted again (as in Sorting: new ArrayList<>(inventory) followed by sort()) after every change.
+ * <p>
+ * Every ordering (view) is a ConcurrentSkipListSet: add() and remove() cost O(log n) per view,
+ * and the views are always sorted. Equal items are ordered by the time they were added.
+ * <p>
+ * Readers work on a Snapshot: a consistent state of all views at one version, that is not affected by
+ * later changes and does not block the writers (multi-version, like a database):
+ * - every change gets the next version; an entry remembers the version in which it was added and removed;
+ * - a snapshot at version v shows the entries added at or before v and not removed at or before v;
+ * - a removed entry stays in the views until no open snapshot can see it any more; then the next change
+ *   removes it. Close a snapshot (try-with-resources) so removed entries do not pile up.
+ * Writers (add, remove, addView) are serialized; readers never lock.
+ * The ordering of an item must not change while it is in the collection: remove it, change it and add it again.
+ */
+public class SortedViews<T> {
+
+    // All entries (also the removed ones that are still visible) in the order they were added.
+    private final ConcurrentSkipListMap<Long, Entry<T>> all = new ConcurrentSkipListMap<>();
+    private final Map<String, ConcurrentSkipListSet<Entry<T>>> views = new ConcurrentHashMap<>();
+    // Only used by the (serialized) writers.
+    private final Map<T, Entry<T>> entries = new IdentityHashMap<>();
+    private final ConcurrentLinkedQueue<Entry<T>> removed = new ConcurrentLinkedQueue<>();
+    private final ConcurrentSkipListSet<Snapshot> openSnapshots = new ConcurrentSkipListSet<>(
+            comparing((Snapshot snapshot) -> snapshot.version).thenComparing(snapshot -> snapshot.token));
+    private final AtomicLong tokens = new AtomicLong();
+    private volatile long version;
+    private long sequence;
+
+    /**
+     * Sorted views of apples: "weight" (ascending) and "heaviest" (weight descending, then color).
+     */
+    public static SortedViews<Apple> ofApples(List<Apple> apples) {
+        SortedViews<Apple> views = new SortedViews<>();
+        views.addView("weight", comparing(Apple::getWeight));
+        views.addView("heaviest", comparing(Apple::getWeight).reversed().thenComparing(Apple::getColor));
+        views.addAll(apples);
+        return views;
+    }
+
+    /**
+     * Adds a view with the given ordering, filled with the current items.
+     */
+    public synchronized void addView(String name, Comparator<? super T> comparator) {
+        if (views.containsKey(name)) {
+            throw new IllegalArgumentException("View already exists: " + name);
+        }
+        ConcurrentSkipListSet<Entry<T>> view = new ConcurrentSkipListSet<>((Entry<T> first, Entry<T> second) -> {
+            int result = comparator.compare(first.item, second.item);
+            return result != 0 ? result : Long.compare(first.sequence, second.sequence);
+        });
+        // Includes the removed entries that open snapshots can still see.
+        view.addAll(all.values());
+        views.put(name, view);
+    }
+
+    /**
+     * Adds an item to all views. Returns false when the same instance is in the collection already.
+     */
+    public synchronized boolean add(T item) {
+        if (entries.containsKey(item)) {
+            return false;
+        }
+        Entry<T> entry = new Entry<>(item, sequence++, version + 1);
+        entries.put(item, entry);
+        all.put(entry.sequence, entry);
+        for (ConcurrentSkipListSet<Entry<T>> view : views.values()) {
+            view.add(entry);
+        }
+        publish();
+        return true;
+    }
+
+    public synchronized void addAll(Iterable<? extends T> items) {
+        for (T item : items) {
+            add(item);
+        }
+    }
+
+    /**
+     * Removes the instance item from all views. Returns false when it is not in the collection.
+     */
+    public synchronized boolean remove(T item) {
+        Entry<T> entry = entries.remove(item);
+        if (entry == null) {
+            return false;
+        }
+        entry.removedVersion = version + 1;
+        removed.add(entry);
+        publish();
+        return true;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * The number of entries in the views: the items plus the removed entries that open snapshots can still see.
+     */
+    int retainedSize() {
+        return all.size();
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * A snapshot of the current version. Must be closed.
+     */
+    public Snapshot snapshot() {
+        while (true) {
+            Snapshot snapshot = new Snapshot(version, tokens.incrementAndGet());
+            openSnapshots.add(snapshot);
+            // When a change was published in between, a purge might have missed this snapshot: try again.
+            if (version == snapshot.version) {
+                return snapshot;
+            }
+            openSnapshots.remove(snapshot);
+        }
+    }
+
+    /**
+     * The items of view in order, at the current version.
+     */
+    public List<T> toList(String view) {
+        try (Snapshot snapshot = snapshot()) {
+            return snapshot.toList(view);
+        }
+    }
+
+    private void publish() {
+        version++;
+        purge();
+    }
+
+    // Physically removes the removed entries that no open snapshot can see. The queue is in order of removal.
+    private void purge() {
+        long oldest = openSnapshots.isEmpty() ? version : openSnapshots.first().version;
+        Entry<T> entry;
+        while ((entry = removed.peek()) != null && entry.removedVersion <= oldest) {
+            removed.poll();
+            all.remove(entry.sequence);
+            for (ConcurrentSkipListSet<Entry<T>> view : views.values()) {
+                view.remove(entry);
+            }
+        }
+    }
+
+    private static final class Entry<T> {
+
+        private final T item;
+        private final long sequence;
+        private final long addedVersion;
+        private volatile long removedVersion = Long.MAX_VALUE;
+
+        private Entry(T item, long sequence, long addedVersion) {
+            this.item = item;
+            this.sequence = sequence;
+            this.addedVersion = addedVersion;
+        }
+
+        private boolean isVisible(long version) {
+            return addedVersion <= version && removedVersion > version;
+        }
+    }
+
+    /**
+     * The views at one version. Iterating a view walks the skip list and skips the entries that are not visible.
+     */
+    public final class Snapshot implements AutoCloseable {
+
+        private final long version;
+        private final long token;
+
+        private Snapshot(long version, long token) {
+            this.version = version;
+            this.token = token;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public Iterator<T> iterator(String view) {
+            Iterator<Entry<T>> source = view(view).iterator();
+            return new Iterator<T>() {
+                private Entry<T> next;
+
+                @Override
+                public boolean hasNext() {
+                    while (next == null && source.hasNext()) {
+                        Entry<T> candidate = source.next();
+                        if (candidate.isVisible(version)) {
+                            next = candidate;
+                        }
+                    }
+                    return next != null;
+                }
+
+                @Override
+                public T next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    T item = next.item;
+                    next = null;
+                    return item;
+                }
+            };
+        }
+
+        public Stream<T> stream(String view) {
+            return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator(view),
+                    Spliterator.ORDERED | Spliterator.NONNULL), false);
+        }
+
+        public List<T> toList(String view) {
+            List<T> list = new ArrayList<>();
+            iterator(view).forEachRemaining(list::add);
+            return list;
+        }
+
+        public Optional<T> first(String view) {
+            Iterator<T> iterator = iterator(view);
+            return iterator.hasNext() ? Optional.of(iterator.next()) : Optional.empty();
+        }
+
+        public int size() {
+            int size = 0;
+            for (Entry<T> entry : all.values()) {
+                if (entry.isVisible(version)) {
+                    size++;
+                }
+            }
+            return size;
+        }
+
+        @Override
+        public void close() {
+            openSnapshots.remove(this);
+        }
+
+        private ConcurrentSkipListSet<Entry<T>> view(String name) {
+            ConcurrentSkipListSet<Entry<T>> view = views.get(name);
+            if (view == null) {
+                throw new IllegalArgumentException("No view " + name);
+            }
+            return view;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.javainaction.inventory;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An ArrayList-backed list with a version that is incremented by every change (add, remove, set),
+ * so a QueryCache can tell whether a cached result still applies.
+ * <p>
+ * The list cannot see changes inside its items, e.g. Apple.setColor(): call touch() after such a change.
+ * Every VersionedList has a unique id, so the cache does not have to hold on to the list itself.
+ * A VersionedList is not thread safe.
+ */
+public class VersionedList<T> extends AbstractList<T> implements RandomAccess {
+
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+
+    private final long id = NEXT_ID.getAndIncrement();
+    private final List<T> items;
+    private long version;
+
+    public VersionedList() {
+        items = new ArrayList<>();
+    }
+
+    public VersionedList(Collection<? extends T> items) {
+        this.items = new ArrayList<>(items);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Marks the list as changed, e.g. after changing an item.
+     */
+    public void touch() {
+        version++;
+    }
+
+    @Override
+    public T get(int index) {
+        return items.get(index);
+    }
+
+    @Override
+    public int size() {
+        return items.size();
+    }
+
+    @Override
+    public T set(int index, T item) {
+        T previous = items.set(index, item);
+        version++;
+        return previous;
+    }
+
+    @Override
+    public void add(int index, T item) {
+        items.add(index, item);
+        version++;
+        modCount++;
+    }
+
+    @Override
+    public T remove(int index) {
+        T removed = items.remove(index);
+        version++;
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        items.clear();
+        version++;
+        modCount++;
+    }
+}
@@ -0,0 +1,53 @@
+package com.javainaction.utilities;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A reusable int[] sink for the indexes of selected items; the primitive counterpart of ResultBuffer,
+ * with the same contract: filters only write into an empty buffer, reset() empties it and keeps the capacity.
+ * An IndexBuffer is not thread safe: use one per thread.
+ */
+public class IndexBuffer implements IntConsumer {
+
+    private int[] indexes;
+    private int size;
+
+    public IndexBuffer(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must not be negative");
+        }
+        indexes = new int[capacity];
+    }
+
+    @Override
+    public void accept(int index) {
+        if (size == indexes.length) {
+            indexes = Arrays.copyOf(indexes, Math.max(16, size + (size >> 1)));
+        }
+        indexes[size++] = index;
+    }
+
+    public int get(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException("Position " + position + ", size " + size);
+        }
+        return indexes[position];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(indexes, size);
+    }
+
+    public void reset() {
+        size = 0;
+    }
+}
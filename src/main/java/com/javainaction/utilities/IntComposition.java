@@ -0,0 +1,236 @@
+package com.javainaction.utilities;
+
+import java.util.Arrays;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * A composed int function without boxing, as an alternative for Function<Integer, Integer>.andThen() and compose(),
+ * which box and unbox the value at every step and nest one lambda per step.
+ * <p>
+ * A composition is a flat array of steps, applied in one loop:
+ * - add(c) and multiply(c) are affine steps (x * m + c). Adjacent affine steps are folded into one:
+ *   (x * m1 + c1) * m2 + c2 = x * (m1 * m2) + (c1 * m2 + c2). This is exact, also when the int overflows,
+ *   so add(1).thenMultiply(2).thenAdd(-2) is the single step x * 2;
+ * - any other IntUnaryOperator is a step of its own; the steps of a composition that is added are copied,
+ *   so compositions of compositions stay flat.
+ * applyTo(int[]) applies the steps to a whole array, one step at a time (an affine step is a simple loop),
+ * and reduce() folds a SUM of an affine composition into one multiplication: sum(x * m + c) = sum(x) * m + n * c.
+ */
+public final class IntComposition implements IntUnaryOperator {
+
+    public static final IntBinaryOperator SUM = Integer::sum;
+    public static final IntBinaryOperator PRODUCT = (int a, int b) -> a * b;
+    public static final IntBinaryOperator MIN = Math::min;
+    public static final IntBinaryOperator MAX = Math::max;
+
+    private static final IntComposition IDENTITY = new IntComposition(new IntUnaryOperator[0]);
+
+    // Never two affine steps next to each other, and no identity steps.
+    private final IntUnaryOperator[] steps;
+
+    private IntComposition(IntUnaryOperator[] steps) {
+        this.steps = steps;
+    }
+
+    public static IntComposition identity() {
+        return IDENTITY;
+    }
+
+    public static IntComposition add(int addend) {
+        return IDENTITY.thenAdd(addend);
+    }
+
+    public static IntComposition multiply(int multiplier) {
+        return IDENTITY.thenMultiply(multiplier);
+    }
+
+    public static IntComposition of(IntUnaryOperator operator) {
+        return operator instanceof IntComposition ? (IntComposition) operator : IDENTITY.andThen(operator);
+    }
+
+    public IntComposition thenAdd(int addend) {
+        return append(new Affine(1, addend));
+    }
+
+    public IntComposition thenMultiply(int multiplier) {
+        return append(new Affine(multiplier, 0));
+    }
+
+    @Override
+    public IntComposition andThen(IntUnaryOperator after) {
+        if (after instanceof IntComposition) {
+            IntComposition result = this;
+            for (IntUnaryOperator step : ((IntComposition) after).steps) {
+                result = result.append(step);
+            }
+            return result;
+        }
+        return append(after);
+    }
+
+    @Override
+    public IntComposition compose(IntUnaryOperator before) {
+        return of(before).andThen(this);
+    }
+
+    @Override
+    public int applyAsInt(int value) {
+        int result = value;
+        for (IntUnaryOperator step : steps) {
+            result = step.applyAsInt(result);
+        }
+        return result;
+    }
+
+    /**
+     * True when the composition is one affine step (x * m + c) or the identity.
+     */
+    public boolean isAffine() {
+        return steps.length == 0 || (steps.length == 1 && steps[0] instanceof Affine);
+    }
+
+    public int getNumberOfSteps() {
+        return steps.length;
+    }
+
+    /**
+     * Applies the composition to every value, in place.
+     */
+    public void applyTo(int[] values) {
+        apply(values, values);
+    }
+
+    public void apply(int[] source, int[] target) {
+        if (target.length < source.length) {
+            throw new IllegalArgumentException("target is shorter than source: " + target.length + " < " + source.length);
+        }
+        if (steps.length == 0) {
+            System.arraycopy(source, 0, target, 0, source.length);
+            return;
+        }
+        int[] from = source;
+        for (IntUnaryOperator step : steps) {
+            if (step instanceof Affine) {
+                int multiplier = ((Affine) step).multiplier;
+                int addend = ((Affine) step).addend;
+                for (int i = 0; i < source.length; i++) {
+                    target[i] = from[i] * multiplier + addend;
+                }
+            } else {
+                for (int i = 0; i < source.length; i++) {
+                    target[i] = step.applyAsInt(from[i]);
+                }
+            }
+            from = target;
+        }
+    }
+
+    /**
+     * Applies the composition to every value and combines the results with operator, starting with identity,
+     * without an intermediate array. SUM, PRODUCT, MIN and MAX are recognized and need no call per value.
+     */
+    public int reduce(int[] values, int identity, IntBinaryOperator operator) {
+        if (operator == SUM && isAffine()) {
+            int sum = 0;
+            for (int value : values) {
+                sum += value;
+            }
+            return identity + applyAsAffine(sum, values.length);
+        }
+        int result = identity;
+        if (operator == SUM) {
+            for (int value : values) {
+                result += applyAsInt(value);
+            }
+        } else if (operator == PRODUCT) {
+            for (int value : values) {
+                result *= applyAsInt(value);
+            }
+        } else if (operator == MIN) {
+            for (int value : values) {
+                result = Math.min(result, applyAsInt(value));
+            }
+        } else if (operator == MAX) {
+            for (int value : values) {
+                result = Math.max(result, applyAsInt(value));
+            }
+        } else {
+            for (int value : values) {
+                result = operator.applyAsInt(result, applyAsInt(value));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        if (steps.length == 0) {
+            return "x";
+        }
+        StringBuilder builder = new StringBuilder("x");
+        for (IntUnaryOperator step : steps) {
+            if (step instanceof Affine) {
+                Affine affine = (Affine) step;
+                if (affine.multiplier != 1) {
+                    builder.append(" * ").append(affine.multiplier);
+                }
+                if (affine.addend != 0) {
+                    builder.append(affine.addend < 0 ? " - " : " + ").append(Math.abs((long) affine.addend));
+                }
+            } else {
+                builder.insert(0, "f(").append(")");
+            }
+        }
+        return builder.toString();
+    }
+
+    // sum(x * m + c) over count values, given sum(x).
+    private int applyAsAffine(int sum, int count) {
+        if (steps.length == 0) {
+            return sum;
+        }
+        Affine affine = (Affine) steps[0];
+        return sum * affine.multiplier + count * affine.addend;
+    }
+
+    private IntComposition append(IntUnaryOperator step) {
+        int length = steps.length;
+        if (step instanceof Affine && length > 0 && steps[length - 1] instanceof Affine) {
+            Affine last = (Affine) steps[length - 1];
+            Affine next = (Affine) step;
+            Affine folded = new Affine(last.multiplier * next.multiplier, last.addend * next.multiplier + next.addend);
+            IntUnaryOperator[] result = Arrays.copyOf(steps, folded.isIdentity() ? length - 1 : length);
+            if (!folded.isIdentity()) {
+                result[length - 1] = folded;
+            }
+            return new IntComposition(result);
+        }
+        if (step instanceof Affine && ((Affine) step).isIdentity()) {
+            return this;
+        }
+        IntUnaryOperator[] result = Arrays.copyOf(steps, length + 1);
+        result[length] = step;
+        return new IntComposition(result);
+    }
+
+    private static final class Affine implements IntUnaryOperator {
+
+        private final int multiplier;
+        private final int addend;
+
+        private Affine(int multiplier, int addend) {
+            this.multiplier = multiplier;
+            this.addend = addend;
+        }
+
+        private boolean isIdentity() {
+            return multiplier == 1 && addend == 0;
+        }
+
+        @Override
+        public int applyAsInt(int value) {
+            return value * multiplier + addend;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.javainaction.utilities;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A lazy view on a List through a chain of filters and maps, instead of the full copy
+ * that Lambdas.filter and FilteringApples.filterItems make.
+ * <p>
+ * filter() and map() only create a new view object; nothing is evaluated until the view is used:
+ * - size() and isEmpty() count by walking the source, without storing anything;
+ * - first() stops at the first (non-null) element that passes the chain;
+ * - iterator() and forEach() evaluate the chain per element;
+ * - materialize() is the only method that copies: use it to keep a result (e.g. when the view is used many times).
+ * The view reflects the current content of the source list, and every use evaluates the chain again.
+ */
+public abstract class LazyView<T> implements Iterable<T> {
+
+    private LazyView() {
+    }
+
+    public static <T> LazyView<T> of(List<T> source) {
+        return new Source<>(source);
+    }
+
+    public LazyView<T> filter(Predicate<? super T> predicate) {
+        return new Filtered<>(this, predicate);
+    }
+
+    public <R> LazyView<R> map(Function<? super T, ? extends R> mapper) {
+        return new Mapped<>(this, mapper);
+    }
+
+    /**
+     * Passes the elements to sink until sink returns false. Returns false when sink stopped the traversal.
+     */
+    abstract boolean traverse(Predicate<? super T> sink);
+
+    public int size() {
+        int[] count = new int[1];
+        traverse((T t) -> {
+            count[0]++;
+            return true;
+        });
+        return count[0];
+    }
+
+    public boolean isEmpty() {
+        // Stops at the first element: only a view without elements is traversed completely.
+        return traverse((T t) -> false);
+    }
+
+    /**
+     * Returns the first element, evaluating the chain only up to that element. An Optional cannot hold null:
+     * null elements are skipped, so the result is only empty when the view has no non-null element.
+     */
+    public Optional<T> first() {
+        Object[] first = new Object[1];
+        traverse((T t) -> {
+            first[0] = t;
+            return t == null;
+        });
+        @SuppressWarnings("unchecked")
+        T result = (T) first[0];
+        return Optional.ofNullable(result);
+    }
+
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        traverse((T t) -> {
+            action.accept(t);
+            return true;
+        });
+    }
+
+    /**
+     * Copies the elements of the view into a new ArrayList.
+     */
+    public List<T> materialize() {
+        List<T> list = new ArrayList<>();
+        forEach(list::add);
+        return list;
+    }
+
+    /**
+     * The view as a read-only List, for methods that need one. Note that size() counts and get(i) walks
+     * up to element i every time: call materialize() when the elements are accessed by index more than once.
+     */
+    public List<T> asList() {
+        return new AbstractList<T>() {
+            @Override
+            public T get(int index) {
+                if (index < 0) {
+                    throw new IndexOutOfBoundsException("Index " + index);
+                }
+                int[] position = {0};
+                Object[] element = new Object[1];
+                boolean found = !traverse((T t) -> {
+                    if (position[0]++ == index) {
+                        element[0] = t;
+                        return false;
+                    }
+                    return true;
+                });
+                if (!found) {
+                    throw new IndexOutOfBoundsException("Index " + index + ", size " + position[0]);
+                }
+                @SuppressWarnings("unchecked")
+                T result = (T) element[0];
+                return result;
+            }
+
+            @Override
+            public int size() {
+                return LazyView.this.size();
+            }
+
+            @Override
+            public Iterator<T> iterator() {
+                return LazyView.this.iterator();
+            }
+        };
+    }
+
+    private static final class Source<T> extends LazyView<T> {
+
+        private final List<T> list;
+
+        private Source(List<T> list) {
+            this.list = list;
+        }
+
+        @Override
+        boolean traverse(Predicate<? super T> sink) {
+            for (T t : list) {
+                if (!sink.test(t)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int size() {
+            return list.size();
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return list.iterator();
+        }
+    }
+
+    private static final class Filtered<T> extends LazyView<T> {
+
+        private final LazyView<T> parent;
+        private final Predicate<? super T> predicate;
+
+        private Filtered(LazyView<T> parent, Predicate<? super T> predicate) {
+            this.parent = parent;
+            this.predicate = predicate;
+        }
+
+        @Override
+        boolean traverse(Predicate<? super T> sink) {
+            return parent.traverse((T t) -> !predicate.test(t) || sink.test(t));
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            Iterator<T> source = parent.iterator();
+            return new Iterator<T>() {
+                private T next;
+                private boolean ready;
+
+                @Override
+                public boolean hasNext() {
+                    while (!ready && source.hasNext()) {
+                        T candidate = source.next();
+                        if (predicate.test(candidate)) {
+                            next = candidate;
+                            ready = true;
+                        }
+                    }
+                    return ready;
+                }
+
+                @Override
+                public T next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    ready = false;
+                    T result = next;
+                    next = null;
+                    return result;
+                }
+            };
+        }
+    }
+
+    private static final class Mapped<S, T> extends LazyView<T> {
+
+        private final LazyView<S> parent;
+        private final Function<? super S, ? extends T> mapper;
+
+        private Mapped(LazyView<S> parent, Function<? super S, ? extends T> mapper) {
+            this.parent = parent;
+            this.mapper = mapper;
+        }
+
+        @Override
+        boolean traverse(Predicate<? super T> sink) {
+            return parent.traverse((S s) -> sink.test(mapper.apply(s)));
+        }
+
+        // A map does not change the number of elements: no need to apply the mapper to count them.
+        @Override
+        public int size() {
+            return parent.size();
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            Iterator<S> source = parent.iterator();
+            return new Iterator<T>() {
+                @Override
+                public boolean hasNext() {
+                    return source.hasNext();
+                }
+
+                @Override
+                public T next() {
+                    return mapper.apply(source.next());
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.javainaction.utilities;
+
+import java.util.Arrays;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * The long counterpart of IntComposition: a composed long function without boxing.
+ * <p>
+ * A composition is a flat array of steps, applied in one loop:
+ * - add(c) and multiply(c) are affine steps (x * m + c). Adjacent affine steps are folded into one:
+ *   (x * m1 + c1) * m2 + c2 = x * (m1 * m2) + (c1 * m2 + c2). This is exact, also when the long overflows,
+ *   so add(1).thenMultiply(2).thenAdd(-2) is the single step x * 2;
+ * - any other LongUnaryOperator is a step of its own; the steps of a composition that is added are copied,
+ *   so compositions of compositions stay flat.
+ * applyTo(long[]) applies the steps to a whole array, one step at a time (an affine step is a simple loop).
+ */
+public final class LongComposition implements LongUnaryOperator {
+
+    private static final LongComposition IDENTITY = new LongComposition(new LongUnaryOperator[0]);
+
+    // Never two affine steps next to each other, and no identity steps.
+    private final LongUnaryOperator[] steps;
+
+    private LongComposition(LongUnaryOperator[] steps) {
+        this.steps = steps;
+    }
+
+    public static LongComposition identity() {
+        return IDENTITY;
+    }
+
+    public static LongComposition add(long addend) {
+        return IDENTITY.thenAdd(addend);
+    }
+
+    public static LongComposition multiply(long multiplier) {
+        return IDENTITY.thenMultiply(multiplier);
+    }
+
+    public static LongComposition of(LongUnaryOperator operator) {
+        return operator instanceof LongComposition ? (LongComposition) operator : IDENTITY.andThen(operator);
+    }
+
+    public LongComposition thenAdd(long addend) {
+        return append(new Affine(1, addend));
+    }
+
+    public LongComposition thenMultiply(long multiplier) {
+        return append(new Affine(multiplier, 0));
+    }
+
+    @Override
+    public LongComposition andThen(LongUnaryOperator after) {
+        if (after instanceof LongComposition) {
+            LongComposition result = this;
+            for (LongUnaryOperator step : ((LongComposition) after).steps) {
+                result = result.append(step);
+            }
+            return result;
+        }
+        return append(after);
+    }
+
+    @Override
+    public LongComposition compose(LongUnaryOperator before) {
+        return of(before).andThen(this);
+    }
+
+    @Override
+    public long applyAsLong(long value) {
+        long result = value;
+        for (LongUnaryOperator step : steps) {
+            result = step.applyAsLong(result);
+        }
+        return result;
+    }
+
+    /**
+     * True when the composition is one affine step (x * m + c) or the identity.
+     */
+    public boolean isAffine() {
+        return steps.length == 0 || (steps.length == 1 && steps[0] instanceof Affine);
+    }
+
+    public int getNumberOfSteps() {
+        return steps.length;
+    }
+
+    /**
+     * Applies the composition to every value, in place.
+     */
+    public void applyTo(long[] values) {
+        apply(values, values);
+    }
+
+    public void apply(long[] source, long[] target) {
+        if (target.length < source.length) {
+            throw new IllegalArgumentException("target is shorter than source: " + target.length + " < " + source.length);
+        }
+        if (steps.length == 0) {
+            System.arraycopy(source, 0, target, 0, source.length);
+            return;
+        }
+        long[] from = source;
+        for (LongUnaryOperator step : steps) {
+            if (step instanceof Affine) {
+                long multiplier = ((Affine) step).multiplier;
+                long addend = ((Affine) step).addend;
+                for (int i = 0; i < source.length; i++) {
+                    target[i] = from[i] * multiplier + addend;
+                }
+            } else {
+                for (int i = 0; i < source.length; i++) {
+                    target[i] = step.applyAsLong(from[i]);
+                }
+            }
+            from = target;
+        }
+    }
+
+    @Override
+    public String toString() {
+        if (steps.length == 0) {
+            return "x";
+        }
+        StringBuilder builder = new StringBuilder("x");
+        for (LongUnaryOperator step : steps) {
+            if (step instanceof Affine) {
+                Affine affine = (Affine) step;
+                if (affine.multiplier != 1) {
+                    builder.append(" * ").append(affine.multiplier);
+                }
+                if (affine.addend != 0) {
+                    builder.append(affine.addend < 0 ? " - " : " + ").append(affine.addend == Long.MIN_VALUE ? "9223372036854775808" : String.valueOf(Math.abs(affine.addend)));
+                }
+            } else {
+                builder.insert(0, "f(").append(")");
+            }
+        }
+        return builder.toString();
+    }
+
+    private LongComposition append(LongUnaryOperator step) {
+        int length = steps.length;
+        if (step instanceof Affine && length > 0 && steps[length - 1] instanceof Affine) {
+            Affine last = (Affine) steps[length - 1];
+            Affine next = (Affine) step;
+            Affine folded = new Affine(last.multiplier * next.multiplier, last.addend * next.multiplier + next.addend);
+            LongUnaryOperator[] result = Arrays.copyOf(steps, folded.isIdentity() ? length - 1 : length);
+            if (!folded.isIdentity()) {
+                result[length - 1] = folded;
+            }
+            return new LongComposition(result);
+        }
+        if (step instanceof Affine && ((Affine) step).isIdentity()) {
+            return this;
+        }
+        LongUnaryOperator[] result = Arrays.copyOf(steps, length + 1);
+        result[length] = step;
+        return new LongComposition(result);
+    }
+
+    private static final class Affine implements LongUnaryOperator {
+
+        private final long multiplier;
+        private final long addend;
+
+        private Affine(long multiplier, long addend) {
+            this.multiplier = multiplier;
+            this.addend = addend;
+        }
+
+        private boolean isIdentity() {
+            return multiplier == 1 && addend == 0;
+        }
+
+        @Override
+        public long applyAsLong(long value) {
+            return value * multiplier + addend;
+        }
+    }
+}
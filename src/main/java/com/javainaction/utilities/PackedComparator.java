@@ -0,0 +1,321 @@
+package com.javainaction.utilities;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * A comparator chain that can be compiled into packed primitive sort keys, for chains like
+ * comparing(Apple::getWeight).reversed().thenComparing(Apple::getColor).
+ * <p>
+ * It is built the same way as a Comparator chain, e.g.
+ * PackedComparator.byInt(Apple::getWeight).reversed().thenByString(Apple::getColor),
+ * and it is a normal Comparator as well. sort() does not compare elements, however:
+ * - every key is extracted once per element: an int, the ordinal of an enum or, for a String (or any other
+ *   Comparable), its rank in the sorted dictionary of the distinct values;
+ * - the range of every key over the elements determines its width in bits, and the keys are packed
+ *   (most significant first, descending keys inverted) into one long per element;
+ * - when the keys need more than 64 bits they are packed into several longs, which together form
+ *   one unsigned key that compares like a byte string;
+ * - the packed keys are radix sorted (RadixSort), which is stable like List.sort.
+ * A chain with a key that cannot be packed (a plain Comparator in thenComparing) is sorted with List.sort instead.
+ * <p>
+ * The methods inherited from Comparator return a PackedComparator as well, so the chain can be continued:
+ * thenComparingInt() and thenComparing(Function) add packable keys; thenComparingLong(), thenComparingDouble()
+ * and thenComparing(Function, Comparator) add a key that cannot be packed.
+ */
+public final class PackedComparator<T> implements Comparator<T> {
+
+    private final List<Key<T>> keys;
+
+    private PackedComparator(List<Key<T>> keys) {
+        this.keys = keys;
+    }
+
+    public static <T> PackedComparator<T> byInt(ToIntFunction<? super T> key) {
+        return new PackedComparator<T>(Collections.emptyList()).thenByInt(key);
+    }
+
+    public static <T, E extends Enum<E>> PackedComparator<T> byEnum(Function<? super T, E> key) {
+        return new PackedComparator<T>(Collections.emptyList()).thenByEnum(key);
+    }
+
+    public static <T> PackedComparator<T> byString(Function<? super T, String> key) {
+        return new PackedComparator<T>(Collections.emptyList()).thenByString(key);
+    }
+
+    /**
+     * Sorts list with comparator: packed when comparator is a PackedComparator, otherwise with List.sort.
+     */
+    public static <T> void sort(List<T> list, Comparator<? super T> comparator) {
+        if (comparator instanceof PackedComparator) {
+            @SuppressWarnings("unchecked")
+            PackedComparator<T> packed = (PackedComparator<T>) comparator;
+            packed.sort(list);
+        } else {
+            list.sort(comparator);
+        }
+    }
+
+    public PackedComparator<T> thenByInt(ToIntFunction<? super T> key) {
+        return then(new Key<T>(key, null, null, false));
+    }
+
+    public <E extends Enum<E>> PackedComparator<T> thenByEnum(Function<? super T, E> key) {
+        return then(new Key<T>((T t) -> key.apply(t).ordinal(), null, null, false));
+    }
+
+    public PackedComparator<T> thenByString(Function<? super T, String> key) {
+        return then(new Key<T>(null, key, null, false));
+    }
+
+    @Override
+    public PackedComparator<T> thenComparingInt(ToIntFunction<? super T> keyExtractor) {
+        return thenByInt(keyExtractor);
+    }
+
+    /**
+     * Adds a key that is packed by its rank among the distinct values, like a String key.
+     */
+    @Override
+    public <U extends Comparable<? super U>> PackedComparator<T> thenComparing(Function<? super T, ? extends U> keyExtractor) {
+        return then(new Key<T>(null, keyExtractor, null, false));
+    }
+
+    @Override
+    public <U> PackedComparator<T> thenComparing(Function<? super T, ? extends U> keyExtractor, Comparator<? super U> keyComparator) {
+        return thenComparing(Comparator.comparing(keyExtractor, keyComparator));
+    }
+
+    @Override
+    public PackedComparator<T> thenComparingLong(ToLongFunction<? super T> keyExtractor) {
+        return thenComparing(Comparator.comparingLong(keyExtractor));
+    }
+
+    @Override
+    public PackedComparator<T> thenComparingDouble(ToDoubleFunction<? super T> keyExtractor) {
+        return thenComparing(Comparator.comparingDouble(keyExtractor));
+    }
+
+    /**
+     * Adds the keys of comparator when it is a PackedComparator, e.g. thenComparing(byInt(Apple::getWeight).reversed())
+     * for a key with its own direction. Any other Comparator is added as a key that cannot be packed.
+     */
+    @Override
+    public PackedComparator<T> thenComparing(Comparator<? super T> comparator) {
+        if (comparator instanceof PackedComparator) {
+            @SuppressWarnings("unchecked")
+            PackedComparator<T> packed = (PackedComparator<T>) comparator;
+            List<Key<T>> chain = new ArrayList<>(keys);
+            chain.addAll(packed.keys);
+            return new PackedComparator<>(Collections.unmodifiableList(chain));
+        }
+        return then(new Key<T>(null, null, comparator, false));
+    }
+
+    /**
+     * Reverses the chain so far, like Comparator.reversed().
+     */
+    @Override
+    public PackedComparator<T> reversed() {
+        List<Key<T>> reversed = new ArrayList<>(keys.size());
+        for (Key<T> key : keys) {
+            reversed.add(key.reversed());
+        }
+        return new PackedComparator<>(Collections.unmodifiableList(reversed));
+    }
+
+    @Override
+    public int compare(T first, T second) {
+        for (Key<T> key : keys) {
+            int result = key.compare(first, second);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    }
+
+    public boolean isPackable() {
+        for (Key<T> key : keys) {
+            if (key.comparator != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void sort(List<T> list) {
+        sort(list, false);
+    }
+
+    public void parallelSort(List<T> list) {
+        sort(list, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void sort(List<T> list, boolean parallel) {
+        if (!isPackable()) {
+            list.sort(this);
+            return;
+        }
+        Object[] elements = list.toArray();
+        int[] order = order(pack(elements), elements.length, parallel);
+        ListIterator<T> iterator = list.listIterator();
+        for (int position : order) {
+            iterator.next();
+            iterator.set((T) elements[position]);
+        }
+    }
+
+    /**
+     * The packed keys: one or more words per element, the first word the most significant.
+     * A key is never split over two words.
+     */
+    private List<long[]> pack(Object[] elements) {
+        List<long[]> words = new ArrayList<>();
+        long[] word = null;
+        int used = 64;
+        for (Key<T> key : keys) {
+            int[] values = key.values(elements);
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            for (int value : values) {
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            long range = (long) max - min;
+            int bits = 64 - Long.numberOfLeadingZeros(range);
+            if (values.length == 0 || bits == 0) {
+                // A key that is the same for all elements does not change the order.
+                continue;
+            }
+            if (used + bits > 64) {
+                word = new long[elements.length];
+                words.add(word);
+                used = 0;
+            }
+            for (int i = 0; i < values.length; i++) {
+                long normalized = key.descending ? (long) max - values[i] : (long) values[i] - min;
+                word[i] = (word[i] << bits) | normalized;
+            }
+            used += bits;
+        }
+        return words;
+    }
+
+    /**
+     * LSD over the words: the least significant word first, then (stable) the more significant ones.
+     */
+    private static int[] order(List<long[]> words, int size, boolean parallel) {
+        int[] order = null;
+        for (int w = words.size() - 1; w >= 0; w--) {
+            long[] word = words.get(w);
+            long[] keys = new long[size];
+            long any = 0;
+            for (int i = 0; i < size; i++) {
+                keys[i] = order == null ? word[i] : word[order[i]];
+                any |= keys[i];
+            }
+            int bytes = (64 - Long.numberOfLeadingZeros(any) + 7) / 8;
+            int[] wordOrder = RadixSort.order(keys, bytes, parallel);
+            if (order == null) {
+                order = wordOrder;
+            } else {
+                int[] composed = new int[size];
+                for (int i = 0; i < size; i++) {
+                    composed[i] = order[wordOrder[i]];
+                }
+                order = composed;
+            }
+        }
+        if (order == null) {
+            // No key that differs between the elements: the order stays as it is.
+            order = new int[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+        }
+        return order;
+    }
+
+    private PackedComparator<T> then(Key<T> key) {
+        List<Key<T>> chain = new ArrayList<>(keys);
+        chain.add(key);
+        return new PackedComparator<>(Collections.unmodifiableList(chain));
+    }
+
+    /**
+     * One key of the chain: an int key, a Comparable key (e.g. a String) or (not packable) a Comparator.
+     */
+    private static final class Key<T> {
+
+        private final ToIntFunction<? super T> intKey;
+        private final Function<? super T, ? extends Comparable<?>> comparableKey;
+        private final Comparator<? super T> comparator;
+        private final boolean descending;
+
+        private Key(ToIntFunction<? super T> intKey, Function<? super T, ? extends Comparable<?>> comparableKey,
+                    Comparator<? super T> comparator, boolean descending) {
+            this.intKey = intKey;
+            this.comparableKey = comparableKey;
+            this.comparator = comparator;
+            this.descending = descending;
+        }
+
+        private Key<T> reversed() {
+            return new Key<>(intKey, comparableKey, comparator, !descending);
+        }
+
+        @SuppressWarnings("unchecked")
+        private int compare(T first, T second) {
+            int result;
+            if (intKey != null) {
+                result = Integer.compare(intKey.applyAsInt(first), intKey.applyAsInt(second));
+            } else if (comparableKey != null) {
+                result = ((Comparable<Object>) comparableKey.apply(first)).compareTo(comparableKey.apply(second));
+            } else {
+                result = comparator.compare(first, second);
+            }
+            return descending ? -result : result;
+        }
+
+        /**
+         * The key of every element as an int with the same (ascending) order.
+         */
+        @SuppressWarnings("unchecked")
+        private int[] values(Object[] elements) {
+            int[] values = new int[elements.length];
+            if (intKey != null) {
+                for (int i = 0; i < elements.length; i++) {
+                    values[i] = intKey.applyAsInt((T) elements[i]);
+                }
+                return values;
+            }
+            // Dictionary encoding: the rank of the value among the distinct values. A TreeMap (not a HashMap)
+            // so values that compare as equal get the same rank, also when they are not equals() (e.g. BigDecimal).
+            Object[] keys = new Object[elements.length];
+            Map<Object, Integer> ranks = new TreeMap<>();
+            for (int i = 0; i < elements.length; i++) {
+                keys[i] = comparableKey.apply((T) elements[i]);
+                ranks.put(keys[i], 0);
+            }
+            int rank = 0;
+            for (Map.Entry<Object, Integer> entry : ranks.entrySet()) {
+                entry.setValue(rank++);
+            }
+            for (int i = 0; i < elements.length; i++) {
+                values[i] = ranks.get(keys[i]);
+            }
+            return values;
+        }
+    }
+}
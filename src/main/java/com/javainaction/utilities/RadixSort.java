@@ -0,0 +1,156 @@
+package com.javainaction.utilities;
+
+import java.util.List;
+import java.util.ListIterator;
+import java.util.function.IntConsumer;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Stable sort of a List by an int or long key, without comparisons: an alternative for
+ * list.sort(comparing(Apple::getWeight)), which unboxes both keys in every one of the O(n log n) comparisons.
+ * <p>
+ * The sort works in three steps:
+ * - the keys are extracted once, into a long[] next to an int[] of the original positions;
+ * - an LSD radix sort orders the (key, position) pairs one byte at a time, least significant byte first.
+ *   Every pass is a stable counting sort; a pass in which all keys have the same byte is skipped,
+ *   so small keys (weights, calories) take one or two passes instead of four;
+ * - the list is rewritten in the sorted order, the same way List.sort does it (with a ListIterator).
+ * Equal keys keep their order, so the result is the same as that of List.sort with the matching comparator.
+ * <p>
+ * The parallel variants split every pass over chunks: per chunk a histogram, then the start position of every
+ * (byte, chunk) combination, then a parallel scatter. Below PARALLEL_THRESHOLD elements they sort sequentially.
+ */
+public final class RadixSort {
+
+    static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    private static final int RADIX = 256;
+
+    private RadixSort() {
+    }
+
+    public static <T> void sortByInt(List<T> list, ToIntFunction<? super T> key) {
+        sort(list, toLongKey(key), Integer.BYTES, false);
+    }
+
+    public static <T> void sortByLong(List<T> list, ToLongFunction<? super T> key) {
+        sort(list, (T t) -> key.applyAsLong(t) ^ Long.MIN_VALUE, Long.BYTES, false);
+    }
+
+    public static <T> void parallelSortByInt(List<T> list, ToIntFunction<? super T> key) {
+        sort(list, toLongKey(key), Integer.BYTES, true);
+    }
+
+    public static <T> void parallelSortByLong(List<T> list, ToLongFunction<? super T> key) {
+        sort(list, (T t) -> key.applyAsLong(t) ^ Long.MIN_VALUE, Long.BYTES, true);
+    }
+
+    /**
+     * The sorted order of the keys: the positions in keys, from the smallest to the largest (unsigned) key.
+     * The keys array is used as work space.
+     */
+    static int[] order(long[] keys, int bytes, boolean parallel) {
+        int size = keys.length;
+        int chunks = parallel && size >= PARALLEL_THRESHOLD
+                ? Math.min(4 * Runtime.getRuntime().availableProcessors(), size / 4096)
+                : 1;
+        long[] sourceKeys = keys;
+        int[] sourcePositions = new int[size];
+        for (int i = 0; i < size; i++) {
+            sourcePositions[i] = i;
+        }
+        long[] targetKeys = new long[size];
+        int[] targetPositions = new int[size];
+        for (int shift = 0; shift < 8 * bytes; shift += 8) {
+            if (pass(shift, chunks, sourceKeys, sourcePositions, targetKeys, targetPositions)) {
+                long[] keysSwap = sourceKeys;
+                sourceKeys = targetKeys;
+                targetKeys = keysSwap;
+                int[] positionsSwap = sourcePositions;
+                sourcePositions = targetPositions;
+                targetPositions = positionsSwap;
+            }
+        }
+        return sourcePositions;
+    }
+
+    // Maps the signed key onto an unsigned one with the same order.
+    private static <T> ToLongFunction<T> toLongKey(ToIntFunction<? super T> key) {
+        return (T t) -> (key.applyAsInt(t) ^ Integer.MIN_VALUE) & 0xFFFF_FFFFL;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void sort(List<T> list, ToLongFunction<? super T> key, int bytes, boolean parallel) {
+        Object[] elements = list.toArray();
+        long[] keys = new long[elements.length];
+        if (parallel && elements.length >= PARALLEL_THRESHOLD) {
+            IntStream.range(0, elements.length).parallel().forEach(i -> keys[i] = key.applyAsLong((T) elements[i]));
+        } else {
+            for (int i = 0; i < elements.length; i++) {
+                keys[i] = key.applyAsLong((T) elements[i]);
+            }
+        }
+        int[] order = order(keys, bytes, parallel);
+        ListIterator<T> iterator = list.listIterator();
+        for (int position : order) {
+            iterator.next();
+            iterator.set((T) elements[position]);
+        }
+    }
+
+    /**
+     * One counting sort pass on the byte at shift. Returns false (and leaves target untouched)
+     * when all keys have the same byte, because the pass would not change the order.
+     */
+    private static boolean pass(int shift, int chunks, long[] sourceKeys, int[] sourcePositions,
+                                long[] targetKeys, int[] targetPositions) {
+        int size = sourceKeys.length;
+        int[][] counts = new int[chunks][];
+        forEachChunk(chunks, chunk -> {
+            int[] count = new int[RADIX];
+            for (int i = start(chunk, chunks, size), end = start(chunk + 1, chunks, size); i < end; i++) {
+                count[(int) (sourceKeys[i] >>> shift) & 0xFF]++;
+            }
+            counts[chunk] = count;
+        });
+
+        // Turn the counts into start positions: per byte value, the chunks in order.
+        int next = 0;
+        for (int digit = 0; digit < RADIX; digit++) {
+            int total = 0;
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                int count = counts[chunk][digit];
+                counts[chunk][digit] = next + total;
+                total += count;
+            }
+            if (total == size) {
+                return false;
+            }
+            next += total;
+        }
+
+        forEachChunk(chunks, chunk -> {
+            int[] offsets = counts[chunk];
+            for (int i = start(chunk, chunks, size), end = start(chunk + 1, chunks, size); i < end; i++) {
+                int target = offsets[(int) (sourceKeys[i] >>> shift) & 0xFF]++;
+                targetKeys[target] = sourceKeys[i];
+                targetPositions[target] = sourcePositions[i];
+            }
+        });
+        return true;
+    }
+
+    private static int start(int chunk, int chunks, int size) {
+        return (int) ((long) size * chunk / chunks);
+    }
+
+    private static void forEachChunk(int chunks, IntConsumer action) {
+        if (chunks == 1) {
+            action.accept(0);
+        } else {
+            IntStream.range(0, chunks).parallel().forEach(action);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.javainaction.utilities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A reusable buffer for filter results, so a filter called in a loop does not create a new ArrayList every time.
+ * <p>
+ * The contract for reuse (and for keeping buffers in a pool):
+ * - a filter only writes into an empty buffer; a buffer that still holds a previous result is refused;
+ * - reset() empties the buffer and clears the references, so a pooled buffer does not keep items alive;
+ * - the capacity is kept, so once the buffer has grown to the largest result, adding does not allocate.
+ * A ResultBuffer is not thread safe: use one per thread.
+ */
+public class ResultBuffer<T> {
+
+    private Object[] elements;
+    private int size;
+
+    public ResultBuffer(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must not be negative");
+        }
+        elements = new Object[capacity];
+    }
+
+    public void add(T element) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, Math.max(16, size + (size >> 1)));
+        }
+        elements[size++] = element;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+        return (T) elements[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int capacity() {
+        return elements.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(Consumer<? super T> consumer) {
+        for (int i = 0; i < size; i++) {
+            consumer.accept((T) elements[i]);
+        }
+    }
+
+    /**
+     * Copies the content into a new List, e.g. to keep a result after reset().
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> toList() {
+        List<T> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add((T) elements[i]);
+        }
+        return list;
+    }
+
+    public void reset() {
+        Arrays.fill(elements, 0, size, null);
+        size = 0;
+    }
+}
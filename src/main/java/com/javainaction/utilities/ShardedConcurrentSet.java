@@ -0,0 +1,74 @@
+package com.javainaction.utilities;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A set of Strings split over a number of concurrent shards.
+ * Each shard is a ConcurrentHashMap key set, so threads adding different words rarely touch the same table
+ * and no shard has to be resized to the size of the whole vocabulary at once.
+ * Used as the container of the exact mode of WordCardinality.
+ */
+public class ShardedConcurrentSet {
+
+    private final List<Set<String>> shards;
+    private final int mask;
+
+    public ShardedConcurrentSet() {
+        this(4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    public ShardedConcurrentSet(int numberOfShards) {
+        // Round up to a power of two so a shard can be selected by masking the hash.
+        int shardCount = 1;
+        while (shardCount < numberOfShards) {
+            shardCount <<= 1;
+        }
+        this.shards = new ArrayList<>(shardCount);
+        this.mask = shardCount - 1;
+        for (int i = 0; i < shardCount; i++) {
+            shards.add(ConcurrentHashMap.newKeySet());
+        }
+    }
+
+    public boolean add(String value) {
+        return shardOf(value).add(value);
+    }
+
+    public boolean contains(String value) {
+        return shardOf(value).contains(value);
+    }
+
+    public void addAll(ShardedConcurrentSet other) {
+        for (Set<String> shard : other.shards) {
+            for (String value : shard) {
+                add(value);
+            }
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        for (Set<String> shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    public Set<String> shard(int index) {
+        return Collections.unmodifiableSet(shards.get(index));
+    }
+
+    public int numberOfShards() {
+        return shards.size();
+    }
+
+    private Set<String> shardOf(String value) {
+        int hash = value.hashCode();
+        // The low bits are used by the ConcurrentHashMap itself; use the spread high bits to select the shard.
+        return shards.get(((hash ^ (hash >>> 16)) >>> 8) & mask);
+    }
+}
@@ -0,0 +1,136 @@
+package com.javainaction.utilities;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Canonicalizing pool (flyweight factory) for the String fields of entities that repeat the same few values,
+ * such as Apple.color, Trader.city, Trader.name and Dish.name.
+ * <p>
+ * intern() returns one shared instance per distinct value, so a million traders from "Milan" share one String
+ * instead of carrying a million copies. Each distinct value also gets a small int id (0, 1, 2, ...).
+ * Two strings from the same pool are equal if and only if they are the same instance,
+ * so equals() returns at its first check (==), and an id comparison is an int comparison.
+ * <p>
+ * Unlike String.intern() the pool is an ordinary object: it can be dropped, and it reports what it saved.
+ * The pool only grows; use it for fields with a limited number of distinct values. It is thread safe.
+ */
+public class StringPool {
+
+    private static final StringPool SHARED = new StringPool();
+
+    private final ConcurrentMap<String, Canonical> canonicals = new ConcurrentHashMap<>();
+    private final List<String> values = new ArrayList<>();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+    private final LongAdder savedBytes = new LongAdder();
+
+    /**
+     * The pool used by the entity factories (Apple.of, Trader.of, Dish.of).
+     */
+    public static StringPool shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the canonical instance equal to value (null for null).
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        return canonical(value).value;
+    }
+
+    /**
+     * Returns the id of value, adding it to the pool when it is new.
+     */
+    public int id(String value) {
+        if (value == null) {
+            throw new IllegalArgumentException("null has no id");
+        }
+        return canonical(value).id;
+    }
+
+    public String valueOf(int id) {
+        synchronized (values) {
+            if (id < 0 || id >= values.size()) {
+                throw new IllegalArgumentException("Unknown id " + id);
+            }
+            return values.get(id);
+        }
+    }
+
+    /**
+     * Number of distinct values.
+     */
+    public int size() {
+        return canonicals.size();
+    }
+
+    public long getLookups() {
+        return lookups.sum();
+    }
+
+    /**
+     * Number of strings that were replaced by an existing canonical instance.
+     */
+    public long getDuplicates() {
+        return duplicates.sum();
+    }
+
+    /**
+     * Estimated heap of the replaced strings, which can be garbage collected when the caller kept the canonical instance.
+     */
+    public long getSavedBytes() {
+        return savedBytes.sum();
+    }
+
+    public String report() {
+        return String.format("%d distinct values, %d lookups, %d duplicates replaced, about %d KB saved",
+                size(), getLookups(), getDuplicates(), getSavedBytes() / 1024);
+    }
+
+    /**
+     * Estimated size of a String on a 64 bit JVM with compressed oops (JDK 8 layout):
+     * the String object (24 bytes) plus its char[] (16 byte header, 2 bytes per char, 8 byte aligned).
+     */
+    static long sizeOf(String value) {
+        return 24 + ((16 + 2L * value.length() + 7) & ~7L);
+    }
+
+    private Canonical canonical(String value) {
+        lookups.increment();
+        Canonical canonical = canonicals.get(value);
+        if (canonical == null) {
+            canonical = canonicals.computeIfAbsent(value, this::newCanonical);
+        }
+        if (canonical.value != value) {
+            duplicates.increment();
+            savedBytes.add(sizeOf(value));
+        }
+        return canonical;
+    }
+
+    // Called by computeIfAbsent, at most once per distinct value.
+    private Canonical newCanonical(String value) {
+        synchronized (values) {
+            values.add(value);
+            return new Canonical(value, values.size() - 1);
+        }
+    }
+
+    private static final class Canonical {
+
+        private final String value;
+        private final int id;
+
+        private Canonical(String value, int id) {
+            this.value = value;
+            this.id = id;
+        }
+    }
+}
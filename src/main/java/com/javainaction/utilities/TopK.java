@@ -0,0 +1,282 @@
+package com.javainaction.utilities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collector;
+
+/**
+ * Collectors for the k smallest or largest elements of a stream, instead of sorted() followed by limit(k).
+ * <p>
+ * A full sort takes O(n log n) time and keeps all n elements; these collectors keep at most k (or 2k) of them:
+ * - up to HEAP_LIMIT a bounded heap of k elements is kept, with the worst kept element at the root: O(n log k);
+ * - for a larger k the elements are gathered in a buffer of 2k; when it is full a quickselect keeps the best k,
+ *   and elements that are worse than the k-th element of the last selection are refused directly: O(n) on average.
+ * In a parallel stream every thread fills its own selection, and the selections are merged in O(k log k).
+ * <p>
+ * The result is sorted (smallest first resp. largest first) and equal elements keep their encounter order,
+ * so the result is the same as that of sorted().limit(k), also for a parallel stream.
+ * The ...ByKey variants compare an int key that is extracted once per element, without boxing.
+ */
+public final class TopK {
+
+    static final int HEAP_LIMIT = 1024;
+
+    private TopK() {
+    }
+
+    public static <T> Collector<T, ?, List<T>> smallest(int k, Comparator<? super T> comparator) {
+        return collector(k, comparator, null, false);
+    }
+
+    public static <T> Collector<T, ?, List<T>> largest(int k, Comparator<? super T> comparator) {
+        return collector(k, comparator.reversed(), null, false);
+    }
+
+    public static <T> Collector<T, ?, List<T>> smallestByKey(int k, ToIntFunction<? super T> key) {
+        return collector(k, null, key, false);
+    }
+
+    public static <T> Collector<T, ?, List<T>> largestByKey(int k, ToIntFunction<? super T> key) {
+        return collector(k, null, key, true);
+    }
+
+    private static <T> Collector<T, ?, List<T>> collector(int k, Comparator<? super T> comparator,
+                                                          ToIntFunction<? super T> key, boolean descending) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+        return Collector.of(() -> new Selection<T>(k, comparator, key, descending),
+                Selection::accept,
+                Selection::combine,
+                Selection::finish);
+    }
+
+    /**
+     * The accumulator: the elements, their keys and their encounter sequence numbers in parallel arrays.
+     * In heap mode the slot after the heap is the scratch slot of a new candidate.
+     */
+    private static final class Selection<T> {
+
+        private final int k;
+        private final Comparator<? super T> comparator;
+        private final ToIntFunction<? super T> key;
+        private final boolean descending;
+        private final boolean heap;
+        private final int capacity;
+
+        private Object[] items;
+        private int[] keys;
+        private long[] sequence;
+        private int size;
+        private long seen;
+        // Buffer mode: true once a selection has put the k-th element at position k - 1.
+        private boolean selected;
+
+        private Selection(int k, Comparator<? super T> comparator, ToIntFunction<? super T> key, boolean descending) {
+            this.k = k;
+            this.comparator = comparator;
+            this.key = key;
+            this.descending = descending;
+            this.heap = k <= HEAP_LIMIT;
+            this.capacity = heap ? k + 1 : (int) Math.min(2L * k, Integer.MAX_VALUE - 8);
+            int initial = Math.min(capacity, 16);
+            items = new Object[initial];
+            keys = key != null ? new int[initial] : null;
+            sequence = new long[initial];
+        }
+
+        private void accept(T item) {
+            offer(item, key != null ? key.applyAsInt(item) : 0, seen++);
+        }
+
+        /**
+         * Merges the selection of a later part of the stream into this one.
+         */
+        private Selection<T> combine(Selection<T> other) {
+            for (int i = 0; i < other.size; i++) {
+                @SuppressWarnings("unchecked")
+                T item = (T) other.items[i];
+                offer(item, key != null ? other.keys[i] : 0, seen + other.sequence[i]);
+            }
+            seen += other.seen;
+            return this;
+        }
+
+        private List<T> finish() {
+            if (!heap) {
+                if (size > k) {
+                    select();
+                }
+                for (int i = size / 2 - 1; i >= 0; i--) {
+                    siftDown(i, size);
+                }
+            }
+            // Heap sort: the worst element moves from the root to the end.
+            for (int end = size - 1; end > 0; end--) {
+                swap(0, end);
+                siftDown(0, end);
+            }
+            List<T> result = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                @SuppressWarnings("unchecked")
+                T item = (T) items[i];
+                result.add(item);
+            }
+            return Collections.unmodifiableList(result);
+        }
+
+        private void offer(T item, int itemKey, long itemSequence) {
+            if (k == 0) {
+                return;
+            }
+            int slot = heap ? Math.min(size, k) : size;
+            ensureCapacity(slot + 1);
+            items[slot] = item;
+            if (keys != null) {
+                keys[slot] = itemKey;
+            }
+            sequence[slot] = itemSequence;
+            if (heap) {
+                if (size < k) {
+                    siftUp(size++);
+                } else {
+                    if (compare(slot, 0) < 0) {
+                        move(slot, 0);
+                        siftDown(0, k);
+                    }
+                    items[slot] = null;
+                }
+            } else if (selected && compare(slot, k - 1) > 0) {
+                items[slot] = null;
+            } else if (++size == capacity) {
+                select();
+            }
+        }
+
+        private void ensureCapacity(int required) {
+            if (required > items.length) {
+                int length = (int) Math.min(capacity, Math.max(required, 2L * items.length));
+                items = Arrays.copyOf(items, length);
+                if (keys != null) {
+                    keys = Arrays.copyOf(keys, length);
+                }
+                sequence = Arrays.copyOf(sequence, length);
+            }
+        }
+
+        /**
+         * Quickselect: afterwards the best k elements are in [0, k) with the k-th at position k - 1;
+         * the rest is dropped.
+         */
+        private void select() {
+            int low = 0;
+            int high = size - 1;
+            int target = k - 1;
+            while (low < high) {
+                int pivot = partition(low, high);
+                if (pivot == target) {
+                    break;
+                } else if (pivot < target) {
+                    low = pivot + 1;
+                } else {
+                    high = pivot - 1;
+                }
+            }
+            Arrays.fill(items, k, size, null);
+            size = k;
+            selected = true;
+        }
+
+        // Median of three as pivot; the sequence numbers make all elements distinct.
+        private int partition(int low, int high) {
+            int middle = (low + high) >>> 1;
+            if (compare(middle, low) < 0) {
+                swap(middle, low);
+            }
+            if (compare(high, low) < 0) {
+                swap(high, low);
+            }
+            if (compare(middle, high) < 0) {
+                swap(middle, high);
+            }
+            // The median is at high now.
+            int store = low;
+            for (int i = low; i < high; i++) {
+                if (compare(i, high) < 0) {
+                    swap(i, store++);
+                }
+            }
+            swap(store, high);
+            return store;
+        }
+
+        // Max heap: the parent is worse than (compares greater than) its children.
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) / 2;
+                if (compare(index, parent) <= 0) {
+                    return;
+                }
+                swap(index, parent);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index, int end) {
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= end) {
+                    return;
+                }
+                if (child + 1 < end && compare(child + 1, child) > 0) {
+                    child++;
+                }
+                if (compare(child, index) <= 0) {
+                    return;
+                }
+                swap(index, child);
+                index = child;
+            }
+        }
+
+        private int compare(int i, int j) {
+            int result;
+            if (keys != null) {
+                result = descending ? Integer.compare(keys[j], keys[i]) : Integer.compare(keys[i], keys[j]);
+            } else {
+                @SuppressWarnings("unchecked")
+                T first = (T) items[i];
+                @SuppressWarnings("unchecked")
+                T second = (T) items[j];
+                result = comparator.compare(first, second);
+            }
+            return result != 0 ? result : Long.compare(sequence[i], sequence[j]);
+        }
+
+        private void move(int from, int to) {
+            items[to] = items[from];
+            if (keys != null) {
+                keys[to] = keys[from];
+            }
+            sequence[to] = sequence[from];
+        }
+
+        private void swap(int i, int j) {
+            Object item = items[i];
+            items[i] = items[j];
+            items[j] = item;
+            if (keys != null) {
+                int itemKey = keys[i];
+                keys[i] = keys[j];
+                keys[j] = itemKey;
+            }
+            long itemSequence = sequence[i];
+            sequence[i] = sequence[j];
+            sequence[j] = itemSequence;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.javainaction.utilities;
+
+import java.util.stream.Collector;
+
+/**
+ * Collectors to count the number of unique words in a stream.
+ * <p>
+ * words.distinct().count() buffers every word in one LinkedHashSet to keep the encounter order,
+ * which is single-threaded and needs a heap proportional to the vocabulary.
+ * The order is irrelevant for a count, so these collectors are UNORDERED:
+ * - exact(): all threads add to one ShardedConcurrentSet (CONCURRENT, so there is nothing to merge).
+ * - approximate(precision): every thread fills its own HyperLogLog; the sketches are merged at the end.
+ * - sketch(precision): returns the HyperLogLog itself so results of several files can be combined later.
+ * <p>
+ * Example:
+ * long uniqueWords = lines.parallelStream()
+ *         .flatMap(line -> Arrays.stream(line.split(" ")))
+ *         .collect(WordCardinality.approximate(12));
+ */
+public class WordCardinality {
+
+    private WordCardinality() {
+    }
+
+    public static Collector<CharSequence, ShardedConcurrentSet, Long> exact() {
+        return Collector.of(
+                ShardedConcurrentSet::new,
+                (ShardedConcurrentSet set, CharSequence word) -> set.add(word.toString()),
+                (ShardedConcurrentSet set1, ShardedConcurrentSet set2) -> {
+                    set1.addAll(set2);
+                    return set1;
+                },
+                ShardedConcurrentSet::size,
+                Collector.Characteristics.CONCURRENT,
+                Collector.Characteristics.UNORDERED);
+    }
+
+    public static Collector<CharSequence, HyperLogLog, Long> approximate() {
+        return approximate(HyperLogLog.DEFAULT_PRECISION);
+    }
+
+    public static Collector<CharSequence, HyperLogLog, Long> approximate(int precision) {
+        return Collector.of(
+                () -> new HyperLogLog(precision),
+                HyperLogLog::accept,
+                WordCardinality::combine,
+                HyperLogLog::estimate,
+                Collector.Characteristics.UNORDERED);
+    }
+
+    public static Collector<CharSequence, HyperLogLog, HyperLogLog> sketch(int precision) {
+        return Collector.of(
+                () -> new HyperLogLog(precision),
+                HyperLogLog::accept,
+                WordCardinality::combine,
+                Collector.Characteristics.UNORDERED);
+    }
+
+    private static HyperLogLog combine(HyperLogLog sketch1, HyperLogLog sketch2) {
+        sketch1.combine(sketch2);
+        return sketch1;
+    }
+}
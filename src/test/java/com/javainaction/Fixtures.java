@@ -0,0 +1,135 @@
+package com.javainaction;
+
+import com.javainaction.entities.Apple;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Test data shared by the tests. The data is random, but from a fixed seed: every run sees the same values.
+ * allocatedBytes() measures that code under test creates no objects.
+ */
+public final class Fixtures {
+
+    public static final String[] COLORS = {"green", "red", "brown", "yellow"};
+
+    private static final long SEED = 42;
+
+    private Fixtures() {
+    }
+
+    /**
+     * Apples of weight 0 .. 299, in one of COLORS.
+     */
+    public static List<Apple> apples(int count) {
+        Random random = new Random(SEED);
+        List<Apple> apples = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            apples.add(Apple.of(random.nextInt(300), COLORS[random.nextInt(COLORS.length)]));
+        }
+        return apples;
+    }
+
+    /**
+     * Apples of weight 0 .. weights - 1, every one with a color of its own ("apple i"): equals() tells them apart
+     * like their instances, so a list comparison also checks the order of apples of equal weight.
+     */
+    public static List<Apple> distinctApples(int count, int weights) {
+        Random random = new Random(SEED);
+        List<Apple> apples = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            apples.add(Apple.of(random.nextInt(weights), "apple " + i));
+        }
+        return apples;
+    }
+
+    /**
+     * Numbers 0 .. bound - 1.
+     */
+    public static List<Integer> numbers(int count, int bound) {
+        Random random = new Random(SEED);
+        List<Integer> numbers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            numbers.add(random.nextInt(bound));
+        }
+        return numbers;
+    }
+
+    /**
+     * Keyed elements with keys -bound / 2 .. bound / 2 - 1 and positions 0 .. count - 1.
+     */
+    public static List<Keyed> keyed(int count, int bound) {
+        Random random = new Random(SEED);
+        List<Keyed> elements = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            elements.add(new Keyed(random.nextInt(bound) - bound / 2, i));
+        }
+        return elements;
+    }
+
+    /**
+     * HotSpot specific: the bytes allocated by the current thread so far.
+     */
+    public static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * A sorted copy, sorted with the stable List.sort: the expected result of the sorts under test.
+     */
+    public static <T> List<T> sorted(List<T> items, Comparator<? super T> comparator) {
+        List<T> sorted = new ArrayList<>(items);
+        sorted.sort(comparator);
+        return sorted;
+    }
+
+    /**
+     * An element with a key and its position in the input; a sort that keeps the order of equal keys keeps the
+     * positions of equal keys ascending.
+     */
+    public static final class Keyed {
+
+        private final long key;
+        private final int position;
+
+        public Keyed(long key, int position) {
+            this.key = key;
+            this.position = position;
+        }
+
+        public long getKey() {
+            return key;
+        }
+
+        public int getIntKey() {
+            return (int) key;
+        }
+
+        public int getPosition() {
+            return position;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Keyed)) {
+                return false;
+            }
+            Keyed keyed = (Keyed) other;
+            return key == keyed.key && position == keyed.position;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(key) * 31 + position;
+        }
+
+        @Override
+        public String toString() {
+            return key + "@" + position;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.javainaction.chapter02;
+
+import com.javainaction.Fixtures;
+import com.javainaction.entities.Apple;
+import com.javainaction.utilities.IndexBuffer;
+import com.javainaction.utilities.ResultBuffer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestFilteringApples {
+
+    private static final int CALLS = 100_000;
+
+    private static List<Apple> inventory() {
+        List<Apple> inventory = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            inventory.add(new Apple(i % 300, i % 3 == 0 ? "green" : "red"));
+        }
+        return inventory;
+    }
+
+    @Test
+    void filterIntoResultBufferDoesNotAllocate() {
+        List<Apple> inventory = inventory();
+        Predicate<Apple> heavyGreen = (Apple apple) -> Apple.isGreenApple(apple) && Apple.isHeavyApple(apple);
+        ResultBuffer<Apple> result = new ResultBuffer<>(16);
+        long hits = 0;
+        // Warm up: the buffer grows to its final capacity and the loop gets compiled.
+        for (int i = 0; i < CALLS; i++) {
+            result.reset();
+            hits += FilteringApples.filterItems(inventory, heavyGreen, result);
+        }
+
+        long before = Fixtures.allocatedBytes();
+        for (int i = 0; i < CALLS; i++) {
+            result.reset();
+            hits += FilteringApples.filterItems(inventory, heavyGreen, result);
+        }
+        long allocated = Fixtures.allocatedBytes() - before;
+
+        assertEquals(2L * CALLS * com.javainaction.chapter01.FilteringApples.filterItems(inventory, heavyGreen).size(), hits);
+        // Zero per call; the margin is for the measurement itself.
+        assertTrue(allocated < 1024, "Allocated " + allocated + " bytes in " + CALLS + " calls");
+    }
+
+    @Test
+    void filterIntoIndexBufferDoesNotAllocate() {
+        List<Apple> inventory = inventory();
+        Predicate<Apple> green = Apple::isGreenApple;
+        IndexBuffer indexes = new IndexBuffer(inventory.size());
+        for (int i = 0; i < CALLS; i++) {
+            indexes.reset();
+            FilteringApples.filterIndexes(inventory, green, indexes);
+        }
+
+        long before = Fixtures.allocatedBytes();
+        for (int i = 0; i < CALLS; i++) {
+            indexes.reset();
+            FilteringApples.filterIndexes(inventory, green, indexes);
+        }
+        long allocated = Fixtures.allocatedBytes() - before;
+
+        assertEquals(334, indexes.size());
+        assertEquals(999, indexes.get(333));
+        assertTrue(allocated < 1024, "Allocated " + allocated + " bytes in " + CALLS + " calls");
+    }
+
+    @Test
+    void bufferInUseIsRefused() {
+        ResultBuffer<Apple> result = new ResultBuffer<>(4);
+        FilteringApples.filterItems(inventory(), Apple::isGreenApple, result);
+
+        assertThrows(IllegalStateException.class, () -> FilteringApples.filterItems(inventory(), Apple::isGreenApple, result));
+        result.reset();
+        assertEquals(0, result.size());
+    }
+}
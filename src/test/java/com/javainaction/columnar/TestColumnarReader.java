@@ -0,0 +1,229 @@
+package com.javainaction.columnar;
+
+import com.javainaction.Fixtures;
+import com.javainaction.entities.Apple;
+import com.javainaction.entities.Dish;
+import com.javainaction.entities.TradeTransaction;
+import com.javainaction.entities.Trader;
+import com.javainaction.enums.ColumnType;
+import com.javainaction.enums.Type;
+import com.javainaction.utilities.StringPool;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestColumnarReader {
+
+    // Less than the number of rows: every file has several blocks, the last one incomplete.
+    private static final int BLOCK_SIZE = 64;
+    private static final LocalDate HARVEST = LocalDate.of(2021, 8, 1);
+
+    // A LONG, DOUBLE, DATE and BOOLEAN column, derived from the weight.
+    private static final ColumnarSchema<Apple> MEASUREMENTS = new ColumnarSchema<>(
+            Arrays.asList(
+                    Column.ofLong("milligrams", (Apple apple) -> apple.getWeight() * 1_000L - 500),
+                    Column.ofDouble("kilograms", (Apple apple) -> apple.getWeight() / 1_000.0),
+                    Column.ofDate("picked", (Apple apple) -> HARVEST.plusDays(apple.getWeight())),
+                    Column.ofBoolean("heavy", Apple::isHeavyApple)),
+            (ColumnarRow row) -> Apple.of((int) ((row.getLong("milligrams") + 500) / 1_000), "unknown"));
+
+    @TempDir
+    Path directory;
+
+    private static List<TradeTransaction> trades(int count) {
+        String[][] traders = {{"Raoul", "Cambridge"}, {"Mario", "Milan"}, {"Alan", "Cambridge"}, {"Brian", "Cambridge"}};
+        Random random = new Random(42);
+        List<TradeTransaction> trades = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String[] trader = traders[random.nextInt(traders.length)];
+            trades.add(new TradeTransaction(Trader.of(trader[0], trader[1]), 2011 + random.nextInt(2), random.nextInt(1_000)));
+        }
+        return trades;
+    }
+
+    private static int[] scan(int rowCount, IntPredicate matches) {
+        return IntStream.range(0, rowCount).filter(matches).toArray();
+    }
+
+    private <T> Path write(String name, ColumnarSchema<T> schema, List<T> rows) throws IOException {
+        Path file = directory.resolve(name);
+        ColumnarWriter.write(file, schema, rows, BLOCK_SIZE);
+        return file;
+    }
+
+    @Test
+    void applesAreReadBack() throws IOException {
+        List<Apple> apples = Fixtures.apples(1_000);
+        Path file = write("apples.cols", Snapshots.APPLE, apples);
+
+        try (ColumnarReader reader = new ColumnarReader(file)) {
+            assertEquals(1_000, reader.getRowCount());
+            assertEquals(Arrays.asList("color", "weight"), new ArrayList<>(reader.getColumnNames()));
+            assertEquals(ColumnType.STRING, reader.getType("color"));
+            assertEquals(ColumnType.INT, reader.getType("weight"));
+            assertEquals(apples, reader.readAll(Snapshots.APPLE));
+
+            // The sorted distinct colors; the rows hold their index.
+            String[] dictionary = reader.getDictionary("color");
+            assertArrayEquals(new String[]{"brown", "green", "red", "yellow"}, dictionary);
+            int[] codes = reader.readInts("color");
+            String[] colors = reader.readStrings("color");
+            for (int i = 0; i < apples.size(); i++) {
+                assertEquals(apples.get(i).getColor(), dictionary[codes[i]]);
+                assertSame(dictionary[codes[i]], colors[i]);
+            }
+
+            assertThrows(IllegalArgumentException.class, () -> reader.readLongs("weight"));
+            assertThrows(IllegalArgumentException.class, () -> reader.readInts("size"));
+        }
+    }
+
+    @Test
+    void headerAndFooterDescribeTheBlocks() throws IOException {
+        List<Apple> apples = Fixtures.apples(1_000);
+        Path file = write("apples.cols", Snapshots.APPLE, apples);
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+
+        assertEquals(ColumnarWriter.MAGIC, bytes.getInt(0));
+        assertEquals(ColumnarWriter.VERSION, bytes.getInt(4));
+        long footerOffset = bytes.getLong(bytes.limit() - 8);
+        DataInputStream footer = new DataInputStream(new ByteArrayInputStream(
+                bytes.array(), (int) footerOffset, bytes.limit() - 8 - (int) footerOffset));
+        assertEquals(1_000, footer.readInt());
+        assertEquals(BLOCK_SIZE, footer.readInt());
+        assertEquals(2, footer.readInt());
+
+        // The color column starts right after the header with its dictionary.
+        assertEquals("color", footer.readUTF());
+        assertEquals(ColumnType.STRING.ordinal(), footer.readByte());
+        assertEquals(8, footer.readLong());
+        int blockCount = (1_000 + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        footer.skipBytes(blockCount * 16);
+
+        assertEquals("weight", footer.readUTF());
+        assertEquals(ColumnType.INT.ordinal(), footer.readByte());
+        long weightOffset = footer.readLong();
+        for (int b = 0; b < blockCount; b++) {
+            int minimum = Integer.MAX_VALUE;
+            int maximum = Integer.MIN_VALUE;
+            for (int i = b * BLOCK_SIZE; i < Math.min(apples.size(), (b + 1) * BLOCK_SIZE); i++) {
+                int weight = apples.get(i).getWeight();
+                assertEquals(weight, bytes.getInt((int) weightOffset + 4 * i));
+                minimum = Math.min(minimum, weight);
+                maximum = Math.max(maximum, weight);
+            }
+            assertEquals(minimum, footer.readLong(), "minimum of block " + b);
+            assertEquals(maximum, footer.readLong(), "maximum of block " + b);
+        }
+        assertEquals(0, footer.available());
+        // The weights end where the footer starts.
+        assertEquals(footerOffset, weightOffset + 4L * apples.size());
+    }
+
+    @Test
+    void selectReturnsTheRowsOfAScan() throws IOException {
+        List<Apple> apples = Fixtures.apples(1_000);
+        // Sorted by weight, the blocks hardly overlap and most of them are skipped.
+        List<Apple> sorted = Fixtures.sorted(apples, (Apple a, Apple b) -> a.getWeight() - b.getWeight());
+        for (List<Apple> rows : Arrays.asList(apples, sorted)) {
+            Path file = write("measurements.cols", MEASUREMENTS, rows);
+            long[] milligrams = rows.stream().mapToLong((Apple apple) -> apple.getWeight() * 1_000L - 500).toArray();
+            try (ColumnarReader reader = new ColumnarReader(file)) {
+                assertArrayEquals(milligrams, reader.readLongs("milligrams"));
+                for (int from = -10; from <= 310; from += 40) {
+                    for (int to = from - 20; to <= 320; to += 70) {
+                        int low = from;
+                        int high = to;
+                        assertArrayEquals(scan(rows.size(), i -> milligrams[i] >= low * 1_000L && milligrams[i] <= high * 1_000L),
+                                reader.select("milligrams", low * 1_000L, high * 1_000L), from + " .. " + to);
+                        assertArrayEquals(scan(rows.size(), i -> rows.get(i).getWeight() >= low * 10 && rows.get(i).getWeight() <= high * 10),
+                                reader.select("kilograms", low / 100.0, high / 100.0), from + " .. " + to);
+                        assertArrayEquals(scan(rows.size(), i -> rows.get(i).getWeight() >= low && rows.get(i).getWeight() <= high),
+                                reader.select("picked", HARVEST.plusDays(low), HARVEST.plusDays(high)), from + " .. " + to);
+                    }
+                }
+                assertArrayEquals(scan(rows.size(), i -> Apple.isHeavyApple(rows.get(i))), reader.select("heavy", 1, 1));
+                assertArrayEquals(scan(rows.size(), i -> true), reader.select("milligrams", Long.MIN_VALUE, Long.MAX_VALUE));
+                assertThrows(IllegalArgumentException.class, () -> reader.select("kilograms", 0L, 1L));
+            }
+        }
+    }
+
+    @Test
+    void selectEqualsComparesTheDictionaryCodes() throws IOException {
+        List<TradeTransaction> trades = trades(500);
+        Path tradeFile = write("trades.cols", Snapshots.TRADE_TRANSACTION, trades);
+        try (ColumnarReader reader = new ColumnarReader(tradeFile)) {
+            assertArrayEquals(new String[]{"Alan", "Brian", "Mario", "Raoul"}, reader.getDictionary("trader.name"));
+            assertArrayEquals(new String[]{"Cambridge", "Milan"}, reader.getDictionary("trader.city"));
+            assertArrayEquals(scan(trades.size(), i -> trades.get(i).getTrader().getName().equals("Mario")),
+                    reader.selectEquals("trader.name", "Mario"));
+            assertArrayEquals(scan(trades.size(), i -> trades.get(i).getTrader().getCity().equals("Cambridge")),
+                    reader.selectEquals("trader.city", "Cambridge"));
+            assertEquals(0, reader.selectEquals("trader.city", "Paris").length);
+            assertArrayEquals(scan(trades.size(), i -> trades.get(i).getYear() == 2012), reader.select("year", 2012, 2012));
+
+            List<TradeTransaction> read = reader.readAll(Snapshots.TRADE_TRANSACTION);
+            assertEquals(trades, read);
+            // Created with Trader.of: the names are the pooled instances.
+            assertSame(StringPool.shared().intern("Mario"), read.get(reader.selectEquals("trader.name", "Mario")[0]).getTrader().getName());
+        }
+
+        Path dishFile = write("dishes.cols", Snapshots.DISH, Dish.menu);
+        try (ColumnarReader reader = new ColumnarReader(dishFile)) {
+            assertEquals(ColumnType.ENUM, reader.getType("type"));
+            assertArrayEquals(new int[]{7, 8}, reader.selectEquals("type", Type.FISH.name()));
+            assertEquals(Dish.menu, reader.readAll(Snapshots.DISH));
+            List<Type> types = reader.readEnums("type", Type.class);
+            for (int i = 0; i < Dish.menu.size(); i++) {
+                assertEquals(Dish.menu.get(i).getType(), types.get(i));
+            }
+        }
+    }
+
+    @Test
+    void dictionaryValuesAboveTheWriteUtfLimitAreReadBack() throws IOException {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 30_000; i++) {
+            // Three bytes in UTF-8: 90000 bytes.
+            builder.append('\u65e5');
+        }
+        List<Apple> apples = Arrays.asList(Apple.of(1, builder.toString()), Apple.of(2, "green"), Apple.of(3, "caf\u00e9"));
+        Path file = write("long.cols", Snapshots.APPLE, apples);
+
+        try (ColumnarReader reader = new ColumnarReader(file)) {
+            assertEquals(apples, reader.readAll(Snapshots.APPLE));
+            assertArrayEquals(new int[]{2}, reader.selectEquals("color", "caf\u00e9"));
+        }
+    }
+
+    @Test
+    void invalidInputIsRejected() throws IOException {
+        List<Apple> apples = Arrays.asList(Apple.of(1, "green"), new Apple(2, null));
+        Path file = directory.resolve("null.cols");
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> ColumnarWriter.write(file, Snapshots.APPLE, apples, BLOCK_SIZE));
+        assertTrue(exception.getMessage().contains("color"));
+        assertThrows(IllegalArgumentException.class,
+                () -> ColumnarWriter.write(directory.resolve("blocks.cols"), Snapshots.APPLE, apples, 0));
+
+        Path text = Files.write(directory.resolve("text.cols"), "not a columnar snapshot".getBytes());
+        assertThrows(IOException.class, () -> new ColumnarReader(text));
+    }
+}
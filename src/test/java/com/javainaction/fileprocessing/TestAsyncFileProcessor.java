@@ -0,0 +1,155 @@
+package com.javainaction.fileprocessing;
+
+import com.javainaction.interfaces.CharChunkProcessor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestAsyncFileProcessor {
+
+    // 1, 2, 3 and 4 byte UTF-8 characters.
+    private static final String TEXT = "a\u00e9\u65e5\ud83c\udf4e b\n";
+
+    @TempDir
+    Path directory;
+
+    private static CharChunkProcessor<String> collector() {
+        StringBuilder builder = new StringBuilder();
+        return CharChunkProcessor.of(builder::append, builder::toString);
+    }
+
+    private Path write(String name, String text) throws IOException {
+        return Files.write(directory.resolve(name), text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String repeat(String text, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(text);
+        }
+        return builder.toString();
+    }
+
+    @Test
+    void multiByteCharactersSplitAcrossReadsAreDecoded() throws Exception {
+        String text = repeat(TEXT, 100);
+        Path file = write("utf8.txt", text);
+        // The smallest buffers cut the characters between two reads at every offset.
+        for (int bufferSize = AsyncFileProcessor.MIN_BUFFER_SIZE; bufferSize <= 7; bufferSize++) {
+            AsyncFileProcessor processor = new AsyncFileProcessor(bufferSize, 1, StandardCharsets.UTF_8, null);
+
+            assertEquals(text, processor.process(file, collector()).get(10, TimeUnit.SECONDS), "bufferSize " + bufferSize);
+        }
+        assertThrows(IllegalArgumentException.class, () -> new AsyncFileProcessor(3, 1, StandardCharsets.UTF_8, null));
+        AsyncFileProcessor processor = new AsyncFileProcessor();
+        assertEquals("", processor.process(write("empty.txt", ""), collector()).get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void readsInFlightStayWithinTheBound() throws Exception {
+        AsyncFileProcessor processor = new AsyncFileProcessor(16, 3, StandardCharsets.UTF_8, null);
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            files.add(write("file" + i + ".txt", repeat(i + " " + TEXT, 50)));
+        }
+        AtomicInteger maxInFlight = new AtomicInteger();
+        AtomicBoolean done = new AtomicBoolean();
+        Thread sampler = new Thread(() -> {
+            while (!done.get()) {
+                maxInFlight.accumulateAndGet(processor.getReadsInFlight(), Math::max);
+            }
+        });
+        sampler.start();
+
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (Path file : files) {
+            results.add(processor.process(file, CharChunkProcessor.of(chunk -> {
+                maxInFlight.accumulateAndGet(processor.getReadsInFlight(), Math::max);
+            }, () -> "done")));
+        }
+        CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0])).get(30, TimeUnit.SECONDS);
+        done.set(true);
+        sampler.join();
+
+        assertTrue(maxInFlight.get() <= 3, "max in flight " + maxInFlight.get());
+        assertEquals(0, processor.getReadsInFlight());
+    }
+
+    @Test
+    void cancellingStopsTheReads() throws Exception {
+        Path file = write("long.txt", repeat(TEXT, 1_000));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        AsyncFileProcessor processor = new AsyncFileProcessor(16, 1, StandardCharsets.UTF_8, executor);
+        AtomicInteger chunks = new AtomicInteger();
+        CountDownLatch firstChunk = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+
+        CompletableFuture<Integer> result = processor.process(file, CharChunkProcessor.of(chunk -> {
+            chunks.incrementAndGet();
+            firstChunk.countDown();
+            try {
+                cancelled.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, chunks::get));
+        assertTrue(firstChunk.await(10, TimeUnit.SECONDS));
+        assertTrue(result.cancel(true));
+        cancelled.countDown();
+        // The channel runs its reads and handlers on the executor: once it is idle, no read can follow.
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(1, chunks.get());
+        assertEquals(0, processor.getReadsInFlight());
+        assertTrue(result.isCancelled());
+    }
+
+    @Test
+    void failedReadCompletesTheFutureExceptionally() throws Exception {
+        AsyncFileProcessor processor = new AsyncFileProcessor();
+
+        // A directory can be opened, but not read.
+        ExecutionException readFailure = assertThrows(ExecutionException.class,
+                () -> processor.process(directory, collector()).get(10, TimeUnit.SECONDS));
+        assertTrue(readFailure.getCause() instanceof IOException);
+        assertEquals(0, processor.getReadsInFlight());
+
+        ExecutionException openFailure = assertThrows(ExecutionException.class,
+                () -> processor.process(directory.resolve("missing.txt"), collector()).get(10, TimeUnit.SECONDS));
+        assertTrue(openFailure.getCause() instanceof IOException);
+
+        // A processor that fails ends the file as well.
+        Path file = write("text.txt", TEXT);
+        ExecutionException processFailure = assertThrows(ExecutionException.class,
+                () -> processor.process(file, new CharChunkProcessor<String>() {
+                    @Override
+                    public void process(CharBuffer chunk) throws IOException {
+                        throw new IOException("processing failed");
+                    }
+
+                    @Override
+                    public String getResult() {
+                        return "unreachable";
+                    }
+                }).get(10, TimeUnit.SECONDS));
+        assertEquals("processing failed", processFailure.getCause().getMessage());
+    }
+}
@@ -0,0 +1,149 @@
+package com.javainaction.fileprocessing;
+
+import com.javainaction.Fixtures;
+import com.javainaction.interfaces.ByteSliceConsumer;
+import com.javainaction.utilities.HyperLogLog;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestByteTokenizer {
+
+    private static byte[] utf8(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void tokenSplitAcrossFeedsIsJoined() {
+        ByteTokenizer tokenizer = new ByteTokenizer();
+        List<String> tokens = new ArrayList<>();
+        byte[] text = utf8("  the quick\tbrown\r\nfox  jumps");
+
+        // Every cut: before, inside and after a token, and in the whitespace.
+        for (int cut = 0; cut <= text.length; cut++) {
+            tokens.clear();
+            long count = tokenizer.feed(text, 0, cut, token -> tokens.add(token.toString()))
+                    + tokenizer.feed(text, cut, text.length, token -> tokens.add(token.toString()))
+                    + tokenizer.finish(token -> tokens.add(token.toString()));
+
+            assertEquals(Arrays.asList("the", "quick", "brown", "fox", "jumps"), tokens, "cut at " + cut);
+            assertEquals(5, count);
+        }
+
+        // One token over many pieces, longer than the initial pending buffer.
+        tokens.clear();
+        StringBuilder longToken = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            byte[] piece = utf8("abc");
+            assertEquals(0, tokenizer.feed(piece, 0, piece.length, token -> tokens.add(token.toString())));
+            longToken.append("abc");
+        }
+        byte[] end = utf8(" x");
+        assertEquals(1, tokenizer.feed(end, 0, end.length, token -> tokens.add(token.toString())));
+        assertEquals(Arrays.asList(longToken.toString()), tokens);
+    }
+
+    @Test
+    void finishEmitsTheTrailingTokenOnce() {
+        ByteTokenizer tokenizer = new ByteTokenizer();
+        List<String> tokens = new ArrayList<>();
+        byte[] text = utf8("one two");
+
+        assertEquals(1, tokenizer.feed(text, 0, text.length, token -> tokens.add(token.toString())));
+        assertEquals(Arrays.asList("one"), tokens);
+        assertEquals(1, tokenizer.finish(token -> tokens.add(token.toString())));
+        assertEquals(0, tokenizer.finish(token -> tokens.add(token.toString())));
+        assertEquals(Arrays.asList("one", "two"), tokens);
+
+        // Trailing whitespace leaves nothing to finish.
+        byte[] trailing = utf8("three ");
+        assertEquals(1, tokenizer.tokenize(trailing, 0, trailing.length, token -> tokens.add(token.toString())));
+        assertEquals(Arrays.asList("one", "two", "three"), tokens);
+    }
+
+    @Test
+    void multiByteTokensAreNotAscii() {
+        ByteTokenizer tokenizer = new ByteTokenizer();
+        List<String> tokens = new ArrayList<>();
+        List<Boolean> ascii = new ArrayList<>();
+        byte[] text = utf8("caf\u00e9 na\u00efve plain \u65e5\u672c");
+
+        // Cut inside the two bytes of the e acute.
+        int cut = 4;
+        tokenizer.feed(text, 0, cut, token -> {
+            tokens.add(token.toString());
+            ascii.add(token.isAscii());
+        });
+        tokenizer.feed(text, cut, text.length, token -> {
+            tokens.add(token.toString());
+            ascii.add(token.isAscii());
+        });
+        tokenizer.finish(token -> {
+            tokens.add(token.toString());
+            ascii.add(token.isAscii());
+        });
+
+        assertEquals(Arrays.asList("caf\u00e9", "na\u00efve", "plain", "\u65e5\u672c"), tokens);
+        assertEquals(Arrays.asList(false, false, true, false), ascii);
+    }
+
+    @Test
+    void asciiHashEqualsTheStringHash() {
+        ByteTokenizer tokenizer = new ByteTokenizer();
+        List<ByteSlice> copies = new ArrayList<>();
+        // A direct buffer, larger than the scratch array, is copied block by block.
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 2_000; i++) {
+            text.append("word").append(i % 97).append(i % 5 == 0 ? "\n" : " ");
+        }
+        byte[] bytes = utf8(text.toString());
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+
+        long count = tokenizer.tokenize(direct, token -> {
+            assertTrue(token.isAscii());
+            assertEquals(HyperLogLog.hash(token.toString()), token.hash64(), token.toString());
+            assertTrue(token.contentEquals(token.toString()));
+            copies.add(token.copy());
+        });
+
+        assertEquals(2_000, count);
+        assertFalse(direct.hasRemaining());
+        assertEquals("word0", copies.get(0).toString());
+        assertEquals(copies.get(0), copies.get(97));
+        assertEquals(copies.get(0).hashCode(), copies.get(97).hashCode());
+        assertNotEquals(copies.get(0), copies.get(1));
+    }
+
+    @Test
+    void tokenizingDoesNotAllocate() {
+        ByteTokenizer tokenizer = new ByteTokenizer();
+        byte[] text = utf8("the quick brown fox jumps over the lazy dog\n");
+        long[] hashes = new long[1];
+        ByteSliceConsumer consumer = token -> hashes[0] += token.hash64();
+        int cut = 7;
+        // Warm up: the first calls may allocate while classes are loaded and compiled.
+        for (int i = 0; i < 10_000; i++) {
+            tokenizer.feed(text, 0, cut, consumer);
+            tokenizer.feed(text, cut, text.length, consumer);
+        }
+
+        long tokens = 0;
+        long before = Fixtures.allocatedBytes();
+        for (int i = 0; i < 100_000; i++) {
+            // A token cut in two pieces goes through the pending buffer.
+            tokens += tokenizer.feed(text, 0, cut, consumer);
+            tokens += tokenizer.feed(text, cut, text.length, consumer);
+        }
+        long allocated = Fixtures.allocatedBytes() - before;
+
+        assertEquals(9 * 100_000, tokens);
+        assertTrue(allocated < 1024, "Allocated " + allocated + " bytes");
+    }
+}
@@ -0,0 +1,163 @@
+package com.javainaction.fileprocessing;
+
+import com.javainaction.Fixtures;
+import com.javainaction.Fixtures.Keyed;
+import com.javainaction.interfaces.RecordCodec;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestExternalSort {
+
+    // 300 records of the default estimated size (64): with parallelism 2 every run holds 100 records.
+    private static final long SMALL_BUDGET = 64 * 300;
+    private static final Comparator<Keyed> BY_KEY = Comparator.comparingLong(Keyed::getKey);
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Writes key and position; fails on write number failAt (1 based) when failAt is positive.
+     */
+    private static final class KeyedCodec implements RecordCodec<Keyed> {
+
+        private final int failAt;
+        private final AtomicInteger writes = new AtomicInteger();
+
+        private KeyedCodec(int failAt) {
+            this.failAt = failAt;
+        }
+
+        @Override
+        public void write(DataOutput out, Keyed record) throws IOException {
+            if (writes.incrementAndGet() == failAt) {
+                throw new IOException("write " + failAt + " fails");
+            }
+            out.writeLong(record.getKey());
+            out.writeInt(record.getPosition());
+        }
+
+        @Override
+        public Keyed read(DataInput in) throws IOException {
+            return new Keyed(in.readLong(), in.readInt());
+        }
+    }
+
+    private ExternalSort<Keyed> smallSort(ExternalSort<Keyed> sort) {
+        return sort.withMemoryBudget(SMALL_BUDGET).withFanIn(2).withParallelism(2).withTempDirectory(directory);
+    }
+
+    private long files() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+
+    @Test
+    void multiPassMergeIsStableLikeListSort() throws IOException {
+        // 10,000 records in runs of 100: 100 runs, merged 2 by 2 in several passes.
+        List<Keyed> elements = Fixtures.keyed(10_000, 50);
+        KeyedCodec codec = new KeyedCodec(0);
+
+        List<Keyed> sorted;
+        try (Stream<Keyed> stream = smallSort(ExternalSort.comparing(BY_KEY, codec))
+                .sort(elements.stream())) {
+            // The last pass reads 2 runs; the earlier passes deleted their runs.
+            assertEquals(2, files());
+            sorted = stream.collect(Collectors.toList());
+        }
+
+        assertEquals(Fixtures.sorted(elements, BY_KEY), sorted);
+        // Every record is written once as a run and once more per pass: far more than 2 passes.
+        assertTrue(codec.writes.get() > 3 * elements.size());
+        assertEquals(0, files());
+    }
+
+    @Test
+    void byLongKeyIsStableLikeListSort() throws IOException {
+        List<Keyed> elements = Fixtures.keyed(5_000, 1_000_000);
+        elements.addAll(Fixtures.keyed(5_000, 10));
+
+        List<Keyed> sorted;
+        try (Stream<Keyed> stream = smallSort(ExternalSort.byLongKey(Keyed::getKey, new KeyedCodec(0)))
+                .sort(elements.stream())) {
+            sorted = stream.collect(Collectors.toList());
+        }
+
+        assertEquals(Fixtures.sorted(elements, BY_KEY), sorted);
+        assertEquals(0, files());
+    }
+
+    @Test
+    void closingAPartlyReadStreamDeletesTheRuns() throws IOException {
+        List<Keyed> elements = Fixtures.keyed(1_000, 50);
+        List<Keyed> expected = Fixtures.sorted(elements, BY_KEY);
+
+        try (Stream<Keyed> stream = smallSort(ExternalSort.comparing(BY_KEY, new KeyedCodec(0)))
+                .sort(elements.stream())) {
+            Iterator<Keyed> iterator = stream.iterator();
+            for (int i = 0; i < 10; i++) {
+                assertEquals(expected.get(i), iterator.next());
+            }
+            assertTrue(files() > 0);
+        }
+
+        assertEquals(0, files());
+    }
+
+    @Test
+    void failingCodecLeavesNoRuns() throws IOException {
+        List<Keyed> elements = Fixtures.keyed(2_000, 50);
+        // Write 150 fails while the first runs are written, write 2,500 during the first merge pass.
+        for (int failAt : new int[]{150, 2_500}) {
+            ExternalSort<Keyed> sort = smallSort(ExternalSort.comparing(BY_KEY,
+                    new KeyedCodec(failAt)));
+
+            IOException failure = assertThrows(IOException.class, () -> sort.sort(elements.stream()));
+
+            assertEquals("write " + failAt + " fails", failure.getMessage());
+            assertEquals(0, files());
+        }
+    }
+
+    @Test
+    void recordsWithinTheBudgetAreSortedInMemory() throws IOException {
+        // 300 records fit in the budget, though they are 3 runs worth with parallelism 2.
+        List<Keyed> elements = Fixtures.keyed(300, 10);
+        KeyedCodec codec = new KeyedCodec(0);
+
+        List<Keyed> sorted;
+        try (Stream<Keyed> stream = smallSort(ExternalSort.comparing(BY_KEY, codec))
+                .sort(elements.stream())) {
+            sorted = stream.collect(Collectors.toList());
+        }
+
+        assertEquals(Fixtures.sorted(elements, BY_KEY), sorted);
+        assertEquals(0, codec.writes.get());
+        assertEquals(0, files());
+
+        // One record more does not fit: the first run is split and everything goes through the files.
+        List<Keyed> more = Fixtures.keyed(301, 10);
+        KeyedCodec moreCodec = new KeyedCodec(0);
+        try (Stream<Keyed> stream = smallSort(ExternalSort.comparing(BY_KEY, moreCodec))
+                .sort(more.stream())) {
+            sorted = stream.collect(Collectors.toList());
+        }
+        assertEquals(Fixtures.sorted(more, BY_KEY), sorted);
+        assertTrue(moreCodec.writes.get() >= more.size());
+        assertEquals(0, files());
+    }
+}
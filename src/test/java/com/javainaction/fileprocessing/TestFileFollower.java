@@ -0,0 +1,173 @@
+package com.javainaction.fileprocessing;
+
+import com.javainaction.interfaces.LineListener;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestFileFollower {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Records the lines and the truncations and rotations.
+     */
+    private static final class Recorder implements LineListener {
+
+        private final List<String> lines = new ArrayList<>();
+        private int truncations;
+        private int rotations;
+
+        @Override
+        public void onLine(String line) {
+            lines.add(line);
+        }
+
+        @Override
+        public void onTruncated() {
+            truncations++;
+        }
+
+        @Override
+        public void onRotated() {
+            rotations++;
+        }
+    }
+
+    private static void append(Path file, String text) throws IOException {
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static void write(Path file, String text) throws IOException {
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void incompleteLineIsHeldBackUntilItIsCompleted() throws IOException {
+        Path file = directory.resolve("growing.log");
+        Recorder recorder = new Recorder();
+        try (FileFollower follower = new FileFollower(file, StandardCharsets.UTF_8, recorder)) {
+            // No file yet.
+            assertEquals(0, follower.poll());
+
+            append(file, "first\nsec");
+            assertEquals(1, follower.poll());
+            assertEquals(Arrays.asList("first"), recorder.lines);
+            assertEquals(6, follower.getOffset());
+
+            append(file, "ond");
+            assertEquals(0, follower.poll());
+            assertEquals(Arrays.asList("first"), recorder.lines);
+            assertEquals(6, follower.getOffset());
+
+            append(file, "\r\nthird\n\n");
+            assertEquals(3, follower.poll());
+            assertEquals(Arrays.asList("first", "second", "third", ""), recorder.lines);
+            assertEquals(Files.size(file), follower.getOffset());
+            assertEquals(0, follower.poll());
+            assertEquals(0, recorder.truncations);
+            assertEquals(0, recorder.rotations);
+        }
+    }
+
+    @Test
+    void multiByteCharacterSplitAcrossAppendsIsDecoded() throws IOException {
+        Path file = directory.resolve("utf8.log");
+        Recorder recorder = new Recorder();
+        byte[] line = "caf\u00e9 \u65e5\u672c\n".getBytes(StandardCharsets.UTF_8);
+        try (FileFollower follower = new FileFollower(file, StandardCharsets.UTF_8, recorder)) {
+            // Cut inside the two bytes of the e acute.
+            Files.write(file, Arrays.copyOfRange(line, 0, 4));
+            assertEquals(0, follower.poll());
+            Files.write(file, Arrays.copyOfRange(line, 4, line.length), StandardOpenOption.APPEND);
+            assertEquals(1, follower.poll());
+        }
+        assertEquals(Arrays.asList("caf\u00e9 \u65e5\u672c"), recorder.lines);
+    }
+
+    @Test
+    void truncatedFileIsReadFromTheStart() throws IOException {
+        Path file = directory.resolve("truncated.log");
+        Recorder recorder = new Recorder();
+        write(file, "one\ntwo\nthr");
+        try (FileFollower follower = new FileFollower(file, StandardCharsets.UTF_8, recorder)) {
+            assertEquals(2, follower.poll());
+            assertEquals(8, follower.getOffset());
+
+            // Shorter than what was read: the incomplete "thr" is dropped, not joined with the new content.
+            write(file, "new\n");
+            assertEquals(1, follower.poll());
+            assertEquals(Arrays.asList("one", "two", "new"), recorder.lines);
+            assertEquals(1, recorder.truncations);
+            assertEquals(0, recorder.rotations);
+            assertEquals(4, follower.getOffset());
+        }
+    }
+
+    @Test
+    void replacedFileIsReadFromTheStart() throws IOException {
+        Path file = directory.resolve("rotated.log");
+        Recorder recorder = new Recorder();
+        write(file, "old 1\n");
+        try (FileFollower follower = new FileFollower(file, StandardCharsets.UTF_8, recorder)) {
+            assertEquals(1, follower.poll());
+
+            // The old file still grows before it is replaced by a longer file.
+            append(file, "old 2\nold 3");
+            Path replacement = directory.resolve("replacement.log");
+            write(replacement, "new 1\nnew 2\nnew 3\n");
+            Files.move(replacement, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            // The rest of the old file, including its incomplete last line, then the new file.
+            assertEquals(5, follower.poll());
+            assertEquals(Arrays.asList("old 1", "old 2", "old 3", "new 1", "new 2", "new 3"), recorder.lines);
+            assertEquals(1, recorder.rotations);
+            assertEquals(0, recorder.truncations);
+            assertEquals(18, follower.getOffset());
+
+            // Removed: nothing to read until the file is created again.
+            Files.delete(file);
+            assertEquals(0, follower.poll());
+            assertEquals(2, recorder.rotations);
+            assertEquals(0, follower.getOffset());
+            write(file, "again\n");
+            assertEquals(1, follower.poll());
+            assertEquals("again", recorder.lines.get(recorder.lines.size() - 1));
+        }
+    }
+
+    @Test
+    void offsetResumesAfterTheDeliveredLines() throws IOException {
+        Path file = directory.resolve("resumed.log");
+        write(file, "one\ntwo\nthr");
+        Recorder recorder = new Recorder();
+        long offset;
+        try (FileFollower follower = new FileFollower(file, StandardCharsets.UTF_8, recorder)) {
+            assertEquals(0, follower.getOffset());
+            assertEquals(2, follower.poll());
+            offset = follower.getOffset();
+        }
+        // Only up to the end of "two": a follower resumed from the offset reads "thr" again and completes it.
+        assertEquals(8, offset);
+
+        append(file, "ee\nfour\n");
+        Recorder resumed = new Recorder();
+        try (FileFollower follower = new FileFollower(file, StandardCharsets.UTF_8, offset, resumed)) {
+            assertEquals(2, follower.poll());
+            assertEquals(Arrays.asList("three", "four"), resumed.lines);
+            assertEquals(Files.size(file), follower.getOffset());
+        }
+    }
+}
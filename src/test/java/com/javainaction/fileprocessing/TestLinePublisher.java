@@ -0,0 +1,236 @@
+package com.javainaction.fileprocessing;
+
+import com.javainaction.interfaces.Flow;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestLinePublisher {
+
+    private static final String TEXT = "one\ntwo\nthree\nfour\nfive\n";
+
+    @TempDir
+    Path directory;
+
+    /**
+     * A reader over TEXT that remembers whether it was closed.
+     */
+    private static final class TrackedReader extends BufferedReader {
+
+        private boolean closed;
+
+        private TrackedReader() {
+            super(new StringReader(TEXT));
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            super.close();
+        }
+    }
+
+    /**
+     * Records the signals; the subscription is kept to request and cancel from the test.
+     */
+    private static class Recorder<T> implements Flow.Subscriber<T> {
+
+        private final List<T> items = new ArrayList<>();
+        private final List<Throwable> errors = new ArrayList<>();
+        private int completions;
+        private Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(T item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            errors.add(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            completions++;
+        }
+    }
+
+    // On the calling thread: every signal has arrived when request() or cancel() returns.
+    private static <T> LinePublisher<T> publisher(TrackedReader reader, Function<String, T> parser) {
+        return new LinePublisher<>(() -> reader, parser, Runnable::run);
+    }
+
+    @Test
+    void deliversNoMoreThanRequested() {
+        TrackedReader reader = new TrackedReader();
+        Recorder<String> recorder = new Recorder<>();
+        publisher(reader, Function.identity()).subscribe(recorder);
+        assertTrue(recorder.items.isEmpty());
+
+        recorder.subscription.request(2);
+        assertEquals(Arrays.asList("one", "two"), recorder.items);
+        recorder.subscription.request(1);
+        assertEquals(Arrays.asList("one", "two", "three"), recorder.items);
+        assertEquals(0, recorder.completions);
+        assertFalse(reader.closed);
+    }
+
+    @Test
+    void completesOnceAfterTheLastLine() {
+        TrackedReader reader = new TrackedReader();
+        Recorder<Integer> recorder = new Recorder<>();
+        publisher(reader, String::length).subscribe(recorder);
+
+        // Exactly the number of lines: the end of the file is only seen with the next request.
+        recorder.subscription.request(5);
+        assertEquals(Arrays.asList(3, 3, 5, 4, 4), recorder.items);
+        assertEquals(0, recorder.completions);
+
+        recorder.subscription.request(Long.MAX_VALUE);
+        recorder.subscription.request(Long.MAX_VALUE);
+        recorder.subscription.request(1);
+        assertEquals(5, recorder.items.size());
+        assertEquals(1, recorder.completions);
+        assertTrue(recorder.errors.isEmpty());
+        assertTrue(reader.closed);
+    }
+
+    @Test
+    void nonPositiveRequestSignalsOnError() {
+        TrackedReader reader = new TrackedReader();
+        Recorder<String> recorder = new Recorder<>();
+        publisher(reader, Function.identity()).subscribe(recorder);
+        recorder.subscription.request(1);
+
+        recorder.subscription.request(0);
+        recorder.subscription.request(3);
+
+        assertEquals(Arrays.asList("one"), recorder.items);
+        assertEquals(1, recorder.errors.size());
+        assertTrue(recorder.errors.get(0) instanceof IllegalArgumentException);
+        assertTrue(recorder.errors.get(0).getMessage().contains("3.9"));
+        assertEquals(0, recorder.completions);
+        assertTrue(reader.closed);
+
+        Recorder<String> negative = new Recorder<>();
+        publisher(new TrackedReader(), Function.identity()).subscribe(negative);
+        negative.subscription.request(-1);
+        assertEquals(1, negative.errors.size());
+    }
+
+    @Test
+    void cancelStopsDeliveryAndClosesTheReader() {
+        TrackedReader reader = new TrackedReader();
+        Recorder<String> recorder = new Recorder<>();
+        publisher(reader, Function.identity()).subscribe(recorder);
+        recorder.subscription.request(2);
+
+        recorder.subscription.cancel();
+        recorder.subscription.request(10);
+
+        assertEquals(Arrays.asList("one", "two"), recorder.items);
+        assertTrue(reader.closed);
+        assertEquals(0, recorder.completions);
+        assertTrue(recorder.errors.isEmpty());
+
+        // Cancelled from within onNext.
+        TrackedReader cancelledReader = new TrackedReader();
+        List<String> items = new ArrayList<>();
+        publisher(cancelledReader, Function.identity()).subscribe(new Recorder<String>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                super.onSubscribe(subscription);
+                subscription.request(Long.MAX_VALUE);
+            }
+
+            @Override
+            public void onNext(String item) {
+                items.add(item);
+                if (item.equals("three")) {
+                    super.subscription.cancel();
+                }
+            }
+        });
+        assertEquals(Arrays.asList("one", "two", "three"), items);
+        assertTrue(cancelledReader.closed);
+    }
+
+    @Test
+    void parserExceptionEndsInOnError() {
+        TrackedReader reader = new TrackedReader();
+        Recorder<Integer> recorder = new Recorder<>();
+        // "one" and "two" are no numbers.
+        publisher(reader, Integer::parseInt).subscribe(recorder);
+
+        recorder.subscription.request(3);
+        recorder.subscription.request(3);
+
+        assertTrue(recorder.items.isEmpty());
+        assertEquals(1, recorder.errors.size());
+        assertTrue(recorder.errors.get(0) instanceof NumberFormatException);
+        assertEquals(0, recorder.completions);
+        assertTrue(reader.closed);
+    }
+
+    @Test
+    void fileIsPublishedAsynchronouslyOneRequestAtATime() throws Exception {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            lines.add("line " + i);
+        }
+        Path file = Files.write(directory.resolve("lines.txt"), lines, StandardCharsets.UTF_8);
+        List<String> received = new ArrayList<>();
+        AtomicInteger concurrentCalls = new AtomicInteger();
+        AtomicBoolean overlapped = new AtomicBoolean();
+        CountDownLatch completed = new CountDownLatch(1);
+
+        LinePublisher.lines(file, StandardCharsets.UTF_8).subscribe(new Recorder<String>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                super.onSubscribe(subscription);
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(String item) {
+                if (concurrentCalls.incrementAndGet() > 1) {
+                    overlapped.set(true);
+                }
+                received.add(item);
+                super.subscription.request(1);
+                concurrentCalls.decrementAndGet();
+            }
+
+            @Override
+            public void onComplete() {
+                completed.countDown();
+            }
+        });
+
+        assertTrue(completed.await(10, TimeUnit.SECONDS));
+        assertEquals(lines, received);
+        assertFalse(overlapped.get());
+    }
+}
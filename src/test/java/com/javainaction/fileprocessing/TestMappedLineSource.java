@@ -0,0 +1,81 @@
+package com.javainaction.fileprocessing;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestMappedLineSource {
+
+    @Test
+    void linesAreEqualToBufferedReaderLines() throws IOException {
+        Path file = createFile("first line\r\n\nthird line with é and ü\nlast line without newline");
+        try (MappedLineSource lineSource = new MappedLineSource(file);
+             BufferedReader bufferedReader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            assertEquals(bufferedReader.lines().collect(Collectors.toList()), asStrings(lineSource));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void linesCrossingChunksAreJoined() throws IOException {
+        // Chunks of 8 bytes: almost every line crosses the border of a chunk.
+        Path file = createFile("the quick brown fox\njumps over\nthe lazy dog\n");
+        try (MappedLineSource lineSource = new MappedLineSource(file, StandardCharsets.UTF_8, 3)) {
+            List<String> expected = new ArrayList<>();
+            expected.add("the quick brown fox");
+            expected.add("jumps over");
+            expected.add("the lazy dog");
+            assertEquals(expected, asStrings(lineSource));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void parallelStreamKeepsAllLinesInOrder() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) {
+            content.append("line ").append(i).append('\n');
+        }
+        Path file = createFile(content.toString());
+        try (MappedLineSource lineSource = new MappedLineSource(file, StandardCharsets.UTF_8, 12)) {
+            List<String> lines = lineSource.parallelLines().map(CharSequence::toString).collect(Collectors.toList());
+            assertEquals(100_000, lines.size());
+            for (int i = 0; i < lines.size(); i++) {
+                assertEquals("line " + i, lines.get(i));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void emptyFileHasNoLines() throws IOException {
+        Path file = createFile("");
+        try (MappedLineSource lineSource = new MappedLineSource(file)) {
+            assertEquals(0, lineSource.lines().count());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static List<String> asStrings(MappedLineSource lineSource) {
+        return lineSource.lines().map(CharSequence::toString).collect(Collectors.toList());
+    }
+
+    private static Path createFile(String content) throws IOException {
+        Path file = Files.createTempFile("mapped", ".txt");
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,113 @@
+package com.javainaction.fileprocessing;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestParallelGzipInputStream {
+
+    @Test
+    void multiMemberFileRoundTrips() throws IOException {
+        byte[][] members = new byte[50][];
+        for (int i = 0; i < members.length; i++) {
+            members[i] = content(i, 2_000);
+        }
+        assertRoundTrip(members, 4, 64L * 1024 * 1024);
+    }
+
+    @Test
+    void singleMemberFileRoundTrips() throws IOException {
+        assertRoundTrip(new byte[][]{content(1, 500_000)}, 4, 64L * 1024 * 1024);
+    }
+
+    @Test
+    void memberLargerThanItsShareIsReadSequentially() throws IOException {
+        // 5 members of about 100 KB with 4 * 20 KB for the window (lookAhead 3 plus the member being read).
+        byte[][] members = new byte[5][];
+        for (int i = 0; i < members.length; i++) {
+            members[i] = content(i, 5_000);
+        }
+        assertRoundTrip(members, 3, 80_000);
+    }
+
+    @Test
+    void randomDataWithFalseCandidatesRoundTrips() throws IOException {
+        // Incompressible data is stored almost as is, so it contains the header bytes that are planted in it.
+        Random random = new Random(42);
+        byte[][] members = new byte[10][];
+        for (int i = 0; i < members.length; i++) {
+            members[i] = new byte[30_000];
+            random.nextBytes(members[i]);
+            for (int position = 0; position + 4 < members[i].length; position += 1000) {
+                members[i][position] = 0x1f;
+                members[i][position + 1] = (byte) 0x8b;
+                members[i][position + 2] = 8;
+                members[i][position + 3] = 0;
+            }
+        }
+        assertRoundTrip(members, 4, 64L * 1024 * 1024);
+    }
+
+    @Test
+    void emptyFileHasNoBytes() throws IOException {
+        Path file = Files.createTempFile("parallel", ".gz");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try (InputStream inputStream = new ParallelGzipInputStream(file, executor, 2, 1024)) {
+            assertEquals(-1, inputStream.read());
+        } finally {
+            executor.shutdown();
+            Files.delete(file);
+        }
+    }
+
+    private static void assertRoundTrip(byte[][] members, int lookAhead, long maxBufferedBytes) throws IOException {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        Path file = Files.createTempFile("parallel", ".gz");
+        try (OutputStream out = Files.newOutputStream(file)) {
+            for (byte[] member : members) {
+                // Every GZIPOutputStream writes one complete member; together they form a multi-member file.
+                GZIPOutputStream gzip = new GZIPOutputStream(out);
+                gzip.write(member);
+                gzip.finish();
+                expected.write(member);
+            }
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (InputStream inputStream = new ParallelGzipInputStream(file, executor, lookAhead, maxBufferedBytes)) {
+            assertArrayEquals(expected.toByteArray(), readAll(inputStream));
+        } finally {
+            executor.shutdown();
+            Files.delete(file);
+        }
+    }
+
+    private static byte[] readAll(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[7_777];
+        int count;
+        while ((count = inputStream.read(buffer)) >= 0) {
+            out.write(buffer, 0, count);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] content(int member, int lines) {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            content.append("member ").append(member).append(" line ").append(i).append('\n');
+        }
+        return content.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,126 @@
+package com.javainaction.fileprocessing;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestResourceCache {
+
+    private static final String RESOURCE = "javainaction/chapter03/data.txt";
+    // Six lines of 9 chars: 60 chars of content.
+    private static final String SIX_LINES = "123456789\n123456789\n123456789\n123456789\n123456789\n123456789\n";
+    // The size of the lines: their chars plus the overhead per line (24).
+    private static final long SIX_LINES_SIZE = 6 * (9 + 24);
+
+    @TempDir
+    Path directory;
+
+    private Path write(String name, String content) throws IOException {
+        return Files.write(directory.resolve(name), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void secondProcessIsAHitWithoutReading() throws IOException {
+        ResourceCache cache = new ResourceCache();
+
+        String first = cache.process(RESOURCE, BufferedReader::readLine);
+        String content = cache.content(RESOURCE);
+        String second = cache.process(RESOURCE, (BufferedReader reader) -> {
+            reader.readLine();
+            return reader.readLine();
+        });
+
+        assertEquals("Java", first);
+        assertEquals("8", second);
+        // The same instance: the resource was read once.
+        assertSame(content, cache.content(RESOURCE));
+        assertEquals(1, cache.getMisses());
+        assertEquals(3, cache.getHits());
+        assertEquals(0.75, cache.getHitRate());
+        assertEquals(1, cache.size());
+        assertEquals(content.length(), cache.getTotalChars());
+        assertEquals(Arrays.asList("Java", "8"), cache.lines(RESOURCE).subList(0, 2));
+    }
+
+    @Test
+    void newerLastModifiedReloads() throws IOException {
+        ResourceCache cache = new ResourceCache();
+        Path file = write("changing.txt", "old\n");
+        FileTime modified = Files.getLastModifiedTime(file);
+        assertEquals(Arrays.asList("old"), cache.lines(file));
+        assertEquals("old\n", cache.content(file));
+
+        write("changing.txt", "new\nlines\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modified.toMillis() + 1_000));
+
+        assertEquals("new\nlines\n", cache.content(file));
+        assertEquals(Arrays.asList("new", "lines"), cache.lines(file));
+        assertEquals(2, cache.getMisses());
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.size());
+        // The replaced entry and its lines are no longer counted.
+        assertEquals(10 + 3 + 24 + 5 + 24, cache.getTotalChars());
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() throws IOException {
+        ResourceCache cache = new ResourceCache(150, StandardCharsets.UTF_8);
+        Path a = write("a.txt", SIX_LINES);
+        Path b = write("b.txt", SIX_LINES);
+        Path c = write("c.txt", SIX_LINES);
+
+        cache.content(a);
+        cache.content(b);
+        // a is used again, so b is the least recently used when c does not fit any more.
+        cache.content(a);
+        cache.content(c);
+
+        assertEquals(1, cache.getEvictions());
+        assertEquals(120, cache.getTotalChars());
+        long misses = cache.getMisses();
+        cache.content(a);
+        assertEquals(misses, cache.getMisses());
+        cache.content(b);
+        assertEquals(misses + 1, cache.getMisses());
+        assertEquals(2, cache.getEvictions());
+    }
+
+    @Test
+    void linesCountForTheSize() throws IOException {
+        ResourceCache cache = new ResourceCache(200, StandardCharsets.UTF_8);
+        Path a = write("a.txt", SIX_LINES);
+        Path b = write("b.txt", SIX_LINES);
+        cache.content(a);
+        cache.content(b);
+        assertEquals(120, cache.getTotalChars());
+
+        // The lines of a do not fit next to b: b, now the least recently used, is evicted.
+        // a stays, although on its own it is above the bound: the newest entry is always kept.
+        List<String> lines = cache.lines(a);
+        assertEquals(6, lines.size());
+        assertEquals(1, cache.getEvictions());
+        assertEquals(1, cache.size());
+        assertEquals(60 + SIX_LINES_SIZE, cache.getTotalChars());
+
+        // Loading b again evicts a together with its lines.
+        cache.content(b);
+        assertEquals(2, cache.getEvictions());
+        assertEquals(60, cache.getTotalChars());
+        assertEquals(1, cache.getHits());
+        assertEquals(3, cache.getMisses());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getTotalChars());
+    }
+}
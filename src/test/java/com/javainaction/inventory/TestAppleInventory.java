@@ -0,0 +1,66 @@
+package com.javainaction.inventory;
+
+import com.javainaction.Fixtures;
+import com.javainaction.chapter01.FilteringApples;
+import com.javainaction.entities.Apple;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestAppleInventory {
+
+    @Test
+    void kernelsSelectTheSameApplesAsTheListFilters() {
+        List<Apple> apples = Fixtures.apples(10_000);
+        AppleInventory inventory = AppleInventory.of(apples);
+
+        assertEquals(FilteringApples.filterHeavyApples(apples, 150), inventory.toApples(inventory.selectHeavierThan(150)));
+        assertEquals(FilteringApples.filterGreenApples(apples, "green"), inventory.toApples(inventory.selectColor("green")));
+        assertEquals(FilteringApples.filterItems(apples, (Apple apple) -> apple.getWeight() >= 100 && apple.getWeight() <= 200),
+                inventory.toApples(inventory.selectWeightBetween(100, 200)));
+        assertEquals(FilteringApples.filterItems(apples, (Apple apple) -> Apple.isGreenApple(apple) && Apple.isHeavyApple(apple)),
+                inventory.toApples(inventory.selectColor(inventory.selectHeavierThan(150), "green")));
+        assertEquals(0, inventory.selectColor("blue").length);
+    }
+
+    @Test
+    void bitmapsSelectTheSameRowsAsSelectionVectors() {
+        AppleInventory inventory = AppleInventory.of(Fixtures.apples(1_000));
+
+        BitSet heavyGreen = inventory.heavierThanBitmap(150);
+        heavyGreen.and(inventory.colorBitmap("green"));
+
+        assertEquals(inventory.toApples(inventory.selectColor(inventory.selectHeavierThan(150), "green")),
+                inventory.toApples(heavyGreen));
+    }
+
+    @Test
+    void nothingIsHeavierThanTheMaximumWeight() {
+        AppleInventory inventory = new AppleInventory();
+        inventory.add(Integer.MAX_VALUE, "green");
+        inventory.add(Integer.MAX_VALUE - 1, "red");
+        inventory.add(150, "green");
+
+        assertArrayEquals(new int[0], inventory.selectHeavierThan(Integer.MAX_VALUE));
+        assertTrue(inventory.heavierThanBitmap(Integer.MAX_VALUE).isEmpty());
+        assertArrayEquals(new int[]{0}, inventory.selectHeavierThan(Integer.MAX_VALUE - 1));
+        assertEquals(inventory.toApples(inventory.selectHeavierThan(Integer.MAX_VALUE - 1)),
+                inventory.toApples(inventory.heavierThanBitmap(Integer.MAX_VALUE - 1)));
+    }
+
+    @Test
+    void colorCodesWidenBeyond256Colors() {
+        AppleInventory inventory = new AppleInventory();
+        for (int i = 0; i < 1_000; i++) {
+            inventory.add(i, "color" + (i % 300));
+        }
+
+        assertEquals(300, inventory.getColors().size());
+        assertEquals("color299", inventory.getColor(299));
+        assertArrayEquals(new int[]{299, 599, 899}, inventory.selectColor("color299"));
+        assertEquals(new Apple(999, "color99"), inventory.get(999));
+    }
+}
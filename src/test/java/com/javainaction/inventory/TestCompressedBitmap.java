@@ -0,0 +1,150 @@
+package com.javainaction.inventory;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestCompressedBitmap {
+
+    private static final int BLOCK = 1 << 16;
+
+    // A sorted array container holds at most 4096 ids; one more makes it a bitmap container.
+    @Test
+    void containerSwitchesToBitmapAbove4096IdsAndBack() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        BitSet expected = new BitSet();
+        for (int id = 0; id < 4096 * 3; id += 3) {
+            bitmap.add(id);
+            expected.set(id);
+        }
+        assertEquals(4096, bitmap.cardinality());
+        assertEquals(8 + 2 * 4096, bitmap.sizeInBytes());
+
+        bitmap.add(1);
+        expected.set(1);
+        assertEquals(4097, bitmap.cardinality());
+        assertTrue(bitmap.contains(1));
+        assertEquals(expected, toBitSet(bitmap));
+
+        // The intersection of two bitmap containers with few ids is an array container again.
+        CompressedBitmap other = new CompressedBitmap();
+        for (int id = 0; id < 5_000; id++) {
+            other.add(id);
+        }
+        CompressedBitmap intersection = bitmap.and(other);
+        assertEquals(1_668, intersection.cardinality());
+        assertEquals(8 + 2 * 1_668, intersection.sizeInBytes());
+
+        bitmap.remove(3);
+        bitmap.remove(6);
+        expected.clear(3);
+        expected.clear(6);
+        assertEquals(4095, bitmap.cardinality());
+        assertFalse(bitmap.contains(3));
+        assertEquals(expected, toBitSet(bitmap));
+    }
+
+    @Test
+    void setOperationsOnMixedContainersMatchBitSet() {
+        Random random = new Random(42);
+        // Block 0: dense and dense, block 1: dense and sparse, block 2: sparse and sparse, blocks 3 and 4 in one only.
+        CompressedBitmap first = new CompressedBitmap();
+        CompressedBitmap second = new CompressedBitmap();
+        BitSet firstExpected = new BitSet();
+        BitSet secondExpected = new BitSet();
+        fill(random, first, firstExpected, 0, 30_000);
+        fill(random, second, secondExpected, 0, 20_000);
+        fill(random, first, firstExpected, BLOCK, 10_000);
+        fill(random, second, secondExpected, BLOCK, 500);
+        fill(random, first, firstExpected, 2 * BLOCK, 300);
+        fill(random, second, secondExpected, 2 * BLOCK, 300);
+        fill(random, first, firstExpected, 3 * BLOCK, 5_000);
+        fill(random, second, secondExpected, 4 * BLOCK, 100);
+
+        BitSet and = (BitSet) firstExpected.clone();
+        and.and(secondExpected);
+        BitSet or = (BitSet) firstExpected.clone();
+        or.or(secondExpected);
+        BitSet andNot = (BitSet) firstExpected.clone();
+        andNot.andNot(secondExpected);
+        BitSet reverseAndNot = (BitSet) secondExpected.clone();
+        reverseAndNot.andNot(firstExpected);
+
+        assertEquals(and, toBitSet(first.and(second)));
+        assertEquals(and, toBitSet(second.and(first)));
+        assertEquals(or, toBitSet(first.or(second)));
+        assertEquals(or, toBitSet(second.or(first)));
+        assertEquals(andNot, toBitSet(first.andNot(second)));
+        assertEquals(reverseAndNot, toBitSet(second.andNot(first)));
+        // The operands are not changed.
+        assertEquals(firstExpected, toBitSet(first));
+        assertEquals(secondExpected, toBitSet(second));
+    }
+
+    @Test
+    void removingAllIdsLeavesAnEmptyBitmap() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        for (int id = 0; id < 10_000; id++) {
+            bitmap.add(id);
+            bitmap.add(5 * BLOCK + id);
+        }
+        for (int id = 0; id < 10_000; id++) {
+            bitmap.remove(5 * BLOCK + id);
+            bitmap.remove(id);
+        }
+
+        assertTrue(bitmap.isEmpty());
+        assertEquals(0, bitmap.cardinality());
+        assertEquals(-1, bitmap.first());
+        assertEquals(0, bitmap.sizeInBytes());
+        assertEquals(new CompressedBitmap(), bitmap);
+        bitmap.remove(42);
+        assertTrue(bitmap.isEmpty());
+    }
+
+    @Test
+    void firstCardinalityAndEquals() {
+        CompressedBitmap sparse = CompressedBitmap.of(3 * BLOCK + 7, BLOCK + 5, 2 * BLOCK);
+        assertEquals(BLOCK + 5, sparse.first());
+        assertEquals(3, sparse.cardinality());
+        assertArrayEquals(new int[]{BLOCK + 5, 2 * BLOCK, 3 * BLOCK + 7}, sparse.toArray());
+
+        CompressedBitmap dense = new CompressedBitmap();
+        CompressedBitmap sameIds = new CompressedBitmap();
+        for (int id = BLOCK + 5_000; id >= BLOCK + 10; id--) {
+            dense.add(id);
+        }
+        // The same ids, added in the opposite order and partly removed again.
+        for (int id = BLOCK; id <= BLOCK + 5_000; id++) {
+            sameIds.add(id);
+        }
+        for (int id = BLOCK; id < BLOCK + 10; id++) {
+            sameIds.remove(id);
+        }
+        assertEquals(BLOCK + 10, dense.first());
+        assertEquals(4_991, dense.cardinality());
+        assertEquals(dense, sameIds);
+        assertEquals(dense.hashCode(), sameIds.hashCode());
+        assertNotEquals(dense, sparse);
+        assertEquals(dense, dense.copy());
+        assertThrows(IllegalArgumentException.class, () -> dense.add(-1));
+        assertFalse(dense.contains(-1));
+    }
+
+    private static void fill(Random random, CompressedBitmap bitmap, BitSet expected, int base, int count) {
+        for (int i = 0; i < count; i++) {
+            int id = base + random.nextInt(BLOCK);
+            bitmap.add(id);
+            expected.set(id);
+        }
+    }
+
+    private static BitSet toBitSet(CompressedBitmap bitmap) {
+        BitSet bits = new BitSet();
+        bitmap.forEach(bits::set);
+        return bits;
+    }
+}
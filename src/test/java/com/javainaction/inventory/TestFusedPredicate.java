@@ -0,0 +1,87 @@
+package com.javainaction.inventory;
+
+import com.javainaction.Fixtures;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestFusedPredicate {
+
+    @Test
+    void fusedPredicatesGiveTheSameResultsAsTheNestedChain() {
+        Predicate<Integer> even = (Integer i) -> i % 2 == 0;
+        Predicate<Integer> large = (Integer i) -> i > 500;
+        Predicate<Integer> multipleOfThree = (Integer i) -> i % 3 == 0;
+        Predicate<Integer> nested = even.and(large).or(multipleOfThree.negate()).negate();
+        // Sampling every 7th test reorders the terms while the numbers are tested.
+        FusedPredicate<Integer> fused = FusedPredicate.allOf(even, large).withSampleInterval(7)
+                .or(FusedPredicate.<Integer>anyOf(multipleOfThree).negate()).negate();
+
+        for (int number : Fixtures.numbers(10_000, 1_000)) {
+            assertEquals(nested.test(number), fused.test(number), "number " + number);
+        }
+    }
+
+    @Test
+    void nestedConjunctionsAreFlattened() {
+        Predicate<Integer> even = (Integer i) -> i % 2 == 0;
+        Predicate<Integer> large = (Integer i) -> i > 500;
+        Predicate<Integer> small = (Integer i) -> i < 900;
+
+        FusedPredicate<Integer> fused = FusedPredicate.allOf(FusedPredicate.allOf(even, large), small);
+
+        assertTrue(fused.isConjunction());
+        assertEquals(3, fused.getOrder().size());
+        assertEquals(2, FusedPredicate.allOf(FusedPredicate.anyOf(even, large), small).getOrder().size());
+    }
+
+    @Test
+    void conjunctionTestsTheMostSelectiveTermFirstAndShortCircuits() {
+        AtomicInteger mostlyTrueCalls = new AtomicInteger();
+        AtomicInteger mostlyFalseCalls = new AtomicInteger();
+        Predicate<Integer> mostlyTrue = (Integer i) -> mostlyTrueCalls.incrementAndGet() > 0 && i >= 10;
+        Predicate<Integer> mostlyFalse = (Integer i) -> mostlyFalseCalls.incrementAndGet() > 0 && i < 10;
+        List<Integer> numbers = Fixtures.numbers(10_000, 1_000);
+
+        FusedPredicate<Integer> fused = FusedPredicate.allOf(mostlyTrue, mostlyFalse)
+                .withSampleInterval(Integer.MAX_VALUE)
+                .calibrate(numbers, 1_000);
+
+        assertSame(mostlyFalse, fused.getOrder().get(0));
+        long expected = numbers.stream().filter(mostlyTrue.and(mostlyFalse)).count();
+        mostlyTrueCalls.set(0);
+        mostlyFalseCalls.set(0);
+        assertEquals(expected, numbers.stream().filter(fused).count());
+        // mostlyTrue only runs for the numbers that pass mostlyFalse.
+        assertEquals(numbers.size(), mostlyFalseCalls.get());
+        assertEquals(numbers.stream().filter((Integer i) -> i < 10).count(), mostlyTrueCalls.get());
+    }
+
+    @Test
+    void disjunctionTestsTheMostLikelyTermFirst() {
+        Predicate<Integer> rarelyTrue = (Integer i) -> i < 10;
+        Predicate<Integer> mostlyTrue = (Integer i) -> i >= 10;
+
+        FusedPredicate<Integer> fused = FusedPredicate.anyOf(rarelyTrue, mostlyTrue)
+                .withSampleInterval(Integer.MAX_VALUE)
+                .calibrate(Fixtures.numbers(10_000, 1_000), 1_000);
+
+        assertSame(mostlyTrue, fused.getOrder().get(0));
+    }
+
+    @Test
+    void termsStayInDeclarationOrderWithoutStatistics() {
+        Predicate<Integer> first = (Integer i) -> i > 1;
+        Predicate<Integer> second = (Integer i) -> i > 2;
+
+        List<Predicate<? super Integer>> order = FusedPredicate.allOf(first, second).getOrder();
+
+        assertSame(first, order.get(0));
+        assertSame(second, order.get(1));
+        assertThrows(IllegalArgumentException.class, () -> FusedPredicate.<Integer>allOf());
+    }
+}
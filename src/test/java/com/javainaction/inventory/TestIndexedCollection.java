@@ -0,0 +1,76 @@
+package com.javainaction.inventory;
+
+import com.javainaction.Fixtures;
+import com.javainaction.entities.Apple;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestIndexedCollection {
+
+    @Test
+    void indexesAreMaintainedOnRemove() {
+        List<Apple> apples = Fixtures.apples(1_000);
+        IndexedCollection<Apple> collection = IndexedCollection.ofApples(apples);
+        List<Apple> remaining = new ArrayList<>(apples);
+        for (int i = 0; i < apples.size(); i += 3) {
+            assertTrue(collection.remove(apples.get(i)));
+            remaining.remove(apples.get(i));
+        }
+        assertFalse(collection.remove(apples.get(0)));
+
+        assertEquals(remaining.size(), collection.size());
+        assertEquals(sortedByWeight(filter(remaining, "green", 150)),
+                sortedByWeight(collection.get(collection.equalTo("color", "green").and(collection.greaterThan("weight", 150)))));
+        assertEquals(sortedByWeight(remaining.stream().filter((Apple apple) -> apple.getWeight() >= 95 && apple.getWeight() <= 204)
+                        .collect(Collectors.toList())),
+                sortedByWeight(collection.get(collection.between("weight", 95, 204))));
+        assertEquals(collection.filter((Apple apple) -> true), collection.all());
+    }
+
+    @Test
+    void removedIdsAreReusedAndReindexed() {
+        IndexedCollection<Apple> collection = new IndexedCollection<>();
+        collection.addIndex("color", Apple::getColor);
+        collection.addRangeIndex("weight", Apple::getWeight, 10);
+        Apple first = Apple.of(100, "green");
+        Apple second = Apple.of(200, "red");
+        Apple third = Apple.of(300, "green");
+        assertEquals(0, collection.add(first));
+        assertEquals(1, collection.add(second));
+        assertEquals(2, collection.add(third));
+
+        collection.remove(first);
+        collection.remove(second);
+        assertThrows(IndexOutOfBoundsException.class, () -> collection.get(0));
+
+        // The lowest free id first; the new items are indexed with their own values.
+        Apple fourth = Apple.of(205, "yellow");
+        Apple fifth = Apple.of(95, "red");
+        assertEquals(0, collection.add(fourth));
+        assertEquals(1, collection.add(fifth));
+        assertEquals(3, collection.add(Apple.of(150, "green")));
+        assertSame(fourth, collection.get(0));
+        assertArrayEquals(new int[]{0}, collection.equalTo("color", "yellow").toArray());
+        assertArrayEquals(new int[]{1}, collection.equalTo("color", "red").toArray());
+        assertArrayEquals(new int[]{2, 3}, collection.equalTo("color", "green").toArray());
+        assertArrayEquals(new int[]{0, 2}, collection.greaterThan("weight", 200).toArray());
+        assertArrayEquals(new int[]{1}, collection.lessThan("weight", 100).toArray());
+        assertArrayEquals(new int[]{0, 1, 2, 3}, collection.all().toArray());
+        assertThrows(IllegalArgumentException.class, () -> collection.add(fourth));
+    }
+
+    private static List<Apple> filter(List<Apple> apples, String color, int weight) {
+        return apples.stream()
+                .filter((Apple apple) -> apple.getColor().equals(color) && apple.getWeight() > weight)
+                .collect(Collectors.toList());
+    }
+
+    private static List<Integer> sortedByWeight(List<Apple> apples) {
+        return apples.stream().map(Apple::getWeight).sorted().collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,65 @@
+package com.javainaction.inventory;
+
+import com.javainaction.Fixtures;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestParallelFilter {
+
+    private static <T> List<T> sequential(List<T> items, Predicate<? super T> predicate) {
+        return items.stream().filter(predicate).collect(Collectors.toList());
+    }
+
+    @Test
+    void expensivePredicateIsSplitAndKeepsTheOrder() {
+        List<Integer> numbers = Fixtures.numbers(200_000, 1_000_000);
+        // About a microsecond per element: far above the sequential threshold, so the list is split.
+        Predicate<Integer> expensive = (Integer i) -> {
+            long hash = i;
+            for (int round = 0; round < 200; round++) {
+                hash = hash * 31 + round;
+            }
+            return (hash & 3) == 0;
+        };
+        assertTrue(ParallelFilter.cutoff(numbers.size(), 1_000.0) > 0);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertEquals(sequential(numbers, expensive), ParallelFilter.filter(numbers, expensive, pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void cheapPredicateGivesTheSameResult() {
+        List<Integer> numbers = Fixtures.numbers(100_000, 1_000_000);
+        Predicate<Integer> even = (Integer i) -> i % 2 == 0;
+
+        assertEquals(sequential(numbers, even), ParallelFilter.filter(numbers, even));
+        assertEquals(sequential(numbers, even), ParallelFilter.filter(new LinkedList<>(numbers), even));
+    }
+
+    @Test
+    void shortListsAndNoHits() {
+        Predicate<Integer> even = (Integer i) -> i % 2 == 0;
+
+        assertEquals(new ArrayList<Integer>(), ParallelFilter.filter(new ArrayList<Integer>(), even));
+        assertEquals(sequential(Fixtures.numbers(10, 1_000_000), even), ParallelFilter.filter(Fixtures.numbers(10, 1_000_000), even));
+        assertEquals(new ArrayList<Integer>(), ParallelFilter.filter(Fixtures.numbers(10_000, 1_000_000), (Integer i) -> i < 0));
+    }
+
+    @Test
+    void cutoffGrowsWithCheaperElements() {
+        assertEquals(0, ParallelFilter.cutoff(100, 10.0));
+        assertEquals(256, ParallelFilter.cutoff(1_000_000, 1_000.0));
+        assertEquals(5_000, ParallelFilter.cutoff(1_000_000, 10.0));
+    }
+}
@@ -0,0 +1,187 @@
+package com.javainaction.inventory;
+
+import com.javainaction.Fixtures;
+import com.javainaction.entities.Apple;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestQueryCache {
+
+    private static VersionedList<Integer> numbers(int count) {
+        return new VersionedList<>(IntStream.range(0, count).boxed().collect(Collectors.toList()));
+    }
+
+    private static <T> List<T> scan(List<T> list, Predicate<? super T> predicate) {
+        return list.stream().filter(predicate).collect(Collectors.toList());
+    }
+
+    @Test
+    void everyChangeOfTheListIsAMiss() {
+        QueryCache cache = new QueryCache();
+        VersionedList<Apple> apples = new VersionedList<>(Fixtures.apples(500));
+        Predicate<Apple> heavy = Apple::isHeavyApple;
+        List<Consumer<VersionedList<Apple>>> changes = Arrays.asList(
+                list -> list.set(0, Apple.of(299, "red")),
+                list -> list.add(Apple.of(200, "green")),
+                list -> list.add(3, Apple.of(10, "green")),
+                list -> list.remove(1),
+                list -> list.remove(list.get(5)),
+                list -> list.subList(10, 20).clear(),
+                // A change inside an item, made known with touch().
+                list -> {
+                    list.get(0).setWeight(1);
+                    list.touch();
+                },
+                List::clear);
+
+        assertEquals(scan(apples, heavy), cache.filter(apples, heavy));
+        long misses = cache.getMisses();
+        for (Consumer<VersionedList<Apple>> change : changes) {
+            assertEquals(scan(apples, heavy), cache.filter(apples, heavy));
+            assertEquals(misses, cache.getMisses());
+            long version = apples.getVersion();
+
+            change.accept(apples);
+
+            assertTrue(apples.getVersion() > version);
+            assertEquals(scan(apples, heavy), cache.filter(apples, heavy));
+            assertEquals(++misses, cache.getMisses());
+        }
+        assertTrue(apples.isEmpty());
+        // The result of the older version was replaced, not added.
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void queryKeyIdentifiesThePredicate() {
+        QueryCache cache = new QueryCache();
+        VersionedList<Apple> apples = new VersionedList<>(Fixtures.apples(500));
+        VersionedList<Apple> copy = new VersionedList<>(apples);
+
+        // Two lambdas with the same key: the second one is a hit.
+        List<Apple> heavy = cache.filter(apples, Arrays.asList("heavier than", 150), (Apple apple) -> apple.getWeight() > 150);
+        assertEquals(heavy, cache.filter(apples, Arrays.asList("heavier than", 150), (Apple apple) -> apple.getWeight() > 150));
+        assertEquals(1, cache.getHits());
+        assertEquals(heavy.size(), cache.count(apples, Arrays.asList("heavier than", 150), Apple::isHeavyApple));
+        assertEquals(2, cache.getHits());
+
+        // Another list with equal items has a cache entry of its own.
+        assertEquals(heavy, cache.filter(copy, Arrays.asList("heavier than", 150), Apple::isHeavyApple));
+        assertEquals(2, cache.getMisses());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void leastRecentlyUsedResultsAreEvicted() {
+        VersionedList<Integer> numbers = numbers(100);
+        // Every result has 10 indexes: 96 + 4 * 10 = 136 bytes, so 7 results fit in 1000 bytes.
+        QueryCache cache = new QueryCache(1_000);
+        for (int remainder = 0; remainder < 7; remainder++) {
+            int r = remainder;
+            cache.filter(numbers, "remainder " + r, (Integer number) -> number % 10 == r);
+        }
+        assertEquals(7, cache.size());
+        assertEquals(7 * 136, cache.getTotalBytes());
+        assertEquals(0, cache.getEvictions());
+
+        // Remainder 0 is used again, so remainder 1 is the least recently used.
+        cache.filter(numbers, "remainder 0", (Integer number) -> number % 10 == 0);
+        cache.filter(numbers, "remainder 7", (Integer number) -> number % 10 == 7);
+
+        assertEquals(1, cache.getEvictions());
+        assertEquals(7, cache.size());
+        assertTrue(cache.getTotalBytes() <= 1_000);
+        long misses = cache.getMisses();
+        cache.count(numbers, "remainder 0", (Integer number) -> number % 10 == 0);
+        assertEquals(misses, cache.getMisses());
+        cache.count(numbers, "remainder 1", (Integer number) -> number % 10 == 1);
+        assertEquals(misses + 1, cache.getMisses());
+        assertEquals(2, cache.getEvictions());
+        assertTrue(cache.getTotalBytes() <= 1_000);
+
+        // 96 + 4 * 100 = 496 bytes: four results are evicted to make room.
+        cache.filter(numbers, "all", (Integer number) -> true);
+        assertEquals(6, cache.getEvictions());
+        assertEquals(4, cache.size());
+        assertEquals(3 * 136 + 496, cache.getTotalBytes());
+
+        // A result larger than the cache on its own is kept, as the only entry.
+        QueryCache small = new QueryCache(200);
+        small.filter(numbers, "remainder 0", (Integer number) -> number % 10 == 0);
+        small.filter(numbers, "all", (Integer number) -> true);
+        assertEquals(1, small.size());
+        assertEquals(1, small.getEvictions());
+        assertEquals(496, small.getTotalBytes());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getTotalBytes());
+        assertThrows(IllegalArgumentException.class, () -> new QueryCache(0));
+    }
+
+    @Test
+    void hitRateAndSavedTimeFollowTheHits() {
+        QueryCache cache = new QueryCache();
+        VersionedList<Integer> numbers = numbers(100);
+        List<Integer> evaluated = new ArrayList<>();
+        // A slow filter: at least a millisecond per evaluation.
+        Predicate<Integer> slow = (Integer number) -> {
+            evaluated.add(number);
+            if (number == 0) {
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return number % 2 == 0;
+        };
+        assertEquals(0.0, cache.getHitRate());
+
+        cache.filter(numbers, slow);
+        assertEquals(0.0, cache.getHitRate());
+        assertEquals(0, cache.getSavedNanos());
+        cache.filter(numbers, slow);
+        long saved = cache.getSavedNanos();
+        assertTrue(saved >= 1_000_000, "saved " + saved);
+        cache.filter(numbers, slow);
+        cache.filter(numbers, slow);
+
+        assertEquals(0.75, cache.getHitRate());
+        // Every hit saves the time of the evaluation it reuses.
+        assertEquals(3 * saved, cache.getSavedNanos());
+        assertEquals(100, evaluated.size());
+    }
+
+    @Test
+    void cachedResultFailsAfterTheListChanged() {
+        QueryCache cache = new QueryCache();
+        VersionedList<Integer> numbers = numbers(100);
+        Predicate<Integer> even = (Integer number) -> number % 2 == 0;
+        List<Integer> result = cache.filter(numbers, even);
+        List<Integer> cached = cache.filter(numbers, even);
+        assertEquals(1, cache.getHits());
+        assertEquals(50, cached.size());
+        assertEquals(Integer.valueOf(98), cached.get(49));
+
+        numbers.add(100);
+
+        assertThrows(ConcurrentModificationException.class, () -> result.get(0));
+        assertThrows(ConcurrentModificationException.class, () -> cached.get(0));
+        assertEquals(scan(numbers, even), cache.filter(numbers, even));
+
+        List<Integer> touched = cache.filter(numbers, even);
+        numbers.touch();
+        assertThrows(ConcurrentModificationException.class, () -> touched.get(0));
+    }
+}
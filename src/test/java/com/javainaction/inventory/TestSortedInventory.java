@@ -0,0 +1,124 @@
+package com.javainaction.inventory;
+
+import com.javainaction.Fixtures;
+import com.javainaction.entities.Apple;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntPredicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestSortedInventory {
+
+    private static final Comparator<Fixtures.Keyed> BY_KEY = Comparator.comparingInt(Fixtures.Keyed::getIntKey);
+
+    // Around zero, at the extremes of int and in between.
+    private static final int[] THRESHOLDS = {
+            Integer.MIN_VALUE, Integer.MIN_VALUE + 1, -1_000, -37, -1, 0, 1, 37, 999, Integer.MAX_VALUE - 1, Integer.MAX_VALUE};
+
+    private static List<Fixtures.Keyed> elements() {
+        List<Fixtures.Keyed> elements = new ArrayList<>(Fixtures.keyed(1_000, 2_000));
+        for (int key : new int[]{Integer.MIN_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, 0, Integer.MAX_VALUE}) {
+            elements.add(new Fixtures.Keyed(key, elements.size()));
+        }
+        return elements;
+    }
+
+    // The expected result: a linear scan over the stably sorted elements.
+    private static List<Fixtures.Keyed> scan(List<Fixtures.Keyed> sorted, IntPredicate matches) {
+        return sorted.stream().filter(element -> matches.test(element.getIntKey())).collect(Collectors.toList());
+    }
+
+    @Test
+    void queriesReturnTheItemsOfALinearScan() {
+        List<Fixtures.Keyed> elements = elements();
+        List<Fixtures.Keyed> sorted = Fixtures.sorted(elements, BY_KEY);
+        SortedInventory<Fixtures.Keyed> inventory = new SortedInventory<>(Fixtures.Keyed::getIntKey);
+        inventory.addAll(elements);
+
+        assertEquals(sorted, inventory.asList());
+        for (int value : THRESHOLDS) {
+            List<Fixtures.Keyed> greater = scan(sorted, key -> key > value);
+            assertEquals(greater, inventory.greaterThan(value), "> " + value);
+            assertEquals(greater.size(), inventory.countGreaterThan(value));
+            assertEquals(scan(sorted, key -> key < value), inventory.lessThan(value), "< " + value);
+            for (int maximum : THRESHOLDS) {
+                List<Fixtures.Keyed> between = scan(sorted, key -> key >= value && key <= maximum);
+                assertEquals(between, inventory.between(value, maximum), value + " .. " + maximum);
+                assertEquals(between.size(), inventory.countBetween(value, maximum));
+            }
+        }
+        // Minimum above maximum: nothing, not a negative count.
+        assertTrue(inventory.between(10, -10).isEmpty());
+        assertEquals(0, inventory.countBetween(Integer.MAX_VALUE, Integer.MIN_VALUE));
+    }
+
+    @Test
+    void equalKeysKeepTheirInsertionOrderOverBatches() {
+        // Few distinct keys: many items share a key, in every batch.
+        List<Fixtures.Keyed> elements = Fixtures.keyed(1_000, 10);
+        SortedInventory<Fixtures.Keyed> inventory = new SortedInventory<>(Fixtures.Keyed::getIntKey);
+        inventory.addAll(elements.subList(0, 300));
+        assertEquals(Fixtures.sorted(elements.subList(0, 300), BY_KEY), inventory.asList());
+
+        // Two batches merged at once, then one more item and a batch after a query.
+        inventory.addAll(elements.subList(300, 500));
+        inventory.addAll(elements.subList(500, 700));
+        assertEquals(700, inventory.size());
+        assertEquals(Fixtures.sorted(elements.subList(0, 700), BY_KEY), inventory.asList());
+        inventory.add(elements.get(700));
+        inventory.addAll(elements.subList(701, 1_000));
+
+        List<Fixtures.Keyed> all = inventory.asList();
+        assertEquals(Fixtures.sorted(elements, BY_KEY), all);
+        for (int i = 1; i < all.size(); i++) {
+            if (all.get(i - 1).getKey() == all.get(i).getKey()) {
+                assertTrue(all.get(i - 1).getPosition() < all.get(i).getPosition(), all.get(i - 1) + " before " + all.get(i));
+            }
+        }
+    }
+
+    @Test
+    void viewTakenBeforeAMergeIsASnapshot() {
+        List<Apple> apples = Fixtures.distinctApples(200, 300);
+        SortedInventory<Apple> inventory = SortedInventory.byWeight(apples.subList(0, 100));
+        List<Apple> heavy = inventory.greaterThan(150);
+        List<Apple> all = inventory.asList();
+        List<Apple> heavyBefore = new ArrayList<>(heavy);
+        List<Apple> allBefore = new ArrayList<>(all);
+
+        inventory.addAll(apples.subList(100, 200));
+        inventory.add(Apple.of(299, "heaviest"));
+        assertEquals(201, inventory.countBetween(Integer.MIN_VALUE, Integer.MAX_VALUE));
+
+        assertEquals(heavyBefore, heavy);
+        assertEquals(allBefore, all);
+        assertEquals(100, all.size());
+        List<Apple> expected = apples.stream().filter(Apple::isHeavyApple).collect(Collectors.toList());
+        expected.add(Apple.of(299, "heaviest"));
+        assertEquals(Fixtures.sorted(expected, Comparator.comparing(Apple::getWeight)), inventory.greaterThan(150));
+    }
+
+    @Test
+    void viewsAreReadOnlyRanges() {
+        SortedInventory<Fixtures.Keyed> inventory = new SortedInventory<>(Fixtures.Keyed::getIntKey);
+        assertTrue(inventory.asList().isEmpty());
+        assertEquals(0, inventory.countGreaterThan(Integer.MIN_VALUE));
+        List<Fixtures.Keyed> elements = Arrays.asList(
+                new Fixtures.Keyed(3, 0), new Fixtures.Keyed(1, 1), new Fixtures.Keyed(2, 2), new Fixtures.Keyed(5, 3));
+        inventory.addAll(elements);
+
+        List<Fixtures.Keyed> between = inventory.between(2, 5);
+        assertEquals(Arrays.asList(elements.get(2), elements.get(0), elements.get(3)), between);
+        assertEquals(Arrays.asList(elements.get(0)), between.subList(1, 2));
+        assertThrows(IndexOutOfBoundsException.class, () -> between.get(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> between.get(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> between.subList(2, 4));
+        assertThrows(UnsupportedOperationException.class, () -> between.add(elements.get(1)));
+    }
+}
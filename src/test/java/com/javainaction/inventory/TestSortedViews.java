@@ -0,0 +1,176 @@
+package com.javainaction.inventory;
+
+import com.javainaction.Fixtures;
+import com.javainaction.entities.Apple;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestSortedViews {
+
+    private static final Comparator<Apple> BY_WEIGHT = Comparator.comparing(Apple::getWeight);
+
+    @Test
+    void snapshotKeepsItsViewAfterAddAndRemove() {
+        List<Apple> apples = Fixtures.distinctApples(100, 300);
+        SortedViews<Apple> views = SortedViews.ofApples(apples);
+        Apple added = Apple.of(150, "added");
+
+        try (SortedViews<Apple>.Snapshot before = views.snapshot()) {
+            views.remove(apples.get(0));
+            views.remove(apples.get(50));
+            views.add(added);
+
+            assertEquals(Fixtures.sorted(apples, BY_WEIGHT), before.toList("weight"));
+            assertEquals(100, before.size());
+            assertEquals(Fixtures.sorted(apples, BY_WEIGHT).get(0), before.first("weight").get());
+
+            List<Apple> current = new ArrayList<>(apples);
+            current.remove(50);
+            current.remove(0);
+            current.add(added);
+            assertEquals(Fixtures.sorted(current, BY_WEIGHT), views.toList("weight"));
+            assertEquals(99, views.size());
+            assertEquals(before.getVersion() + 3, views.getVersion());
+        }
+    }
+
+    @Test
+    void removedEntriesArePurgedAfterTheLastOlderSnapshotCloses() {
+        List<Apple> apples = Fixtures.distinctApples(10, 300);
+        SortedViews<Apple> views = SortedViews.ofApples(apples);
+
+        SortedViews<Apple>.Snapshot oldest = views.snapshot();
+        views.remove(apples.get(0));
+        SortedViews<Apple>.Snapshot newer = views.snapshot();
+        views.remove(apples.get(1));
+        assertEquals(10, views.retainedSize());
+
+        // The next change purges; the oldest snapshot still sees both removed apples.
+        newer.close();
+        views.add(Apple.of(100, "first"));
+        assertEquals(11, views.retainedSize());
+        assertEquals(Fixtures.sorted(apples, BY_WEIGHT), oldest.toList("weight"));
+
+        oldest.close();
+        views.add(Apple.of(100, "second"));
+        assertEquals(10, views.retainedSize());
+        assertEquals(10, views.size());
+
+        // Without open snapshots a removed entry is purged at once.
+        views.remove(apples.get(2));
+        assertEquals(9, views.retainedSize());
+    }
+
+    @Test
+    void addViewIncludesTheEntriesOpenSnapshotsCanSee() {
+        List<Apple> apples = Fixtures.distinctApples(20, 300);
+        SortedViews<Apple> views = SortedViews.ofApples(apples);
+        Comparator<Apple> byColor = Comparator.comparing(Apple::getColor);
+
+        try (SortedViews<Apple>.Snapshot before = views.snapshot()) {
+            Apple removed = apples.get(3);
+            views.remove(removed);
+            views.addView("color", byColor);
+
+            List<Apple> expected = new ArrayList<>(apples);
+            expected.sort(byColor);
+            assertEquals(expected, before.toList("color"));
+            expected.remove(removed);
+            assertEquals(expected, views.toList("color"));
+        }
+        assertThrows(IllegalArgumentException.class, () -> views.addView("color", byColor));
+    }
+
+    @Test
+    void equalItemsKeepInsertionOrder() {
+        Apple first = Apple.of(120, "b");
+        Apple second = Apple.of(120, "a");
+        Apple third = Apple.of(120, "c");
+        Apple light = Apple.of(80, "d");
+        SortedViews<Apple> views = SortedViews.ofApples(Arrays.asList(first, second, light, third));
+
+        assertEquals(Arrays.asList(light, first, second, third), views.toList("weight"));
+        // "heaviest" orders equal weights by color.
+        assertEquals(Arrays.asList(second, first, third, light), views.toList("heaviest"));
+
+        // Added again, an item is the latest of its equals.
+        views.remove(first);
+        views.add(first);
+        assertEquals(Arrays.asList(light, second, third, first), views.toList("weight"));
+        assertFalse(views.add(first));
+        assertFalse(views.remove(Apple.of(120, "b")));
+    }
+
+    @Test
+    void readersSeeConsistentSnapshotsWhileAWriterChanges() throws InterruptedException {
+        List<Apple> apples = Fixtures.distinctApples(1_000, 100);
+        SortedViews<Apple> views = SortedViews.ofApples(Collections.emptyList());
+        // The expected weight view of every version, filled in by the writer.
+        Map<Long, List<Apple>> expected = new ConcurrentHashMap<>();
+        expected.put(views.getVersion(), Collections.emptyList());
+        Map<Long, List<Apple>> seen = new ConcurrentHashMap<>();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicInteger unstable = new AtomicInteger();
+
+        Thread writer = new Thread(() -> {
+            List<Apple> current = new ArrayList<>();
+            for (int i = 0; i < apples.size(); i++) {
+                views.add(apples.get(i));
+                current.add(apples.get(i));
+                expected.put(views.getVersion(), Fixtures.sorted(current, BY_WEIGHT));
+                // Remove every third apple again, some time after it was added.
+                if (i % 3 == 2) {
+                    Apple removed = apples.get(i - 2);
+                    views.remove(removed);
+                    current.remove(removed);
+                    expected.put(views.getVersion(), Fixtures.sorted(current, BY_WEIGHT));
+                }
+            }
+            done.set(true);
+        });
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 3; r++) {
+            readers.add(new Thread(() -> {
+                do {
+                    try (SortedViews<Apple>.Snapshot snapshot = views.snapshot()) {
+                        List<Apple> weight = snapshot.toList("weight");
+                        // A snapshot is stable: reading the view again gives the same items.
+                        if (!weight.equals(snapshot.toList("weight")) || weight.size() != snapshot.size()) {
+                            unstable.incrementAndGet();
+                        }
+                        seen.put(snapshot.getVersion(), weight);
+                    }
+                } while (!done.get());
+            }));
+        }
+        readers.forEach(Thread::start);
+        writer.start();
+        writer.join();
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertEquals(0, unstable.get());
+        assertFalse(seen.isEmpty());
+        for (Map.Entry<Long, List<Apple>> entry : seen.entrySet()) {
+            assertEquals(expected.get(entry.getKey()), entry.getValue(), "version " + entry.getKey());
+        }
+        assertEquals(apples.size() - apples.size() / 3, views.size());
+        // A reader may have kept removed entries until the last change: the next change purges them.
+        Apple extra = Apple.of(50, "extra");
+        views.add(extra);
+        views.remove(extra);
+        assertEquals(views.size(), views.retainedSize());
+    }
+}
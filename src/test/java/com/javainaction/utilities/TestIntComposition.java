@@ -0,0 +1,106 @@
+package com.javainaction.utilities;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.function.IntUnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestIntComposition {
+
+    private static int[] values(int count) {
+        Random random = new Random(42);
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = random.nextInt();
+        }
+        values[0] = Integer.MAX_VALUE;
+        values[1] = Integer.MIN_VALUE;
+        return values;
+    }
+
+    @Test
+    void adjacentAffineStepsFoldIntoOne() {
+        IntComposition composition = IntComposition.add(1).thenMultiply(2).thenAdd(-2);
+
+        assertEquals(1, composition.getNumberOfSteps());
+        assertTrue(composition.isAffine());
+        assertEquals("x * 2", composition.toString());
+        assertEquals(42, composition.applyAsInt(21));
+
+        // Steps that cancel out leave the identity.
+        IntComposition identity = IntComposition.add(5).thenAdd(-5);
+        assertEquals(0, identity.getNumberOfSteps());
+        assertTrue(identity.isAffine());
+        assertEquals("x", identity.toString());
+        assertSame(IntComposition.identity(), IntComposition.multiply(1));
+    }
+
+    @Test
+    void foldingIsExactWhenTheIntOverflows() {
+        IntComposition folded = IntComposition.multiply(1_000_003).thenAdd(Integer.MAX_VALUE)
+                .thenMultiply(-77_777).thenAdd(123_456_789).thenMultiply(65_537);
+        IntUnaryOperator stepByStep = (int x) -> ((x * 1_000_003 + Integer.MAX_VALUE) * -77_777 + 123_456_789) * 65_537;
+        assertEquals(1, folded.getNumberOfSteps());
+
+        int[] values = values(1_000);
+        int[] applied = values.clone();
+        folded.applyTo(applied);
+        for (int i = 0; i < values.length; i++) {
+            assertEquals(stepByStep.applyAsInt(values[i]), folded.applyAsInt(values[i]));
+            assertEquals(stepByStep.applyAsInt(values[i]), applied[i]);
+        }
+
+        LongComposition foldedLong = LongComposition.multiply(Long.MAX_VALUE).thenAdd(Long.MIN_VALUE + 3)
+                .thenMultiply(-1_000_000_007L).thenAdd(1);
+        assertEquals(1, foldedLong.getNumberOfSteps());
+        for (int value : values) {
+            long expected = (value * Long.MAX_VALUE + Long.MIN_VALUE + 3) * -1_000_000_007L + 1;
+            assertEquals(expected, foldedLong.applyAsLong(value));
+        }
+        assertEquals("x * 2", LongComposition.add(1).thenMultiply(2).thenAdd(-2).toString());
+    }
+
+    @Test
+    void reduceSumMatchesALoop() {
+        int[] values = values(1_000);
+        IntComposition affine = IntComposition.multiply(3).thenAdd(-7);
+        IntComposition nonAffine = affine.andThen((int x) -> x >>> 3).thenAdd(11);
+        assertTrue(affine.isAffine());
+        assertFalse(nonAffine.isAffine());
+
+        for (IntComposition composition : new IntComposition[]{IntComposition.identity(), affine, nonAffine}) {
+            int expected = 100;
+            int max = Integer.MIN_VALUE;
+            for (int value : values) {
+                expected += composition.applyAsInt(value);
+                max = Math.max(max, composition.applyAsInt(value));
+            }
+            assertEquals(expected, composition.reduce(values, 100, IntComposition.SUM));
+            assertEquals(expected, composition.reduce(values, 100, (int a, int b) -> a + b));
+            assertEquals(max, composition.reduce(values, Integer.MIN_VALUE, IntComposition.MAX));
+        }
+        assertEquals(5, affine.reduce(new int[0], 5, IntComposition.SUM));
+    }
+
+    @Test
+    void composeAppliesTheArgumentFirst() {
+        IntComposition plusOne = IntComposition.add(1);
+        IntUnaryOperator square = (int x) -> x * x;
+
+        assertEquals(10, plusOne.compose(square).applyAsInt(3));
+        assertEquals(16, plusOne.andThen(square).applyAsInt(3));
+        assertEquals("f(x + 1)", plusOne.andThen(square).toString());
+        assertEquals("f(x) + 1", plusOne.compose(square).toString());
+
+        // Compositions of compositions stay flat, and affine steps fold across them: (x + 4) * 2 + 1, then square.
+        IntComposition twice = IntComposition.multiply(2);
+        IntComposition nested = twice.andThen(plusOne.andThen(square)).compose(IntComposition.add(4));
+        assertEquals(2, nested.getNumberOfSteps());
+        assertEquals("f(x * 2 + 9)", nested.toString());
+        assertEquals(((3 + 4) * 2 + 1) * ((3 + 4) * 2 + 1), nested.applyAsInt(3));
+        assertEquals(plusOne.applyAsInt(twice.applyAsInt(5)), twice.andThen(plusOne).applyAsInt(5));
+        assertEquals(twice.applyAsInt(plusOne.applyAsInt(5)), twice.compose(plusOne).applyAsInt(5));
+    }
+}
@@ -0,0 +1,116 @@
+package com.javainaction.utilities;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestLazyView {
+
+    /**
+     * A list of 0 .. size - 1 that counts the elements read and cannot be copied in bulk.
+     */
+    private static final class CountingList extends AbstractList<Integer> {
+
+        private final int size;
+        private int reads;
+
+        private CountingList(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public Integer get(int index) {
+            reads++;
+            return index;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Object[] toArray() {
+            throw new UnsupportedOperationException("copied");
+        }
+    }
+
+    @Test
+    void sizeCountsWithoutCopyingOrMapping() {
+        CountingList source = new CountingList(1_000);
+        AtomicInteger mapped = new AtomicInteger();
+        LazyView<String> view = LazyView.of(source)
+                .filter((Integer i) -> i % 3 == 0)
+                .map((Integer i) -> {
+                    mapped.incrementAndGet();
+                    return "#" + i;
+                });
+        assertEquals(0, source.reads);
+
+        assertEquals(334, view.size());
+        assertEquals(1_000, source.reads);
+        assertEquals(0, mapped.get());
+        assertEquals(1_000, LazyView.of(source).map(String::valueOf).size());
+        assertEquals(1_000, source.reads);
+    }
+
+    @Test
+    void chainedFiltersAndMapsGiveTheStreamResult() {
+        List<Integer> numbers = IntStream.range(0, 500).boxed().collect(Collectors.toList());
+        LazyView<String> view = LazyView.of(numbers)
+                .filter((Integer i) -> i % 2 == 0)
+                .map((Integer i) -> i * 3)
+                .filter((Integer i) -> i % 9 == 0)
+                .map((Integer i) -> "n" + i);
+        List<String> expected = numbers.stream()
+                .filter((Integer i) -> i % 2 == 0)
+                .map((Integer i) -> i * 3)
+                .filter((Integer i) -> i % 9 == 0)
+                .map((Integer i) -> "n" + i)
+                .collect(Collectors.toList());
+
+        assertEquals(expected, view.materialize());
+        List<String> iterated = new ArrayList<>();
+        view.iterator().forEachRemaining(iterated::add);
+        assertEquals(expected, iterated);
+        assertEquals(expected, view.asList());
+        assertEquals(expected.get(10), view.asList().get(10));
+        assertEquals(expected.size(), view.size());
+    }
+
+    @Test
+    void materializeCopiesButTheViewFollowsTheSource() {
+        List<Integer> numbers = new ArrayList<>(Arrays.asList(1, 2, 3, 4));
+        LazyView<Integer> even = LazyView.of(numbers).filter((Integer i) -> i % 2 == 0);
+        List<Integer> copy = even.materialize();
+
+        numbers.add(6);
+
+        assertEquals(Arrays.asList(2, 4), copy);
+        assertEquals(Arrays.asList(2, 4, 6), even.materialize());
+        assertEquals(3, even.size());
+    }
+
+    @Test
+    void firstStopsEarlyAndSkipsNulls() {
+        CountingList source = new CountingList(1_000);
+        assertEquals(Optional.of(10), LazyView.of(source).filter((Integer i) -> i >= 10).first());
+        assertEquals(11, source.reads);
+
+        List<String> withNulls = Arrays.asList(null, "a", null, "b");
+        assertEquals(Optional.of("a"), LazyView.of(withNulls).first());
+        assertEquals(Optional.empty(), LazyView.of(Arrays.asList(null, null)).first());
+        assertFalse(LazyView.of(Arrays.asList(null, null)).isEmpty());
+        assertEquals(Optional.empty(), LazyView.of(withNulls).filter((String s) -> s != null && s.startsWith("c")).first());
+        assertTrue(LazyView.of(withNulls).filter((String s) -> s != null && s.startsWith("c")).isEmpty());
+    }
+}
@@ -0,0 +1,149 @@
+package com.javainaction.utilities;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestPackedComparator {
+
+    /**
+     * Elements without equals(): a list comparison checks the positions, so also the order of equal elements.
+     */
+    private static final class Element {
+
+        private final int small;
+        private final int large;
+        private final String name;
+        private final TimeUnit unit;
+        private final BigDecimal amount;
+
+        private Element(int small, int large, String name, TimeUnit unit, BigDecimal amount) {
+            this.small = small;
+            this.large = large;
+            this.name = name;
+            this.unit = unit;
+            this.amount = amount;
+        }
+
+        private int getSmall() {
+            return small;
+        }
+
+        private int getLarge() {
+            return large;
+        }
+
+        private String getName() {
+            return name;
+        }
+
+        private TimeUnit getUnit() {
+            return unit;
+        }
+
+        private BigDecimal getAmount() {
+            return amount;
+        }
+
+        @Override
+        public String toString() {
+            return small + "/" + large + "/" + name + "/" + unit + "/" + amount;
+        }
+    }
+
+    private static List<Element> elements(int count) {
+        Random random = new Random(42);
+        String[] names = {"green", "red", "brown", "yellow", "orange"};
+        List<Element> elements = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            elements.add(new Element(random.nextInt(10) - 5,
+                    random.nextBoolean() ? random.nextInt() : random.nextInt(3),
+                    names[random.nextInt(names.length)],
+                    TimeUnit.values()[random.nextInt(TimeUnit.values().length)],
+                    // 1, 1.0 and 1.00 compare as equal, but are not equals().
+                    new BigDecimal(random.nextInt(3)).setScale(random.nextInt(3))));
+        }
+        return elements;
+    }
+
+    private static void assertSortsLikeListSort(PackedComparator<Element> comparator, boolean packable) {
+        assertEquals(packable, comparator.isPackable());
+        List<Element> expected = elements(5_000);
+        List<Element> packed = new ArrayList<>(expected);
+        List<Element> parallel = new ArrayList<>(expected);
+        expected.sort(comparator);
+
+        comparator.sort(packed);
+        comparator.parallelSort(parallel);
+
+        assertEquals(expected, packed);
+        assertEquals(expected, parallel);
+    }
+
+    @Test
+    void mixedDirections() {
+        assertSortsLikeListSort(PackedComparator.byInt(Element::getSmall)
+                .thenComparing(PackedComparator.byString(Element::getName).reversed())
+                .thenByEnum(Element::getUnit), true);
+    }
+
+    @Test
+    void nestedReversedChains() {
+        // reversed() reverses the chain so far: small descending, name ascending after reversing twice.
+        PackedComparator<Element> comparator = PackedComparator.byInt(Element::getSmall)
+                .thenComparing(PackedComparator.byString(Element::getName).reversed())
+                .reversed()
+                .thenComparing(PackedComparator.byEnum(Element::getUnit).reversed().reversed());
+        assertSortsLikeListSort(comparator, true);
+        List<Element> elements = elements(100);
+        elements.sort(comparator);
+        assertTrue(elements.get(0).getSmall() >= elements.get(elements.size() - 1).getSmall());
+    }
+
+    @Test
+    void keysWiderThan64Bits() {
+        // Two full int ranges (32 bits each) and more: the packed keys take more than one long.
+        assertSortsLikeListSort(PackedComparator.byInt(Element::getLarge)
+                .thenComparing(PackedComparator.byInt((Element element) -> element.getLarge() ^ 0x5555_5555).reversed())
+                .thenByInt(Element::getSmall)
+                .thenByString(Element::getName), true);
+    }
+
+    @Test
+    void inheritedThenComparingMethodsKeepPacking() {
+        assertSortsLikeListSort(PackedComparator.byString(Element::getName)
+                .thenComparingInt(Element::getSmall)
+                .thenComparing(Element::getAmount)
+                .thenComparing(Element::getUnit), true);
+    }
+
+    @Test
+    void plainComparatorFallsBackToListSort() {
+        assertSortsLikeListSort(PackedComparator.byInt(Element::getSmall)
+                .thenComparing(Comparator.comparing(Element::getName, String.CASE_INSENSITIVE_ORDER))
+                .thenByEnum(Element::getUnit), false);
+        assertSortsLikeListSort(PackedComparator.byInt(Element::getSmall)
+                .thenComparingLong((Element element) -> (long) element.getLarge() * 3), false);
+        assertSortsLikeListSort(PackedComparator.byInt(Element::getSmall)
+                .thenComparing(Element::getName, Comparator.reverseOrder()), false);
+    }
+
+    @Test
+    void staticSortUsesListSortForOtherComparators() {
+        List<Element> expected = elements(1_000);
+        List<Element> actual = new ArrayList<>(expected);
+        Comparator<Element> comparator = Comparator.comparingInt(Element::getSmall);
+        expected.sort(comparator);
+
+        PackedComparator.sort(actual, comparator);
+
+        assertEquals(expected, actual);
+    }
+}
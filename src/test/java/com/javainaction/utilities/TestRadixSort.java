@@ -0,0 +1,83 @@
+package com.javainaction.utilities;
+
+import com.javainaction.Fixtures;
+import com.javainaction.Fixtures.Keyed;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestRadixSort {
+
+    // Few distinct keys, many duplicates, also negative keys; and the int extremes.
+    private static List<Keyed> intElements(int count, int bound) {
+        List<Keyed> elements = Fixtures.keyed(count, bound);
+        elements.add(new Keyed(Integer.MIN_VALUE, count));
+        elements.add(new Keyed(Integer.MAX_VALUE, count + 1));
+        elements.add(new Keyed(Integer.MIN_VALUE, count + 2));
+        elements.add(new Keyed(-1, count + 3));
+        elements.add(new Keyed(0, count + 4));
+        return elements;
+    }
+
+    private static List<Keyed> longElements(int count) {
+        Random random = new Random(7);
+        long[] keys = {Long.MIN_VALUE, Long.MAX_VALUE, -1L, 0L, 1L, Integer.MIN_VALUE - 1L, 1L << 40, -(1L << 40)};
+        List<Keyed> elements = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            long key = random.nextBoolean() ? keys[random.nextInt(keys.length)] : random.nextLong() >> random.nextInt(64);
+            elements.add(new Keyed(key, i));
+        }
+        return elements;
+    }
+
+    @Test
+    void intSortIsStableLikeListSort() {
+        List<Keyed> elements = intElements(10_000, 100);
+        List<Keyed> expected = Fixtures.sorted(elements, Comparator.comparingInt(Keyed::getIntKey));
+
+        RadixSort.sortByInt(elements, Keyed::getIntKey);
+
+        assertEquals(expected, elements);
+    }
+
+    @Test
+    void longSortIsStableLikeListSort() {
+        List<Keyed> elements = longElements(10_000);
+        List<Keyed> expected = Fixtures.sorted(elements, Comparator.comparingLong(Keyed::getKey));
+
+        RadixSort.sortByLong(elements, Keyed::getKey);
+
+        assertEquals(expected, elements);
+    }
+
+    @Test
+    void parallelSortsAboveTheThresholdAreStable() {
+        List<Keyed> ints = intElements(RadixSort.PARALLEL_THRESHOLD * 3, 1_000_000);
+        List<Keyed> expectedInts = Fixtures.sorted(ints, Comparator.comparingInt(Keyed::getIntKey));
+        RadixSort.parallelSortByInt(ints, Keyed::getIntKey);
+        assertEquals(expectedInts, ints);
+
+        List<Keyed> longs = longElements(RadixSort.PARALLEL_THRESHOLD * 2);
+        List<Keyed> expectedLongs = Fixtures.sorted(longs, Comparator.comparingLong(Keyed::getKey));
+        RadixSort.parallelSortByLong(longs, Keyed::getKey);
+        assertEquals(expectedLongs, longs);
+    }
+
+    @Test
+    void smallAndNonRandomAccessLists() {
+        List<Keyed> empty = new ArrayList<>();
+        RadixSort.sortByInt(empty, Keyed::getIntKey);
+        assertTrue(empty.isEmpty());
+
+        List<Keyed> linked = new LinkedList<>(intElements(1_000, 10));
+        List<Keyed> expected = Fixtures.sorted(linked, Comparator.comparingInt(Keyed::getIntKey));
+        RadixSort.parallelSortByInt(linked, Keyed::getIntKey);
+        assertEquals(expected, linked);
+    }
+}
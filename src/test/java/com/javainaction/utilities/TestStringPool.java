@@ -0,0 +1,149 @@
+package com.javainaction.utilities;
+
+import com.javainaction.entities.Apple;
+import com.javainaction.entities.Dish;
+import com.javainaction.entities.Trader;
+import com.javainaction.enums.Type;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestStringPool {
+
+    // Equal to "Milan", but each one a new instance, as it would come from a file or a database.
+    private static String[] milans() {
+        char[] chars = {'M', 'i', 'l', 'a', 'n'};
+        return new String[]{
+                new String(chars),
+                new String("Milan".getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8),
+                new StringBuilder("naliM").reverse().toString(),
+                "Mil" + new String("an")};
+    }
+
+    @Test
+    void equalStringsFromDifferentSourcesGetOneInstance() {
+        StringPool pool = new StringPool();
+        String[] milans = milans();
+        String canonical = pool.intern(milans[0]);
+
+        // The first instance becomes the canonical one.
+        assertSame(milans[0], canonical);
+        for (int i = 1; i < milans.length; i++) {
+            assertNotSame(canonical, milans[i]);
+            assertSame(canonical, pool.intern(milans[i]));
+        }
+        assertSame(canonical, pool.intern(canonical));
+        assertNotSame(canonical, pool.intern("Cambridge"));
+        assertNull(pool.intern(null));
+        assertEquals(2, pool.size());
+    }
+
+    @Test
+    void idsAndValuesRoundTrip() {
+        StringPool pool = new StringPool();
+        String[] cities = {"Milan", "Cambridge", "Milan", "Paris", "Cambridge"};
+
+        int[] ids = new int[cities.length];
+        for (int i = 0; i < cities.length; i++) {
+            ids[i] = pool.id(cities[i]);
+        }
+
+        // Dense ids in the order of first appearance.
+        assertArrayEquals(new int[]{0, 1, 0, 2, 1}, ids);
+        for (int i = 0; i < cities.length; i++) {
+            assertEquals(cities[i], pool.valueOf(ids[i]));
+            assertSame(pool.intern(cities[i]), pool.valueOf(ids[i]));
+        }
+        assertEquals(pool.id("Paris"), pool.id(new String("Paris")));
+        assertThrows(IllegalArgumentException.class, () -> pool.valueOf(3));
+        assertThrows(IllegalArgumentException.class, () -> pool.valueOf(-1));
+        assertThrows(IllegalArgumentException.class, () -> pool.id(null));
+    }
+
+    @Test
+    void duplicatesAndSavedBytesAreCounted() {
+        StringPool pool = new StringPool();
+        String[] milans = milans();
+        for (String milan : milans) {
+            pool.intern(milan);
+        }
+        // The canonical instance itself is no duplicate.
+        pool.intern(milans[0]);
+        pool.id("Cambridge");
+
+        assertEquals(6, pool.getLookups());
+        assertEquals(3, pool.getDuplicates());
+        // 24 bytes for the String, 16 + 2 * 5 = 26 bytes for its char[], aligned to 32.
+        assertEquals(56, StringPool.sizeOf("Milan"));
+        assertEquals(3 * 56, pool.getSavedBytes());
+        assertTrue(pool.report().startsWith("2 distinct values, 6 lookups, 3 duplicates replaced"), pool.report());
+    }
+
+    @Test
+    void concurrentInternsAgreeOnOneInstanceAndId() throws Exception {
+        StringPool pool = new StringPool();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<String>>> results = new ArrayList<>();
+            for (int thread = 0; thread < 4; thread++) {
+                results.add(executor.submit(() -> {
+                    List<String> canonicals = new ArrayList<>();
+                    for (int i = 0; i < 1_000; i++) {
+                        canonicals.add(pool.intern(new String("value " + i % 100)));
+                    }
+                    return canonicals;
+                }));
+            }
+            List<String> first = results.get(0).get();
+            for (Future<List<String>> result : results) {
+                List<String> canonicals = result.get();
+                for (int i = 0; i < canonicals.size(); i++) {
+                    assertSame(first.get(i), canonicals.get(i));
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(100, pool.size());
+        // Every new String is a duplicate, except the 100 that became canonical.
+        assertEquals(4_000 - 100, pool.getDuplicates());
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            int id = pool.id("value " + i);
+            assertEquals("value " + i, pool.valueOf(id));
+            ids.add(id);
+        }
+        assertEquals(100, ids.size());
+    }
+
+    @Test
+    void entityFactoriesUseTheSharedPool() {
+        StringPool shared = StringPool.shared();
+        String[] milans = milans();
+
+        Trader trader = Trader.of(milans[0], new String("Milan"));
+        Trader other = Trader.of(milans[1], milans[2]);
+        assertSame(trader.getName(), other.getName());
+        assertSame(trader.getCity(), other.getCity());
+        assertSame(shared.intern("Milan"), trader.getCity());
+
+        Apple apple = Apple.of(150, new String("green"));
+        assertSame(shared.intern("green"), apple.getColor());
+        assertSame(apple.getColor(), Apple.of(80, new StringBuilder("neerg").reverse().toString()).getColor());
+
+        Dish dish = Dish.of(new String("pizza"), true, 550, Type.OTHER);
+        assertSame(shared.intern("pizza"), dish.getName());
+        assertEquals(Dish.menu.get(6), dish);
+        assertSame(Dish.menu.get(6).getName(), dish.getName());
+    }
+}
@@ -0,0 +1,46 @@
+package com.javainaction.utilities;
+
+import com.javainaction.Fixtures;
+import com.javainaction.entities.Apple;
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestTopK {
+
+    @Test
+    void sameResultAsSortAndLimit() {
+        List<Apple> inventory = Fixtures.distinctApples(20_000, 300);
+        Comparator<Apple> byWeight = Comparator.comparing(Apple::getWeight);
+        // Below and above HEAP_LIMIT: the heap and the quickselect buffer.
+        for (int k : new int[]{0, 1, 10, TopK.HEAP_LIMIT, 5_000, 30_000}) {
+            List<Apple> lightest = inventory.stream().sorted(byWeight).limit(k).collect(Collectors.toList());
+            List<Apple> heaviest = inventory.stream().sorted(byWeight.reversed()).limit(k).collect(Collectors.toList());
+
+            assertEquals(lightest, inventory.stream().collect(TopK.smallest(k, byWeight)));
+            assertEquals(heaviest, inventory.stream().collect(TopK.largest(k, byWeight)));
+            assertEquals(lightest, inventory.stream().collect(TopK.smallestByKey(k, Apple::getWeight)));
+            assertEquals(heaviest, inventory.stream().collect(TopK.largestByKey(k, Apple::getWeight)));
+        }
+    }
+
+    @Test
+    void parallelKeepsEncounterOrderOfEqualElements() {
+        List<Apple> inventory = Fixtures.distinctApples(100_000, 300);
+        List<Apple> heaviest = inventory.stream()
+                .sorted(Comparator.comparing(Apple::getWeight).reversed())
+                .limit(100)
+                .collect(Collectors.toList());
+
+        assertEquals(heaviest, inventory.parallelStream().collect(TopK.largestByKey(100, Apple::getWeight)));
+    }
+
+    @Test
+    void negativeKIsRefused() {
+        assertThrows(IllegalArgumentException.class, () -> TopK.smallestByKey(-1, Apple::getWeight));
+    }
+}
@@ -0,0 +1,48 @@
+package com.javainaction.utilities;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TestWordCardinality {
+
+    @Test
+    void exactCountEqualsDistinctCount() {
+        long expected = IntStream.range(0, 200_000).mapToObj(i -> "word" + (i % 12_345)).distinct().count();
+        long actual = IntStream.range(0, 200_000).parallel().mapToObj(i -> "word" + (i % 12_345))
+                .collect(WordCardinality.exact());
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void approximateCountIsWithinErrorBound() {
+        long actual = IntStream.range(0, 1_000_000).parallel().mapToObj(i -> "word" + (i % 100_000))
+                .collect(WordCardinality.approximate(14));
+        // The standard error for precision 14 is about 0.8%; allow four times that.
+        assertEquals(100_000.0, actual, 3_200.0);
+    }
+
+    @Test
+    void smallCardinalityIsCountedAlmostExactly() {
+        long actual = IntStream.range(0, 1_000).mapToObj(i -> "word" + (i % 50))
+                .collect(WordCardinality.approximate(12));
+        assertEquals(50.0, actual, 1.0);
+    }
+
+    @Test
+    void sketchesOfSeveralSourcesCanBeCombined() {
+        HyperLogLog first = IntStream.range(0, 60_000).mapToObj(i -> "word" + i)
+                .collect(WordCardinality.sketch(14));
+        HyperLogLog second = IntStream.range(40_000, 100_000).mapToObj(i -> "word" + i)
+                .collect(WordCardinality.sketch(14));
+        first.combine(second);
+        assertEquals(100_000.0, first.estimate(), 3_200.0);
+    }
+
+    @Test
+    void sketchesWithDifferentPrecisionCannotBeCombined() {
+        assertThrows(IllegalArgumentException.class, () -> new HyperLogLog(10).combine(new HyperLogLog(12)));
+    }
+}